@@ -20,12 +20,17 @@ import static com.wl4g.component.common.lang.Assert2.hasText;
 import static com.wl4g.component.common.lang.Assert2.notNull;
 import static com.wl4g.component.common.lang.Assert2.state;
 import static java.lang.System.err;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.SystemUtils.LINE_SEPARATOR;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
@@ -41,6 +46,7 @@ import org.jline.utils.InfoCmp.Capability;
 import com.wl4g.shell.cli.config.ClientShellHandlerRegistrar;
 import com.wl4g.shell.cli.handler.DefaultClientShellHandler;
 import com.wl4g.shell.cli.handler.InteractiveClientShellHandler;
+import com.wl4g.shell.cli.handler.TableRenderer;
 import com.wl4g.shell.common.annotation.ShellMethod;
 import com.wl4g.shell.common.cli.BuiltInCommand;
 import com.wl4g.shell.common.cli.HelpOptions;
@@ -89,9 +95,89 @@ public class DefaultBuiltInCommand extends BuiltInCommand {
     public void login() {
     }
 
-    @ShellMethod(keys = { CMD_STACKTRACE, CMD_ST }, group = DEFAULT_GROUP, help = "Exit current process")
+    /**
+     * @see {@link DefaultClientShellHandler#writeStdin(Object)}
+     */
+    @ShellMethod(keys = { CMD_WATCH, CMD_WA }, group = DEFAULT_GROUP, help = "Execute a command periodically on the server and show changes in place, e.g: watch -n 1 mycommand -a 1")
+    public void watch() {
+    }
+
+    /**
+     * @see {@link DefaultClientShellHandler#writeStdin(Object)}
+     */
+    @ShellMethod(keys = { CMD_TIMEOUT }, group = DEFAULT_GROUP, help = "Execute a command with the deadline, overriding the default timeout of the command")
+    public String timeout() {
+        return "Usage:" + LINE_SEPARATOR //
+                + "  timeout <seconds> <command>    e.g: timeout 30 mycommand -a 1";
+    }
+
+    /**
+     * @see {@link DefaultClientShellHandler#writeStdin(Object)}
+     */
+    @ShellMethod(keys = { CMD_JOB }, group = DEFAULT_GROUP, help = "Detached background jobs control, the jobs survive client disconnection")
+    public String job() {
+        return "Usage:" + LINE_SEPARATOR //
+                + "  job run <command>       Launch the command as detached background job" + LINE_SEPARATOR
+                + "  job list                List the background jobs" + LINE_SEPARATOR
+                + "  job attach <id> [n]     Attach the job output (replay latest n lines), Ctrl+C to detach" + LINE_SEPARATOR
+                + "  job tail <id> [n]       Print the latest n lines of the job output" + LINE_SEPARATOR
+                + "  job kill <id>           Kill the background job";
+    }
+
+    /**
+     * See: {@link TableRenderer}
+     * 
+     * @return
+     */
+    @ShellMethod(keys = { CMD_TABLE }, group = DEFAULT_GROUP, help = "Sort or export the last table output, e.g: table sort name desc, table csv /tmp/users.csv")
+    public String table() {
+        try {
+            List<String> commands = LineUtils.parse(lineCache.get());
+            if (isNull(commands)) {
+                commands = new LinkedList<>();
+            }
+            TableRenderer table = runner.getLastTable();
+            if (table.isEmpty()) {
+                return "No table output.";
+            }
+            String action = (commands.size() > 1) ? commands.get(1) : EMPTY;
+            String export = null;
+            if (equalsIgnoreCase(action, "sort") && commands.size() > 2) {
+                table.sort(commands.get(2), commands.size() > 3 && equalsIgnoreCase(commands.get(3), "desc"));
+                return table.render();
+            } else if (equalsIgnoreCase(action, "csv")) {
+                export = table.toCsv();
+            } else if (equalsIgnoreCase(action, "json")) {
+                export = table.toJson();
+            } else if (isBlank(action)) {
+                return table.render();
+            } else {
+                return "Usage:" + LINE_SEPARATOR //
+                        + "  table                          Render the last table" + LINE_SEPARATOR
+                        + "  table sort <column> [desc]     Sort the last table by the column" + LINE_SEPARATOR
+                        + "  table csv [file]               Export the last table as CSV" + LINE_SEPARATOR
+                        + "  table json [file]              Export the last table as JSON";
+            }
+            if (commands.size() > 2) {
+                Files.write(Paths.get(commands.get(2)), export.getBytes(UTF_8));
+                return String.format("Exported %s rows to: %s", table.size(), commands.get(2));
+            }
+            return export;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            lineCache.remove();
+        }
+    }
+
+    /**
+     * The server errors are fetched lazily, see:
+     * {@link DefaultClientShellHandler#writeStdin(Object)}
+     */
+    @ShellMethod(keys = { CMD_STACKTRACE, CMD_ST }, group = DEFAULT_GROUP, help = "Print the stacktrace of the last error, e.g: stacktrace [errorId]")
     public void stacktrace() {
-        err.println(runner.getLastStacktrace());
+        String stacktrace = runner.getLastStacktrace();
+        err.println(isNull(stacktrace) ? "No error stacktrace." : stacktrace);
     }
 
     @ShellMethod(keys = { CMD_QUIT, CMD_QU, CMD_EXIT, CMD_EX }, group = DEFAULT_GROUP, help = "Exit current process")
@@ -23,6 +23,12 @@ import static com.wl4g.shell.cli.config.ClientShellHandlerRegistrar.getSingle;
 import static com.wl4g.shell.common.annotation.ShellOption.GNU_CMD_LONG;
 import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_HE;
 import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_HELP;
+import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_JOB;
+import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_ST;
+import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_STACKTRACE;
+import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_TIMEOUT;
+import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_WA;
+import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_WATCH;
 import static com.wl4g.shell.common.utils.LineUtils.clean;
 import static com.wl4g.shell.common.utils.LineUtils.parse;
 import static java.lang.String.format;
@@ -38,6 +44,7 @@ import static org.apache.commons.lang3.StringUtils.equalsAny;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.commons.lang3.StringUtils.isNumeric;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
 import static org.apache.commons.lang3.SystemUtils.USER_HOME;
 import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
 import static org.jline.reader.LineReader.HISTORY_FILE;
@@ -52,6 +59,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
@@ -66,7 +75,12 @@ import com.wl4g.shell.common.handler.GenericShellHandler;
 import com.wl4g.shell.common.registry.ShellHandlerRegistrar;
 import com.wl4g.shell.common.signal.MetaSignal;
 import com.wl4g.shell.common.signal.Signal;
+import com.wl4g.shell.common.signal.JobSignal;
+import com.wl4g.shell.common.signal.JobSignal.JobAction;
+import com.wl4g.shell.common.signal.StacktraceSignal;
+import com.wl4g.shell.common.signal.StderrSignal;
 import com.wl4g.shell.common.signal.StdinSignal;
+import com.wl4g.shell.common.signal.WatchSignal;
 
 /**
  * CLi shell component runner
@@ -104,6 +118,33 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
      */
     public static final AttributedString DEFAULT_ATTRIBUTED = new AttributedString("console");
 
+    /**
+     * Default re-execution interval seconds of the watching command.
+     */
+    public static final double DEFAULT_WATCH_INTERVAL = 2d;
+
+    /**
+     * Default number of latest output lines of the background job tailing.
+     */
+    public static final int DEFAULT_JOB_TAIL_LINES = 20;
+
+    /**
+     * Job control command line pattern, e.g: 'job run mycommand -a 1'
+     */
+    private static final Pattern JOB_PATTERN = Pattern.compile("^\\s*" + CMD_JOB + "\\s+(\\w+)(?:\\s+(.*))?$");
+
+    /**
+     * Deadline override command line pattern, e.g: 'timeout 30 mycommand -a 1'
+     */
+    private static final Pattern TIMEOUT_PATTERN = Pattern
+            .compile("^\\s*" + CMD_TIMEOUT + "\\s+(\\d+(?:\\.\\d+)?)\\s+(.+)$");
+
+    /**
+     * Watching command line pattern, e.g: 'watch -n 1 mycommand -a 1'
+     */
+    private static final Pattern WATCH_PATTERN = Pattern
+            .compile("^\\s*(?:" + CMD_WATCH + "|" + CMD_WA + ")\\s+(?:(?:-n|--interval)\\s+(\\S+)\\s+)?(.+)$");
+
     /**
      * Shell configuration
      */
@@ -127,6 +168,17 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
      */
     private String stacktraceAsString;
 
+    /**
+     * Last error ID of the server, the full stacktrace is kept by the server
+     * and fetched on demand.
+     */
+    private String lastErrorId;
+
+    /**
+     * Last structured table output, for sorting or exporting.
+     */
+    protected final TableRenderer lastTable = new TableRenderer();
+
     public DefaultClientShellHandler(ClientShellConfiguration config) {
         super(config, getSingle());
         notNull(config, "configuration is null, please check configure");
@@ -170,9 +222,25 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
     @Override
     protected void printError(String abnormal, Throwable th) {
         stacktraceAsString = getStackTraceAsString(th);
+        lastErrorId = null;
         super.printError(abnormal, th);
     }
 
+    /**
+     * Print the compact descriptor of the server error.
+     * 
+     * @param stderr
+     */
+    protected void printStderr(StderrSignal stderr) {
+        stacktraceAsString = null;
+        lastErrorId = stderr.getErrorId();
+        if (isNotBlank(lastErrorId)) {
+            err.println(format("-ERROR: %s (errorId: %s, see: %s)", stderr.getDescription(), lastErrorId, CMD_STACKTRACE));
+        } else {
+            err.println(format("-ERROR: %s", stderr.getDescription()));
+        }
+    }
+
     /**
      * Get last abnormal stack-trace string
      * 
@@ -182,6 +250,15 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
         return stacktraceAsString;
     }
 
+    /**
+     * Get last structured table output.
+     * 
+     * @return
+     */
+    public TableRenderer getLastTable() {
+        return lastTable;
+    }
+
     /**
      * Submission stdin message to remote
      * 
@@ -195,8 +272,28 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
                 String line = (String) stdin;
                 List<String> cmds = parse(line);
                 if (!cmds.isEmpty()) {
+                    JobSignal job = (cmds.size() > 1 && equalsAny(cmds.get(0), CMD_JOB)) ? parseJob(line) : null;
+                    StdinSignal timeout = (cmds.size() > 2 && equalsAny(cmds.get(0), CMD_TIMEOUT)) ? parseTimeout(line) : null;
+                    String errorId = equalsAny(cmds.get(0), CMD_STACKTRACE, CMD_ST)
+                            ? ((cmds.size() > 1) ? cmds.get(1) : lastErrorId) : null;
+                    // $> watch -n 1 mycommand -a 1
+                    if (cmds.size() > 1 && equalsAny(cmds.get(0), CMD_WATCH, CMD_WA)) {
+                        stdin = parseWatch(line);
+                    }
+                    // $> job run mycommand -a 1
+                    else if (nonNull(job)) {
+                        stdin = job;
+                    }
+                    // $> timeout 30 mycommand -a 1
+                    else if (nonNull(timeout)) {
+                        stdin = timeout;
+                    }
+                    // $> stacktrace [errorId], fetch the server error lazily.
+                    else if (isNotBlank(errorId)) {
+                        stdin = new StacktraceSignal(errorId);
+                    }
                     // $> [help|clear|history...]
-                    if (registrar.contains(cmds.get(0))) { // Local command?
+                    else if (registrar.contains(cmds.get(0))) { // Local command?
                         isRemoteCommand = false;
                         DefaultBuiltInCommand.senseLine(line);
                         process(line);
@@ -214,7 +311,9 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
                     }
                 }
                 // Wrap string command
-                stdin = new StdinSignal(line);
+                if (!(stdin instanceof Signal)) {
+                    stdin = new StdinSignal(line);
+                }
             }
 
             // Check connect & send to server.
@@ -298,6 +397,71 @@ public abstract class DefaultClientShellHandler extends GenericShellHandler impl
         out.println();
     }
 
+    /**
+     * Parse watching command line, e.g: '$> watch -n 1 mycommand -a 1'
+     * 
+     * @param line
+     * @return
+     */
+    private WatchSignal parseWatch(String line) {
+        Matcher matcher = WATCH_PATTERN.matcher(line);
+        isTrue(matcher.matches(), format("Invalid watch command: %s", line));
+        double interval = DEFAULT_WATCH_INTERVAL;
+        if (nonNull(matcher.group(1))) {
+            try {
+                interval = Double.parseDouble(matcher.group(1));
+            } catch (NumberFormatException e) {
+                err.println(format("Invalid watch interval '%s', using default: %ss", matcher.group(1), interval));
+            }
+        }
+        return new WatchSignal(matcher.group(2).trim(), Math.max((long) (interval * 1000), 1L));
+    }
+
+    /**
+     * Parse the command line with deadline override, e.g: '$> timeout 30
+     * mycommand -a 1'
+     * 
+     * @param line
+     * @return Returns null if the timeout command is invalid.
+     */
+    private StdinSignal parseTimeout(String line) {
+        Matcher matcher = TIMEOUT_PATTERN.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        long timeoutMs = (long) (Double.parseDouble(matcher.group(1)) * 1000);
+        return (timeoutMs > 0) ? new StdinSignal(matcher.group(2).trim(), timeoutMs) : null;
+    }
+
+    /**
+     * Parse detached background job control command line, e.g: '$> job run
+     * mycommand -a 1', '$> job tail 1 20'
+     * 
+     * @param line
+     * @return Returns null if the job command is invalid.
+     */
+    private JobSignal parseJob(String line) {
+        Matcher matcher = JOB_PATTERN.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        JobAction action = JobAction.safeOf(matcher.group(1));
+        String args = trimToEmpty(matcher.group(2));
+        if (action == JobAction.RUN) {
+            return isBlank(args) ? null : new JobSignal(action, null, args, 0);
+        } else if (action == JobAction.LIST) {
+            return new JobSignal(action, null, null, 0);
+        } else if (nonNull(action) && !isBlank(args)) {
+            String[] parts = args.split("\\s+");
+            int lines = DEFAULT_JOB_TAIL_LINES;
+            if (parts.length > 1 && isNumeric(parts[1])) {
+                lines = Integer.parseInt(parts[1]);
+            }
+            return new JobSignal(action, parts[0], null, lines);
+        }
+        return null;
+    }
+
     /**
      * Ensure client handler
      * 
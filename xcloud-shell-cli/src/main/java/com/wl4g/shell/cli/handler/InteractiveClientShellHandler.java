@@ -32,26 +32,40 @@ import static java.lang.System.err;
 import static java.lang.System.out;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.equalsAny;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.repeat;
 import static org.apache.commons.lang3.StringUtils.trimToEmpty;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jline.reader.UserInterruptException;
 
 import com.wl4g.shell.cli.config.ClientShellConfiguration;
 import com.wl4g.shell.common.signal.AckInterruptSignal;
+import com.wl4g.shell.common.signal.AckMoreSignal;
 import com.wl4g.shell.common.signal.AskInterruptSignal;
+import com.wl4g.shell.common.signal.AskMoreSignal;
 import com.wl4g.shell.common.signal.BOFStdoutSignal;
+import com.wl4g.shell.common.signal.DeltaStdoutSignal;
 import com.wl4g.shell.common.signal.EOFStdoutSignal;
 import com.wl4g.shell.common.signal.LoginSignal;
 import com.wl4g.shell.common.signal.MetaSignal;
+import com.wl4g.shell.common.signal.MultiProgressSignal;
 import com.wl4g.shell.common.signal.PreInterruptSignal;
 import com.wl4g.shell.common.signal.PreLoginSignal;
 import com.wl4g.shell.common.signal.ProgressSignal;
 import com.wl4g.shell.common.signal.Signal;
+import com.wl4g.shell.common.signal.StacktraceSignal;
 import com.wl4g.shell.common.signal.StderrSignal;
 import com.wl4g.shell.common.signal.StdoutSignal;
+import com.wl4g.shell.common.signal.TableSignal;
 
 /**
  * Interactive shell component runner
@@ -75,6 +89,24 @@ public class InteractiveClientShellHandler extends DefaultClientShellHandler {
     /** Payload command last sent timestamp, for timeout check. */
     private long lastCmdSentTime = 0L;
 
+    /** Current output lines of the watching command. */
+    private final List<String> watchLines = new ArrayList<>();
+
+    /** Number of rendered lines of the watching command. */
+    private int watchRendered = 0;
+
+    /** Current progress bars of the command, in the order of first appearance. */
+    private final Map<String, ProgressSignal> progressBars = new LinkedHashMap<>();
+
+    /** Number of rendered lines of the progress bars. */
+    private int progressRendered = 0;
+
+    /** Latest rendered timestamp of the progress bars, for capping the frame rate. */
+    private long progressRenderedTime = 0L;
+
+    /** Whether the progress bars have changes not yet rendered. */
+    private boolean progressDirty = false;
+
     public InteractiveClientShellHandler(ClientShellConfiguration config) {
         super(config);
     }
@@ -136,6 +168,10 @@ public class InteractiveClientShellHandler extends DefaultClientShellHandler {
             else if (output instanceof LoginSignal) {
                 LoginSignal login = (LoginSignal) output;
                 if (login.isAuthenticated()) {
+                    // e.g. the stateless session token is issued.
+                    if (!isEmpty(login.getSessionId())) {
+                        super.sessionId = login.getSessionId();
+                    }
                     out.println(login.getDesc());
                 } else {
                     err.println(login.getDesc());
@@ -147,6 +183,12 @@ public class InteractiveClientShellHandler extends DefaultClientShellHandler {
                 ProgressSignal pro = (ProgressSignal) output;
                 printProgress(pro.getTitle(), pro.getProgress(), pro.getWhole(), '=');
             }
+            // Multiple progress bars
+            else if (output instanceof MultiProgressSignal) {
+                applyMultiProgress((MultiProgressSignal) output);
+                // Keep paused while progressing.
+                lastCmdSentTime = currentTimeMillis();
+            }
             // Ask interrupt
             else if (output instanceof AskInterruptSignal) {
                 AskInterruptSignal ask = (AskInterruptSignal) output;
@@ -169,23 +211,73 @@ public class InteractiveClientShellHandler extends DefaultClientShellHandler {
                 // Echo interrupt
                 writeStdin(confirm);
             }
+            // Ask paging
+            else if (output instanceof AskMoreSignal) {
+                AskMoreSignal ask = (AskMoreSignal) output;
+                printDebug(format("ask more, outputed: %s ...", ask.getOutputed()));
+
+                // Print retry ask prompt
+                stdin = null;
+                do {
+                    lineReader.printAbove(ask.getSubject());
+                    synchronized (this) { // MARK3
+                        wait(TIMEOUT); // see:MARK2
+                    }
+                } while (isEmpty(stdin));
+
+                // Echo paging
+                lastCmdSentTime = currentTimeMillis();
+                writeStdin(new AckMoreSignal(isTrue(trimToEmpty(stdin.toString()), false)));
+            }
+            // Structured table
+            else if (output instanceof TableSignal) {
+                if (lastTable.accept((TableSignal) output)) {
+                    out.println(lastTable.render());
+                }
+                // Keep paused while receiving.
+                lastCmdSentTime = currentTimeMillis();
+            }
             // Stderr
             else if (output instanceof StderrSignal) {
-                StderrSignal stderr = (StderrSignal) output;
-                printError("-ERROR:", stderr.getThrowable());
+                printStderr((StderrSignal) output);
+                wakeup();
+            }
+            // Stacktrace of the server error
+            else if (output instanceof StacktraceSignal) {
+                StacktraceSignal trace = (StacktraceSignal) output;
+                if (isBlank(trace.getStacktrace())) {
+                    err.println(format("No stacktrace of the error '%s', it may have been evicted.", trace.getErrorId()));
+                } else {
+                    err.println(trace.getStacktrace());
+                }
                 wakeup();
             }
             // BOF stdout
             else if (output instanceof BOFStdoutSignal) {
                 // Ignore
             }
+            // Delta stdout of watching
+            else if (output instanceof DeltaStdoutSignal) {
+                printDelta((DeltaStdoutSignal) output);
+                // Keep paused while watching.
+                lastCmdSentTime = currentTimeMillis();
+            }
             // EOF stdout
             else if (output instanceof EOFStdoutSignal) {
+                watchLines.clear();
+                watchRendered = 0;
+                if (progressDirty) {
+                    renderMultiProgress();
+                }
+                progressBars.clear();
+                progressRendered = 0;
                 wakeup();
             }
             // Stdout
             else if (output instanceof StdoutSignal) {
                 out.println(((StdoutSignal) output).getContent());
+                // Output received, e.g. attached job, keep paused.
+                lastCmdSentTime = currentTimeMillis();
             }
         } else { // Local command stdout?
             wakeup();
@@ -213,6 +305,80 @@ public class InteractiveClientShellHandler extends DefaultClientShellHandler {
         return (PreLoginSignal) (stdin = new PreLoginSignal(username, password));
     }
 
+    /**
+     * Apply the changed lines of the watching command and redraw in place.
+     * 
+     * @param delta
+     */
+    private void printDelta(DeltaStdoutSignal delta) {
+        if (delta.getSequence() <= 1) {
+            watchLines.clear();
+        }
+        while (watchLines.size() > delta.getLines()) {
+            watchLines.remove(watchLines.size() - 1);
+        }
+        delta.getChanges().forEach((index, line) -> {
+            while (watchLines.size() <= index) {
+                watchLines.add(EMPTY);
+            }
+            watchLines.set(index, line);
+        });
+
+        StringBuilder buf = new StringBuilder();
+        if (watchRendered > 0) {
+            buf.append("\033[").append(watchRendered).append("A"); // Cursor up
+        }
+        String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        buf.append("\r\033[2K").append(format("Watching: %s    %s    (Ctrl+C to stop)", delta.getLine(), time)).append("\n");
+        watchLines.forEach(line -> buf.append("\r\033[2K").append(line).append("\n"));
+        buf.append("\033[J"); // Clear the excess lines
+        watchRendered = watchLines.size() + 1;
+
+        out.print(buf);
+        out.flush();
+    }
+
+    /**
+     * Apply the changed progress bars, and redraw them in place at the capped
+     * frame rate.
+     * 
+     * @param multi
+     */
+    private void applyMultiProgress(MultiProgressSignal multi) {
+        if (multi.getSequence() <= 1) {
+            progressBars.clear();
+        }
+        progressBars.putAll(multi.getChanges());
+        progressDirty = true;
+        if ((currentTimeMillis() - progressRenderedTime) >= PROGRESS_FRAME_INTERVAL_MS) {
+            renderMultiProgress();
+        }
+    }
+
+    /**
+     * Redraw the progress bars in the fixed region.
+     */
+    private void renderMultiProgress() {
+        StringBuilder buf = new StringBuilder();
+        if (progressRendered > 0) {
+            buf.append("\033[").append(progressRendered).append("A"); // Cursor up
+        }
+        progressBars.values().forEach(pro -> {
+            int width = PROGRESS_BAR_WIDTH;
+            int done = (pro.getWhole() > 0) ? (int) ((long) pro.getProgress() * width / pro.getWhole()) : width;
+            int percent = (pro.getWhole() > 0) ? (int) ((long) pro.getProgress() * 100 / pro.getWhole()) : 100;
+            buf.append("\r\033[2K").append(format("%s [%s%s] %3d%% (%s/%s)", pro.getTitle(), repeat('=', done),
+                    repeat(' ', width - done), percent, pro.getProgress(), pro.getWhole())).append("\n");
+        });
+        buf.append("\033[J"); // Clear the excess lines
+        progressRendered = progressBars.size();
+        progressRenderedTime = currentTimeMillis();
+        progressDirty = false;
+
+        out.print(buf);
+        out.flush();
+    }
+
     /**
      * Pause wait for completed. 
      * {@link DefaultClientShellHandler#wakeup()}
@@ -252,4 +418,10 @@ public class InteractiveClientShellHandler extends DefaultClientShellHandler {
         return pauseState && (currentTimeMillis() - lastCmdSentTime) < TIMEOUT;
     }
 
+    /** Minimum interval of redrawing the progress bars. */
+    private static final long PROGRESS_FRAME_INTERVAL_MS = 50L;
+
+    /** Width of the progress bars. */
+    private static final int PROGRESS_BAR_WIDTH = 30;
+
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.cli.handler;
+
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static com.wl4g.component.common.serialize.JacksonUtils.toJSONString;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.apache.commons.lang3.StringUtils.containsAny;
+import static org.apache.commons.lang3.StringUtils.leftPad;
+import static org.apache.commons.lang3.StringUtils.repeat;
+import static org.apache.commons.lang3.StringUtils.rightPad;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.wl4g.shell.common.signal.TableSignal;
+import com.wl4g.shell.common.signal.TableSignal.Column;
+import com.wl4g.shell.common.signal.TableSignal.ColumnType;
+
+/**
+ * Client renderer of the structured table output, the batches of the
+ * {@link TableSignal} are accumulated, and the table is rendered with the
+ * auto-width columns (the long values are truncated), or sorted, or exported
+ * as CSV/JSON.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-26
+ * @since v1.0
+ */
+public class TableRenderer {
+
+    /** Column schema of the current table. */
+    private List<Column> columns = new ArrayList<>();
+
+    /** Accumulated rows of the current table. */
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * Accumulate the batch of the table.
+     * 
+     * @param table
+     * @return Returns true if the table is completed.
+     */
+    public synchronized boolean accept(TableSignal table) {
+        if (table.getSequence() <= 1 || nonNull(table.getColumns())) {
+            columns = nonNull(table.getColumns()) ? table.getColumns() : new ArrayList<>();
+            rows.clear();
+        }
+        rows.addAll(table.getRows());
+        return table.isLast();
+    }
+
+    public synchronized boolean isEmpty() {
+        return columns.isEmpty();
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /**
+     * Sort the rows of the table by the column.
+     * 
+     * @param column
+     * @param desc
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public synchronized void sort(String column, boolean desc) {
+        int index = indexOf(column);
+        isTrue(index >= 0, format("No such column '%s', columns: %s", column, columns));
+        Comparator<Object[]> comparator = (r1, r2) -> {
+            Object v1 = r1[index], v2 = r2[index];
+            if (isNull(v1) || isNull(v2)) {
+                return isNull(v1) ? (isNull(v2) ? 0 : -1) : 1;
+            }
+            return (v1 instanceof Comparable && v1.getClass() == v2.getClass()) ? ((Comparable) v1).compareTo(v2)
+                    : valueOf(v1).compareTo(valueOf(v2));
+        };
+        rows.sort(desc ? comparator.reversed() : comparator);
+    }
+
+    /**
+     * Render the table with the auto-width columns, the numbers are aligned
+     * to the right.
+     * 
+     * @return
+     */
+    public synchronized String render() {
+        int[] widths = new int[columns.size()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = min(columns.get(i).getName().length(), MAX_COLUMN_WIDTH);
+        }
+        for (Object[] row : rows) {
+            for (int i = 0; i < widths.length && i < row.length; i++) {
+                widths[i] = max(widths[i], min(text(row[i]).length(), MAX_COLUMN_WIDTH));
+            }
+        }
+
+        StringBuilder buf = new StringBuilder();
+        StringBuilder separator = new StringBuilder();
+        for (int i = 0; i < widths.length; i++) {
+            buf.append(i > 0 ? COLUMN_GAP : EMPTY).append(rightPad(truncate(columns.get(i).getName()), widths[i]));
+            separator.append(i > 0 ? COLUMN_GAP : EMPTY).append(repeat('-', widths[i]));
+        }
+        buf.append("\n").append(separator);
+        for (Object[] row : rows) {
+            buf.append("\n");
+            for (int i = 0; i < widths.length; i++) {
+                String value = truncate(text((i < row.length) ? row[i] : null));
+                boolean numeric = columns.get(i).getType() == ColumnType.INTEGER
+                        || columns.get(i).getType() == ColumnType.DECIMAL;
+                buf.append(i > 0 ? COLUMN_GAP : EMPTY).append(numeric ? leftPad(value, widths[i]) : rightPad(value, widths[i]));
+            }
+        }
+        buf.append("\n(").append(rows.size()).append(" rows)");
+        return buf.toString();
+    }
+
+    /**
+     * Export the table as CSV (RFC 4180).
+     * 
+     * @return
+     */
+    public synchronized String toCsv() {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            buf.append(i > 0 ? "," : EMPTY).append(csv(columns.get(i).getName()));
+        }
+        for (Object[] row : rows) {
+            buf.append("\r\n");
+            for (int i = 0; i < row.length; i++) {
+                buf.append(i > 0 ? "," : EMPTY).append(isNull(row[i]) ? EMPTY : csv(valueOf(row[i])));
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Export the table as JSON array of the objects, the values are typed.
+     * 
+     * @return
+     */
+    public synchronized String toJson() {
+        List<Map<String, Object>> objects = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Map<String, Object> object = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                object.put(columns.get(i).getName(), (i < row.length) ? row[i] : null);
+            }
+            objects.add(object);
+        }
+        return toJSONString(objects);
+    }
+
+    private int indexOf(String column) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String text(Object value) {
+        return isNull(value) ? EMPTY : valueOf(value);
+    }
+
+    private static String truncate(String value) {
+        return (value.length() > MAX_COLUMN_WIDTH) ? value.substring(0, MAX_COLUMN_WIDTH - 3).concat("...") : value;
+    }
+
+    private static String csv(String value) {
+        if (containsAny(value, ',', '"', '\r', '\n')) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /** Maximum width of the columns, the long values are truncated. */
+    private static final int MAX_COLUMN_WIDTH = 48;
+
+    /** Gap between the columns. */
+    private static final String COLUMN_GAP = "  ";
+
+}
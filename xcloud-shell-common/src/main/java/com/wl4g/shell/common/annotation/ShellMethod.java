@@ -69,6 +69,51 @@ public @interface ShellMethod {
      */
     boolean lock() default true;
 
+    /**
+     * @return Lock group of the command, the commands of the same group are
+     *         mutually exclusive (or limited by {@link #maxConcurrency()}). If
+     *         empty, the command uses its own lock key (the first of
+     *         {@link #keys()}), that is, unrelated commands can be executed in
+     *         parallel. Only takes effect when {@link #lock()} is true.
+     */
+    String lockGroup() default "";
+
+    /**
+     * @return Maximum number of concurrent executions of the lock group
+     *         (bulkhead), default: 1, that is, exclusive. Note: the commands of
+     *         the same lock group should be consistent.
+     */
+    int maxConcurrency() default 1;
+
+    /**
+     * @return Lock mode of the lock group, the commands of
+     *         {@link LockMode#READ} (e.g. read-only inspections) can be
+     *         executed concurrently, while {@link LockMode#WRITE} is exclusive
+     *         with all the commands of the group. Default: WRITE, only takes
+     *         effect when {@link #maxConcurrency()} is 1.
+     */
+    LockMode lockMode() default LockMode.WRITE;
+
+    /**
+     * @return Lock scope of the lock group, {@link LockScope#LOCAL} is only
+     *         limited within the current JVM, {@link LockScope#CLUSTER} is
+     *         limited cluster-wide through shell cache (e.g. redis).
+     */
+    LockScope lockScope() default LockScope.CLUSTER;
+
+    /**
+     * @return Command execution deadline(milliseconds), if less than or equal
+     *         to 0, the server default timeout is used. After the deadline,
+     *         the cancellation token is cancelled and the executing thread is
+     *         interrupted, if the command still ignores the cancellation, it
+     *         will be forcibly stopped. The client can override it, e.g:
+     * 
+     *         <pre>
+     * $ &gt; timeout 30 mylist
+     *         </pre>
+     */
+    long timeout() default 0;
+
     /**
      * @return Command help description.
      */
@@ -78,4 +123,12 @@ public @interface ShellMethod {
         ALLOW, NOT_ALLOW
     }
 
+    public static enum LockScope {
+        LOCAL, CLUSTER
+    }
+
+    public static enum LockMode {
+        READ, WRITE
+    }
+
 }
\ No newline at end of file
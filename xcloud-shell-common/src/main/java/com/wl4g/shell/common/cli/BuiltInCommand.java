@@ -55,6 +55,15 @@ public abstract class BuiltInCommand {
     public final static String CMD_STACKTRACE = "stacktrace";
     public final static String CMD_ST = "st";
 
+    public final static String CMD_WATCH = "watch";
+    public final static String CMD_WA = "wa";
+
+    public final static String CMD_JOB = "job";
+
+    public final static String CMD_TIMEOUT = "timeout";
+
+    public final static String CMD_TABLE = "table";
+
     final private static List<String> CMDS = new ArrayList<>();
 
     static {
@@ -48,6 +48,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.zip.CRC32;
 
 import com.wl4g.component.common.reflect.TypeUtils2;
@@ -119,6 +121,18 @@ public abstract class GenericShellHandler implements ShellHandler {
             // Invoking
             Object output = doInvoke(line, commands, mainArg, tm, parameters);
 
+            // Asynchronous shell method? Call after execution on completed.
+            if (output instanceof CompletionStage) {
+                return ((CompletionStage<?>) output).thenApply(result -> {
+                    try {
+                        afterShellExecution(result);
+                    } catch (Exception e) {
+                        throw new ShellException(getRootCauses(e));
+                    }
+                    return result;
+                });
+            }
+
             // Call after execution.
             afterShellExecution(output);
 
@@ -141,7 +155,9 @@ public abstract class GenericShellHandler implements ShellHandler {
      *            Execution target method wrapper.
      * @param args
      *            Execution target method args.
-     * @return Invoked result output.
+     * @return Invoked result output, if the shell method returns
+     *         {@link CompletionStage} or {@link CompletableFuture}, the output
+     *         will be completed asynchronously.
      * @throws Exception
      *             Trigger when exception occurs
      */
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.registry;
+
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interned bit positions of the permissions, so that the required
+ * permissions of the shell methods are precomputed on registering, and the
+ * granted permissions of the users are compiled to the same positions.
+ *
+ * <p>
+ * The bit positions are interned process-wide and never recycled, so the
+ * precomputed bitsets are still valid after the ACL is reloaded.
+ * </p>
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-22 v1.0.0
+ * @since v1.0
+ */
+public abstract class PermissionBits {
+
+    /** Interned permissions, permission -> bit position. */
+    private static final Map<String, Integer> BITS = new HashMap<>();
+
+    /**
+     * Convert the permissions to the bitset, the unknown permissions are
+     * interned.
+     *
+     * @param permissions
+     * @return
+     */
+    public static BitSet toPermits(String[] permissions) {
+        BitSet permits = new BitSet();
+        if (nonNull(permissions)) {
+            synchronized (BITS) {
+                for (String permission : permissions) {
+                    permits.set(BITS.computeIfAbsent(trimToEmpty(permission), p -> BITS.size()));
+                }
+            }
+        }
+        return permits;
+    }
+
+}
@@ -38,6 +38,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -83,6 +84,12 @@ public class TargetMethodWrapper implements Serializable {
      */
     private final List<TargetParameter> parameters = new ArrayList<>(4);
 
+    /**
+     * Bitset of the required permissions, precomputed on registering, see:
+     * {@link PermissionBits}
+     */
+    private transient final BitSet requiredPermits;
+
     /**
      * Constructor target method.
      * 
@@ -103,6 +110,7 @@ public class TargetMethodWrapper implements Serializable {
         this.shellMethod = sm;
         this.method = method;
         this.target = target;
+        this.requiredPermits = PermissionBits.toPermits(sm.permissions());
 
         // Check whether there is a keyword.(if not an internal command)
         if (!(target instanceof BuiltInCommand)) {
@@ -131,6 +139,15 @@ public class TargetMethodWrapper implements Serializable {
         return parameters;
     }
 
+    /**
+     * Gets the bitset of the required permissions.
+     * 
+     * @return null if deserialized, e.g. on the client.
+     */
+    public BitSet getRequiredPermits() {
+        return requiredPermits;
+    }
+
     public HelpOptions getOptions() {
         final HelpOptions options = new HelpOptions(getShellMethod());
         getParameters().forEach(parameter -> {
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+import static com.wl4g.component.common.lang.Assert2.hasTextOf;
+
+/**
+ * Ask the client whether to continue pulling the next page of the streaming
+ * result output.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-08
+ * @since v1.0
+ */
+public class AskMoreSignal extends Signal {
+    private static final long serialVersionUID = -8574315246731916685L;
+
+    /**
+     * Current paging message subject.
+     */
+    private final String subject;
+
+    /**
+     * The number of elements that have been output.
+     */
+    private final long outputed;
+
+    public AskMoreSignal(String subject, long outputed) {
+        this.subject = hasTextOf(subject, "subject");
+        this.outputed = outputed;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public long getOutputed() {
+        return outputed;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString().concat("[subject=" + subject + ", outputed=" + outputed + "]");
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Delta stdout message of the watching command, only the changed lines are
+ * carried, the client applies them to the previous output and redraws in
+ * place.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-09
+ * @since v1.0
+ */
+public class DeltaStdoutSignal extends Signal {
+    private static final long serialVersionUID = -8574315246731946685L;
+
+    /**
+     * Watching command line.
+     */
+    private final String line;
+
+    /**
+     * Current output sequence.
+     */
+    private final long sequence;
+
+    /**
+     * Total number of lines of the current output, the client must truncate
+     * the excess lines.
+     */
+    private final int lines;
+
+    /**
+     * Changed lines, line index -> line content.
+     */
+    private final LinkedHashMap<Integer, String> changes;
+
+    public DeltaStdoutSignal(String line, long sequence, int lines, LinkedHashMap<Integer, String> changes) {
+        this.line = line;
+        this.sequence = sequence;
+        this.lines = lines;
+        this.changes = (changes != null) ? changes : new LinkedHashMap<>();
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public Map<Integer, String> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "delta [" + line + ", sequence=" + sequence + ", lines=" + lines + ", changes=" + changes.size() + "]";
+    }
+
+}
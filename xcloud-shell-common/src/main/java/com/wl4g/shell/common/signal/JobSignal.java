@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+
+/**
+ * Detached background job control signal.
+ * 
+ * <pre>
+ * $&gt; job run mycommand -a 1
+ * $&gt; job list
+ * $&gt; job attach 1
+ * $&gt; job tail 1 20
+ * $&gt; job kill 1
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-10
+ * @since v1.0
+ */
+public class JobSignal extends Signal {
+    private static final long serialVersionUID = -8574315246731956685L;
+
+    /**
+     * Job control action.
+     */
+    private final JobAction action;
+
+    /**
+     * Target job ID, required by attach/tail/kill.
+     */
+    private final String jobId;
+
+    /**
+     * Launching command line, required by run.
+     */
+    private final String line;
+
+    /**
+     * Number of latest output lines, used by tail.
+     */
+    private final int lines;
+
+    public JobSignal(JobAction action, String jobId, String line, int lines) {
+        this.action = notNullOf(action, "action");
+        this.jobId = jobId;
+        this.line = line;
+        this.lines = lines;
+    }
+
+    public JobAction getAction() {
+        return action;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return "job [" + action + ", jobId=" + jobId + ", line=" + line + ", lines=" + lines + "]";
+    }
+
+    /**
+     * Job control actions.
+     */
+    public static enum JobAction {
+        RUN, LIST, ATTACH, TAIL, KILL;
+
+        public static JobAction safeOf(String action) {
+            for (JobAction a : values()) {
+                if (a.name().equalsIgnoreCase(action)) {
+                    return a;
+                }
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Multiple progress bars message, only the changed bars are carried, the
+ * client applies them to the previous bars (in the order of first
+ * appearance) and redraws in place.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-25
+ * @since v1.0
+ */
+public class MultiProgressSignal extends Signal {
+    private static final long serialVersionUID = -8574315246731956685L;
+
+    /**
+     * Current update sequence, the client must reset the bars when it's 1.
+     */
+    private final long sequence;
+
+    /**
+     * Changed progress bars, progress ID -> progress.
+     */
+    private final LinkedHashMap<String, ProgressSignal> changes;
+
+    public MultiProgressSignal(long sequence, LinkedHashMap<String, ProgressSignal> changes) {
+        this.sequence = sequence;
+        this.changes = (changes != null) ? changes : new LinkedHashMap<>();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Map<String, ProgressSignal> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "multiProgress [sequence=" + sequence + ", changes=" + changes.size() + "]";
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+/**
+ * Fetching the full stacktrace of the error kept by the server, see:
+ * {@link StderrSignal#getErrorId()}, the request carries the error ID only,
+ * and the response carries the stacktrace (null if it has been evicted).
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-27
+ * @since v1.0
+ */
+public class StacktraceSignal extends Signal {
+    private static final long serialVersionUID = -8574315277731909687L;
+
+    /**
+     * Error ID of the stacktrace.
+     */
+    private final String errorId;
+
+    /**
+     * Full stacktrace of the error.
+     */
+    private final String stacktrace;
+
+    public StacktraceSignal(String errorId) {
+        this(errorId, null);
+    }
+
+    public StacktraceSignal(String errorId, String stacktrace) {
+        this.errorId = errorId;
+        this.stacktrace = stacktrace;
+    }
+
+    public String getErrorId() {
+        return errorId;
+    }
+
+    public String getStacktrace() {
+        return stacktrace;
+    }
+
+    @Override
+    public String toString() {
+        return "stacktrace [" + errorId + "]";
+    }
+
+}
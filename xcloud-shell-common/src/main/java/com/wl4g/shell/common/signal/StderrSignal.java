@@ -16,32 +16,118 @@
 package com.wl4g.shell.common.signal;
 
 import static com.wl4g.component.common.lang.Assert2.notNull;
-import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.abbreviate;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCause;
 
 /**
- * Stderr exception message.
+ * Stderr exception message, only the compact descriptor of the exception is
+ * carried (instead of the serialized exception graph), the full stacktrace is
+ * kept by the server and fetched on demand by the {@link StacktraceSignal}.
  * 
  * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version v1.0 2019-5月4日
  * @since v1.0
  */
 public class StderrSignal extends Signal {
-    private static final long serialVersionUID = -8574315277731909685L;
+    private static final long serialVersionUID = -8574315277731909686L;
 
-    private final Throwable throwable;
+    /**
+     * Error ID of the full stacktrace kept by the server, null if not kept.
+     */
+    private final String errorId;
+
+    /**
+     * Exception class name.
+     */
+    private final String type;
+
+    /**
+     * Exception message.
+     */
+    private final String message;
+
+    /**
+     * Root cause class name, null if the exception is the root cause.
+     */
+    private final String rootCauseType;
+
+    /**
+     * Root cause message.
+     */
+    private final String rootCauseMessage;
 
     public StderrSignal(Throwable throwable) {
+        this(null, throwable);
+    }
+
+    public StderrSignal(String errorId, Throwable throwable) {
         notNull(throwable, "throwable must not be null");
-        this.throwable = throwable;
+        Throwable rootCause = getRootCause(throwable);
+        this.errorId = errorId;
+        this.type = throwable.getClass().getName();
+        this.message = abbreviate(throwable.getMessage(), MAX_MESSAGE_LENGTH);
+        if (nonNull(rootCause) && rootCause != throwable) {
+            this.rootCauseType = rootCause.getClass().getName();
+            this.rootCauseMessage = abbreviate(rootCause.getMessage(), MAX_MESSAGE_LENGTH);
+        } else {
+            this.rootCauseType = null;
+            this.rootCauseMessage = null;
+        }
+    }
+
+    public String getErrorId() {
+        return errorId;
     }
 
-    public Throwable getThrowable() {
-        return throwable;
+    public String getType() {
+        return type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getRootCauseType() {
+        return rootCauseType;
+    }
+
+    public String getRootCauseMessage() {
+        return rootCauseMessage;
+    }
+
+    /**
+     * Gets the one line description of the error, e.g. <br/>
+     * 
+     * <pre>
+     * java.lang.IllegalStateException: Failed to export, caused by: java.io.IOException: Disk full
+     * </pre>
+     * 
+     * @return
+     */
+    public String getDescription() {
+        StringBuilder desc = new StringBuilder(type);
+        if (nonNull(message)) {
+            desc.append(": ").append(message);
+        }
+        if (!isNull(rootCauseType)) {
+            desc.append(", caused by: ").append(rootCauseType);
+            if (nonNull(rootCauseMessage)) {
+                desc.append(": ").append(rootCauseMessage);
+            }
+        }
+        return desc.toString();
     }
 
     @Override
     public String toString() {
-        return "stderr [" + getRootCauseMessage(throwable) + "]";
+        return "stderr [" + getDescription() + ", errorId=" + errorId + "]";
     }
 
-}
\ No newline at end of file
+    /**
+     * Maximum length of the messages, the excess is abbreviated.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 1024;
+
+}
@@ -29,18 +29,33 @@ public class StdinSignal extends Signal {
 
     private final String line;
 
+    /**
+     * Client override of the command execution deadline(milliseconds), if
+     * less than or equal to 0, the deadline of the shell method is used.
+     */
+    private final long timeoutMs;
+
     public StdinSignal(String line) {
+        this(line, 0L);
+    }
+
+    public StdinSignal(String line, long timeoutMs) {
         hasText(line, "line must not be empty");
         this.line = line;
+        this.timeoutMs = timeoutMs;
     }
 
     public String getLine() {
         return line;
     }
 
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
     @Override
     public String toString() {
-        return "stdin [" + line + "]";
+        return "stdin [" + line + (timeoutMs > 0 ? (", timeoutMs=" + timeoutMs) : "") + "]";
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+import static com.wl4g.component.common.lang.Assert2.hasTextOf;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structured table output message, the column schema is carried by the first
+ * batch only, and then the rows are sent in batches of the typed values, the
+ * client renders (or exports) the table when the last batch arrives.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-26
+ * @since v1.0
+ */
+public class TableSignal extends Signal {
+    private static final long serialVersionUID = -8574315246731966685L;
+
+    /**
+     * Current batch sequence, the first batch (sequence is 1) starts a new
+     * table.
+     */
+    private final long sequence;
+
+    /**
+     * Column schema of the table, only carried by the first batch.
+     */
+    private final List<Column> columns;
+
+    /**
+     * Rows of the current batch, the values are in the order of the columns.
+     */
+    private final List<Object[]> rows;
+
+    /**
+     * Whether it is the last batch of the table.
+     */
+    private final boolean last;
+
+    public TableSignal(long sequence, List<Column> columns, List<Object[]> rows, boolean last) {
+        this.sequence = sequence;
+        this.columns = columns;
+        this.rows = (rows != null) ? rows : new ArrayList<>();
+        this.last = last;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        return "table [sequence=" + sequence + ", rows=" + rows.size() + ", last=" + last + "]";
+    }
+
+    /**
+     * Column of the table.
+     */
+    public static class Column implements Serializable {
+        private static final long serialVersionUID = -8574315246731966686L;
+
+        private final String name;
+        private final ColumnType type;
+
+        public Column(String name, ColumnType type) {
+            this.name = hasTextOf(name, "name");
+            this.type = notNullOf(type, "type");
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+        public static Column of(String name, ColumnType type) {
+            return new Column(name, type);
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + type;
+        }
+    }
+
+    /**
+     * Value types of the columns, the values are carried as {@link String},
+     * {@link Long}, {@link Double} or {@link Boolean}.
+     */
+    public static enum ColumnType {
+        STRING, INTEGER, DECIMAL, BOOLEAN;
+
+        /**
+         * Convert the value to the carried value of the type.
+         * 
+         * @param value
+         * @return
+         */
+        public Object convert(Object value) {
+            if (value == null) {
+                return null;
+            }
+            switch (this) {
+            case INTEGER:
+                return (value instanceof Number) ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+            case DECIMAL:
+                return (value instanceof Number) ? ((Number) value).doubleValue()
+                        : Double.parseDouble(value.toString().trim());
+            case BOOLEAN:
+                return (value instanceof Boolean) ? value : Boolean.parseBoolean(value.toString().trim());
+            default:
+                return value.toString();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.common.signal;
+
+import static com.wl4g.component.common.lang.Assert2.hasTextOf;
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+
+/**
+ * Watch command signal, the server re-executes the command periodically and
+ * only sends the changed output lines, see: {@link DeltaStdoutSignal}
+ * 
+ * <pre>
+ * $&gt; watch -n 1 mycommand -a 1
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-09
+ * @since v1.0
+ */
+public class WatchSignal extends Signal {
+    private static final long serialVersionUID = -8574315246731936685L;
+
+    /**
+     * Watching command line.
+     */
+    private final String line;
+
+    /**
+     * Re-execution interval milliseconds.
+     */
+    private final long intervalMs;
+
+    public WatchSignal(String line, long intervalMs) {
+        this.line = hasTextOf(line, "line");
+        isTrue(intervalMs > 0, "Watch intervalMs must greater than 0");
+        this.intervalMs = intervalMs;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    @Override
+    public String toString() {
+        return "watch [" + line + ", intervalMs=" + intervalMs + "]";
+    }
+
+}
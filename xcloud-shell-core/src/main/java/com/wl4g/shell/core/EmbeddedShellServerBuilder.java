@@ -17,6 +17,7 @@ package com.wl4g.shell.core;
 
 import static com.wl4g.component.common.lang.Assert2.hasTextOf;
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 import com.wl4g.shell.common.registry.ShellHandlerRegistrar;
@@ -40,8 +41,8 @@ public class EmbeddedShellServerBuilder {
     /** {@link ServerShellProperties} */
     private ServerShellProperties config = new ServerShellProperties();
 
-    /** {@link ShellCache} */
-    private ShellCache shellCache = new MemoryShellCache(config);
+    /** {@link ShellCache}, the default is {@link MemoryShellCache} */
+    private ShellCache shellCache;
 
     /** {@link ShellHandlerRegistrar} */
     private ShellHandlerRegistrar registrar = new ShellHandlerRegistrar();
@@ -118,7 +119,8 @@ public class EmbeddedShellServerBuilder {
     }
 
     public EmbeddedShellServer build() {
-        return new EmbeddedShellServer(config, appName, registrar, shellCache);
+        ShellCache cache = isNull(shellCache) ? new MemoryShellCache(config) : shellCache;
+        return new EmbeddedShellServer(config, appName, registrar, cache);
     }
 
 }
@@ -16,8 +16,33 @@
 package com.wl4g.shell.core.cache;
 
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.component.common.serialize.JacksonUtils.parseJSON;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.wl4g.component.common.log.SmartLogger;
 import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.session.ShellSession;
 
 /**
  * {@link AbstractRedisShellCache}
@@ -27,18 +52,557 @@ import com.wl4g.shell.core.config.ServerShellProperties;
  * 
  */
 public abstract class AbstractRedisShellCache implements ShellCache {
+    protected final SmartLogger log = getLogger(getClass());
     protected static final String UNLOCK_LUA = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+    protected static final String RENEW_LUA = "local n = #KEYS local renewed = {} for i = 1, n do "
+            + "if redis.call('get', KEYS[i]) == ARGV[i] then redis.call('pexpire', KEYS[i], ARGV[n + 1]) renewed[i] = 1 "
+            + "else renewed[i] = 0 end end return renewed";
+    /**
+     * Touch the existing sessions and refresh their expiration, the KEYS are
+     * the pairs of the session key and its timestamp key, ARGV[i] is the
+     * latest timestamp of the i-th session, and followed by the expiration.
+     * The session values are never decoded nor rewritten.
+     */
+    protected static final String TOUCH_LUA = "local n = #KEYS / 2 local touched = {} for i = 1, n do "
+            + "if redis.call('pexpire', KEYS[2 * i - 1], ARGV[n + 1]) == 1 then "
+            + "redis.call('set', KEYS[2 * i], ARGV[i], 'PX', ARGV[n + 1]) touched[i] = 1 "
+            + "else touched[i] = 0 end end return touched";
+    protected static final String UNLOCK_ALL_LUA = "local n = #KEYS local deleted = {} for i = 1, n do "
+            + "if redis.call('get', KEYS[i]) == ARGV[i] then redis.call('del', KEYS[i]) deleted[i] = 1 "
+            + "else deleted[i] = 0 end end return deleted";
+    protected static final String SCAN_LUA = "return redis.call('scan', ARGV[1], 'MATCH', ARGV[2], 'COUNT', ARGV[3])";
+    /**
+     * Current milliseconds of the redis server clock, so the owner deadlines
+     * of all the nodes are on the same clock (immune to the clock skew of the
+     * nodes). The effects replication is required to write after 'TIME' on
+     * the redis before 5.0.
+     */
+    protected static final String NOW_LUA = "redis.replicate_commands() local t = redis.call('time') "
+            + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) ";
+    /**
+     * Read/write lock, the hash of the key contains the 'mode' field ('r' or
+     * 'w') and the owner fields with their own expiration deadline, the
+     * expired owners (e.g. crashed) are purged before acquiring.
+     */
+    protected static final String RW_LOCK_LUA = NOW_LUA + "local expire = tonumber(ARGV[3]) "
+            + "local entries = redis.call('hgetall', KEYS[1]) for i = 1, #entries, 2 do "
+            + "if entries[i] ~= 'mode' and tonumber(entries[i + 1]) < now then redis.call('hdel', KEYS[1], entries[i]) end end "
+            + "local mode = redis.call('hget', KEYS[1], 'mode') "
+            + "if mode and redis.call('hlen', KEYS[1]) <= 1 then redis.call('del', KEYS[1]) mode = false end "
+            + "if mode and (mode == 'w' or ARGV[2] == 'w') then return 0 end "
+            + "redis.call('hset', KEYS[1], 'mode', ARGV[2]) redis.call('hset', KEYS[1], ARGV[1], now + expire) "
+            + "if redis.call('pttl', KEYS[1]) < expire then redis.call('pexpire', KEYS[1], expire) end return 1";
+    protected static final String RW_UNLOCK_LUA = "if redis.call('hdel', KEYS[1], ARGV[1]) == 0 then return 0 end "
+            + "if redis.call('hlen', KEYS[1]) <= 1 then redis.call('del', KEYS[1]) end return 1";
+    protected static final String RW_RENEW_LUA = NOW_LUA + "local n = #KEYS local expire = tonumber(ARGV[n + 1]) "
+            + "local renewed = {} for i = 1, n do "
+            + "if redis.call('hexists', KEYS[i], ARGV[i]) == 1 then redis.call('hset', KEYS[i], ARGV[i], now + expire) "
+            + "if redis.call('pttl', KEYS[i]) < expire then redis.call('pexpire', KEYS[i], expire) end renewed[i] = 1 "
+            + "else renewed[i] = 0 end end return renewed";
 
     protected final ServerShellProperties config;
 
+    /**
+     * Whether the multi keys script is supported, e.g. the keys of cluster
+     * mode may be in different slots (CROSSSLOT).
+     */
+    private volatile boolean multiKeysScript = true;
+
+    /**
+     * Whether the pipelining is supported by the redis client, otherwise the
+     * batch operations fall back to one by one.
+     */
+    private volatile boolean pipelined = true;
+
+    /**
+     * Whether the sessions of the legacy layout (all in one hash) have been
+     * migrated to the per-session keys.
+     */
+    private final AtomicBoolean legacyMigrated = new AtomicBoolean(false);
+
+    /** Serializer of the values. */
+    protected final ValueSerializer serializer;
+
+    /** Executor of the asynchronous operations, lazily created. */
+    private volatile ExecutorService asyncExecutor;
+
     public AbstractRedisShellCache(ServerShellProperties config) {
         this.config = notNullOf(config, "config");
+        this.serializer = ValueSerializer.build(config.getCacheSerializer());
+    }
+
+    /**
+     * The redis clients are blocking, so the asynchronous operations are
+     * adapted on the dedicated daemon executor.
+     */
+    @Override
+    public Executor asyncExecutor() {
+        if (isNull(asyncExecutor)) {
+            synchronized (this) {
+                if (isNull(asyncExecutor)) {
+                    final AtomicInteger incr = new AtomicInteger(0);
+                    asyncExecutor = newFixedThreadPool(config.getCacheAsyncThreads(), r -> {
+                        Thread t = new Thread(r, "shell-cache-async-" + incr.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+
+    @Override
+    public <V> List<V> mget(List<String> keys, Class<V> valueClass) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        if (pipelined) {
+            try {
+                return pipelinedGet(keys).stream().map(s -> serializer.decode(s, valueClass)).collect(toList());
+            } catch (UnsupportedOperationException e) {
+                pipelined = false;
+            }
+        }
+        return ShellCache.super.mget(keys, valueClass);
+    }
+
+    @Override
+    public <V> long mset(Map<String, V> keyValues, long expireMs) {
+        if (keyValues.isEmpty()) {
+            return 0L;
+        }
+        if (pipelined) {
+            Map<String, byte[]> encodedKeyValues = new LinkedHashMap<>(keyValues.size());
+            keyValues.forEach((key, value) -> encodedKeyValues.put(key, serializer.encode(value)));
+            try {
+                return pipelinedSet(encodedKeyValues, expireMs);
+            } catch (UnsupportedOperationException e) {
+                pipelined = false;
+            }
+        }
+        return ShellCache.super.mset(keyValues, expireMs);
+    }
+
+    @Override
+    public Set<String> deleqAll(Map<String, String> keyValues) {
+        List<String> keys = new ArrayList<>(keyValues.size());
+        List<String> args = new ArrayList<>(keyValues.size());
+        keyValues.forEach((key, value) -> {
+            keys.add(key);
+            args.add(encodeArg(value));
+        });
+        List<Boolean> results = doBatchEval(UNLOCK_ALL_LUA, keys, args, emptyList());
+        Set<String> deleted = new HashSet<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (results.get(i)) {
+                deleted.add(keys.get(i));
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public Set<String> expireeq(Map<String, String> keyValues, long expireMs) {
+        List<String> keys = new ArrayList<>(keyValues.size());
+        List<String> args = new ArrayList<>(keyValues.size());
+        keyValues.forEach((key, value) -> {
+            keys.add(key);
+            args.add(encodeArg(value));
+        });
+        List<Boolean> results = doBatchEval(RENEW_LUA, keys, args, singletonList(valueOf(expireMs)));
+        Set<String> renewed = new HashSet<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (results.get(i)) {
+                renewed.add(keys.get(i));
+            }
+        }
+        return renewed;
+    }
+
+    /**
+     * Each session is stored under its own key with the native expiration of
+     * the ACL session timeout, so that the lookups are O(1) and the idle
+     * sessions are cleaned up by redis itself.
+     */
+    @Override
+    public <V> V hget(String key, Class<V> valueClass) {
+        migrateLegacyIfNecessary();
+        return getSessions(singletonList(key), valueClass).get(0);
+    }
+
+    /**
+     * Enumerate the sessions incrementally by SCAN, it's never blocking the
+     * redis like KEYS or HGETALL of the huge hash.
+     */
+    @Override
+    public <V> List<V> hgetAll(Class<V> valueClass) {
+        migrateLegacyIfNecessary();
+        List<String> sessionIds = scan(SESSION_KEY_NAMESPACE.concat("*"), SCAN_COUNT).stream()
+                .map(key -> key.substring(SESSION_KEY_NAMESPACE.length() + 1, key.length() - 1)).collect(toList());
+        List<V> values = getSessions(sessionIds, valueClass);
+        values.removeIf(value -> isNull(value)); // Expired during scanning?
+        return values;
+    }
+
+    @Override
+    public <V> List<V> hmget(List<String> keys, Class<V> valueClass) {
+        migrateLegacyIfNecessary();
+        return getSessions(keys, valueClass);
+    }
+
+    @Override
+    public <V> boolean hset(String key, V value) {
+        return set(getSessionKey(key), value, getSessionExpireMs());
+    }
+
+    @Override
+    public <V> long hmset(Map<String, V> keyValues) {
+        Map<String, V> sessionKeyValues = new LinkedHashMap<>(keyValues.size());
+        keyValues.forEach((key, value) -> sessionKeyValues.put(getSessionKey(key), value));
+        return mset(sessionKeyValues, getSessionExpireMs());
+    }
+
+    @Override
+    public <V> boolean hsetnx(String key, V value) {
+        return setnx(getSessionKey(key), value, getSessionExpireMs());
+    }
+
+    @Override
+    public <V> boolean hdel(String key) {
+        boolean deleted = del(getSessionKey(key));
+        del(getTimestampKey(key));
+        return deleted;
+    }
+
+    /**
+     * Touch the latest timestamp of the active sessions and refresh their
+     * expiration. The timestamps are written to the separate keys, merged
+     * when reading, so the touches are independent of the value serializer.
+     */
+    @Override
+    public long hpatch(String property, Map<String, ?> keyValues) {
+        if (!TOUCH_PROPERTY.equals(property)) {
+            throw new UnsupportedOperationException(format("Unsupported patching property of '%s'", property));
+        }
+        if (keyValues.isEmpty()) {
+            return 0L;
+        }
+        List<List<String>> keyGroups = new ArrayList<>(keyValues.size());
+        List<String> args = new ArrayList<>(keyValues.size());
+        keyValues.forEach((key, value) -> {
+            keyGroups.add(asList(getSessionKey(key), getTimestampKey(key)));
+            args.add(encodeArg(valueOf(value)));
+        });
+        return doGroupedBatchEval(TOUCH_LUA, keyGroups, args, singletonList(valueOf(getSessionExpireMs()))).stream()
+                .filter(touched -> touched).count();
+    }
+
+    @Override
+    public boolean rwlock(String key, String owner, boolean write, long expireMs) {
+        List<String> args = new ArrayList<>(3);
+        args.add(owner);
+        args.add(write ? "w" : "r");
+        args.add(valueOf(expireMs));
+        return isTrue(eval(RW_LOCK_LUA, singletonList(key), args, false));
+    }
+
+    @Override
+    public boolean rwunlock(String key, String owner) {
+        return isTrue(eval(RW_UNLOCK_LUA, singletonList(key), singletonList(owner), false));
     }
 
+    @Override
+    public List<Boolean> rwexpire(List<String> keys, List<String> owners, long expireMs) {
+        return doBatchEval(RW_RENEW_LUA, keys, owners, singletonList(valueOf(expireMs)));
+    }
+
+    /**
+     * Gets the raw encoded values of the keys in one round trip (e.g. pipelined),
+     * the default is unsupported and the values are got one by one.
+     * 
+     * @param keys
+     * @return the values in the order of the keys
+     */
+    protected List<byte[]> pipelinedGet(List<String> keys) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Sets the raw encoded values with the expiration in one round trip (e.g.
+     * pipelined), the default is unsupported and the values are set one by
+     * one.
+     * 
+     * @param keyValues
+     * @param expireMs
+     * @return the number of set values
+     */
+    protected long pipelinedSet(Map<String, byte[]> keyValues, long expireMs) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Incrementally scan the keys matching the pattern, the default is to
+     * scan by the script, which is only valid on the standalone redis, the
+     * cluster clients must scan all master nodes.
+     * 
+     * @param pattern
+     * @param count
+     *            the hint count of each iteration
+     * @return
+     */
+    protected List<String> scan(String pattern, int count) {
+        List<String> keys = new ArrayList<>();
+        String cursor = "0";
+        do {
+            List<?> ret = (List<?>) eval(SCAN_LUA, emptyList(), asList(cursor, pattern, valueOf(count)), true);
+            cursor = toString(ret.get(0));
+            for (Object key : (List<?>) ret.get(1)) {
+                keys.add(toString(key));
+            }
+        } while (!"0".equals(cursor));
+        return keys;
+    }
+
+    /**
+     * Gets all the raw JSON values of the legacy layout hash.
+     * 
+     * @return
+     */
+    protected Map<String, String> legacyHgetAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Migrate the sessions of the legacy layout (all in one hash without
+     * expiration) to the per-session keys, only once on the first access.
+     */
+    private void migrateLegacyIfNecessary() {
+        if (legacyMigrated.get()) {
+            return;
+        }
+        synchronized (legacyMigrated) {
+            if (legacyMigrated.get()) {
+                return;
+            }
+            try {
+                Map<String, String> legacy = legacyHgetAll();
+                if (nonNull(legacy) && !legacy.isEmpty()) {
+                    long expireMs = getSessionExpireMs();
+                    legacy.forEach((sessionId, json) -> {
+                        ShellSession value = null;
+                        try {
+                            value = parseJSON(json, ShellSession.class);
+                        } catch (Exception e) {
+                            log.warn("Skip migrating the invalid legacy session '{}'. {}", sessionId, e.getMessage());
+                            return;
+                        }
+                        setnx(getSessionKey(sessionId), value, expireMs);
+                    });
+                    del(getOpsKey());
+                    log.info("Migrated {} sessions of the legacy layout '{}' to the per-session keys.", legacy.size(),
+                            getOpsKey());
+                }
+            } catch (UnsupportedOperationException e) {
+                // Ignore, legacy layout is not supported.
+            } catch (Exception e) {
+                log.warn("Failed to migrate the sessions of the legacy layout, retry later. {}", e.getMessage());
+                return;
+            }
+            legacyMigrated.set(true);
+        }
+    }
+
+    /**
+     * Encode the lock owner as the argument of the LUA scripts, which is
+     * compared with the stored value. The encoded strings are valid UTF-8 in
+     * both JSON and binary formats, so they are byte-identical to the values
+     * stored by the binary-safe APIs.
+     * 
+     * @param owner
+     * @return
+     */
+    protected String encodeArg(String owner) {
+        return new String(serializer.encode(owner), UTF_8);
+    }
+
+    /**
+     * Evaluate the LUA script.
+     * 
+     * @param script
+     * @param keys
+     * @param args
+     * @param multi
+     *            whether the script returns the array.
+     * @return
+     */
+    protected Object eval(String script, List<String> keys, List<String> args, boolean multi) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Evaluate the batch script, which returns the array of the results of
+     * each key (1 or 0), and falls back to evaluate one by one when the multi
+     * keys script is not supported.
+     * 
+     * @param script
+     * @param keys
+     * @param args
+     *            the argument of each key
+     * @param tailArgs
+     *            the common arguments
+     * @return
+     */
+    protected List<Boolean> doBatchEval(String script, List<String> keys, List<String> args, List<String> tailArgs) {
+        return doGroupedBatchEval(script, keys.stream().map(key -> singletonList(key)).collect(toList()), args, tailArgs);
+    }
+
+    /**
+     * Evaluate the batch script like {@link #doBatchEval}, but each item has
+     * the group of keys (e.g. in the same slot by the hash tag), the KEYS of
+     * the script are the flattened groups.
+     * 
+     * @param script
+     * @param keyGroups
+     * @param args
+     *            the argument of each group
+     * @param tailArgs
+     *            the common arguments
+     * @return
+     */
+    protected List<Boolean> doGroupedBatchEval(String script, List<List<String>> keyGroups, List<String> args,
+            List<String> tailArgs) {
+        if (keyGroups.isEmpty()) {
+            return emptyList();
+        }
+        if (multiKeysScript || keyGroups.size() == 1) {
+            List<String> keys = keyGroups.stream().flatMap(group -> group.stream()).collect(toList());
+            List<String> allArgs = new ArrayList<>(args);
+            allArgs.addAll(tailArgs);
+            try {
+                return toResults(eval(script, keys, allArgs, true), keyGroups.size());
+            } catch (Exception e) {
+                if (keyGroups.size() == 1) {
+                    throw e;
+                }
+                log.info("Unsupported multi keys script, fallback to evaluate one by one. {}", e.getMessage());
+                multiKeysScript = false;
+            }
+        }
+        List<Boolean> results = new ArrayList<>(keyGroups.size());
+        for (int i = 0; i < keyGroups.size(); i++) {
+            List<String> allArgs = new ArrayList<>(tailArgs.size() + 1);
+            allArgs.add(args.get(i));
+            allArgs.addAll(tailArgs);
+            results.addAll(toResults(eval(script, keyGroups.get(i), allArgs, true), 1));
+        }
+        return results;
+    }
+
+    /**
+     * Gets the sessions and merges the latest timestamps of their separate
+     * timestamp keys, all in one round trip if pipelined.
+     */
+    private <V> List<V> getSessions(List<String> sessionIds, Class<V> valueClass) {
+        int n = sessionIds.size();
+        List<String> keys = new ArrayList<>(n * 2);
+        sessionIds.forEach(sessionId -> keys.add(getSessionKey(sessionId)));
+        sessionIds.forEach(sessionId -> keys.add(getTimestampKey(sessionId)));
+
+        List<V> values = new ArrayList<>(n);
+        List<String> timestamps = new ArrayList<>(n);
+        List<byte[]> raws = null;
+        if (n > 0 && pipelined) {
+            try {
+                raws = pipelinedGet(keys);
+            } catch (UnsupportedOperationException e) {
+                pipelined = false;
+            }
+        }
+        if (nonNull(raws)) {
+            for (int i = 0; i < n; i++) {
+                values.add(serializer.decode(raws.get(i), valueClass));
+                timestamps.add(serializer.decode(raws.get(n + i), String.class));
+            }
+        } else {
+            values.addAll(ShellCache.super.mget(keys.subList(0, n), valueClass));
+            timestamps.addAll(ShellCache.super.mget(keys.subList(n, n * 2), String.class));
+        }
+        for (int i = 0; i < n; i++) {
+            if ((values.get(i) instanceof ShellSession) && nonNull(timestamps.get(i))) {
+                ShellSession session = (ShellSession) values.get(i);
+                try {
+                    session.setLatestTimestamp(Math.max(session.getLatestTimestamp(), Long.parseLong(timestamps.get(i))));
+                } catch (NumberFormatException e) {
+                    log.warn("Skip the invalid latest timestamp '{}' of session '{}'", timestamps.get(i), sessionIds.get(i));
+                }
+            }
+        }
+        return values;
+    }
+
+    private List<Boolean> toResults(Object result, int size) {
+        List<Boolean> results = new ArrayList<>(size);
+        List<?> values = (result instanceof List) ? (List<?>) result : emptyList();
+        for (int i = 0; i < size; i++) {
+            results.add(i < values.size() && isTrue(values.get(i)));
+        }
+        return results;
+    }
+
+    private boolean isTrue(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue() >= 1L;
+        } else if (result instanceof byte[]) {
+            return "1".equals(new String((byte[]) result));
+        }
+        return "1".equals(valueOf(result));
+    }
+
+    private String toString(Object value) {
+        return (value instanceof byte[]) ? new String((byte[]) value, UTF_8) : valueOf(value);
+    }
+
+    /**
+     * Gets the key of the legacy layout hash of all sessions.
+     * 
+     * @return
+     */
     protected String getOpsKey() {
         return SESSION_KEY_PREFIX;
     }
 
+    /**
+     * Gets the key of the session, hash-tagged by the session ID, so that the
+     * sessions are distributed to all slots of the cluster, and the keys
+     * related to the same session are always in the same slot.
+     * 
+     * @param sessionId
+     * @return
+     */
+    protected String getSessionKey(String sessionId) {
+        return SESSION_KEY_NAMESPACE.concat("{").concat(sessionId).concat("}");
+    }
+
+    /**
+     * Gets the key of the latest timestamp of the session, touched without
+     * rewriting the session value, in the same slot as the session key.
+     * 
+     * @param sessionId
+     * @return
+     */
+    protected String getTimestampKey(String sessionId) {
+        return SESSION_TIMESTAMP_NAMESPACE.concat("{").concat(sessionId).concat("}");
+    }
+
+    protected long getSessionExpireMs() {
+        return config.getAcl().getTimeoutMs();
+    }
+
     public static final String SESSION_KEY_PREFIX = "shell:cache:";
+    public static final String SESSION_KEY_NAMESPACE = "shell:session:";
+    public static final String SESSION_TIMESTAMP_NAMESPACE = "shell:session-ts:";
+    public static final int SCAN_COUNT = 256;
+    private static final String TOUCH_PROPERTY = "latestTimestamp";
 
 }
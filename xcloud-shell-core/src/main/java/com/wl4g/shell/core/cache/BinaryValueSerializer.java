@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.wl4g.shell.core.session.ShellSession;
+
+/**
+ * Compact binary value serializer, the {@link ShellSession} and the lock
+ * owner IDs (strings) are encoded to the schema-versioned binary, and the
+ * others fall back to the JSON.
+ * 
+ * <pre>
+ * | MAGIC(0x00) | VERSION | TYPE | PAYLOAD... |
+ * </pre>
+ * 
+ * The bytes are stored by the binary-safe APIs of the redis clients as is.
+ * The JSON never starts with 0x00, so that the JSON values written by the
+ * older versions are still readable.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * 
+ */
+public class BinaryValueSerializer extends JsonValueSerializer {
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value instanceof String) {
+            byte[] payload = ((String) value).getBytes(UTF_8);
+            byte[] data = new byte[payload.length + 3];
+            data[0] = MAGIC;
+            data[1] = VERSION;
+            data[2] = TYPE_STRING;
+            System.arraycopy(payload, 0, data, 3, payload.length);
+            return data;
+        } else if (value instanceof ShellSession) {
+            return encodeSession((ShellSession) value);
+        }
+        return super.encode(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> V decode(byte[] bytes, Class<V> valueClass) {
+        if (isNull(bytes) || bytes.length == 0 || bytes[0] != MAGIC) {
+            return super.decode(bytes, valueClass); // JSON
+        }
+        if (bytes.length < 3 || bytes[1] > VERSION) {
+            throw new IllegalStateException(format("Unsupported binary value of version: %s", bytes.length < 2 ? -1 : bytes[1]));
+        }
+        Object value = null;
+        switch (bytes[2]) {
+        case TYPE_STRING:
+            value = new String(bytes, 3, bytes.length - 3, UTF_8);
+            break;
+        case TYPE_SESSION:
+            value = decodeSession(bytes);
+            break;
+        default:
+            throw new IllegalStateException(format("Unknown binary value type: %s", bytes[2]));
+        }
+        if (!valueClass.isInstance(value)) {
+            throw new IllegalStateException(format("Cannot decode binary value of %s to %s", value.getClass(), valueClass));
+        }
+        return (V) value;
+    }
+
+    @Override
+    public boolean isJson() {
+        return false;
+    }
+
+    private byte[] encodeSession(ShellSession session) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(TYPE_SESSION);
+            writeNullableUTF(out, session.getSessionId());
+            writeNullableUTF(out, session.getUsername());
+            out.writeBoolean(session.isAuthenticated());
+            writeNullableUTF(out, session.getHost());
+            out.writeLong(session.getStartTimestamp());
+            out.writeLong(session.getLatestTimestamp());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    private ShellSession decodeSession(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3))) {
+            // The fields of the newer versions are appended, see: VERSION
+            ShellSession session = new ShellSession();
+            session.setSessionId(readNullableUTF(in));
+            session.setUsername(readNullableUTF(in));
+            session.setAuthenticated(in.readBoolean());
+            session.setHost(readNullableUTF(in));
+            session.setStartTimestamp(in.readLong());
+            session.setLatestTimestamp(in.readLong());
+            return session;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(nonNull(value));
+        if (nonNull(value)) {
+            out.writeUTF(value);
+        }
+    }
+
+    private String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final byte MAGIC = 0x00;
+    private static final byte VERSION = 1;
+    private static final byte TYPE_STRING = 'S';
+    private static final byte TYPE_SESSION = 'E';
+
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.lang.ClassUtils2.resolveClassNameNullable;
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import com.wl4g.shell.core.config.ServerShellProperties;
+
+/**
+ * File-backed persistent {@link ShellCache} of the single node deployments,
+ * e.g. the sessions and the lock states survive the restarts.
+ * 
+ * <p>
+ * The reads are served by the in-memory cache, and the changes are appended
+ * to the memory-mapped log, which is replayed on startup. The log is
+ * compacted to the live (non-expired) records when the mapped region is
+ * full, and on startup.
+ * </p>
+ * 
+ * <pre>
+ * | LENGTH(int) | CRC32(int) | OP(byte) | PAYLOAD... |
+ * </pre>
+ * 
+ * The length is written after the payload, so that the torn record at the
+ * tail is ignored on replaying. The sessions (hash records) expire with the
+ * ACL session timeout, which is refreshed on updating and touching.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-21 v1.0.0
+ * 
+ */
+public class FileShellCache extends MemoryShellCache implements Closeable {
+
+    /** The append log file. */
+    private final File file;
+
+    /** Live records of the log, e.g. 'h:field' -> record. */
+    private final Map<String, Record> index = new LinkedHashMap<>();
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+
+    /** The write position of the log. */
+    private long position;
+
+    public FileShellCache(ServerShellProperties config, File file) {
+        super(config);
+        this.file = notNullOf(file, "file");
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (nonNull(parent) && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException(format("Cannot create directory: %s", parent));
+            }
+            open(file, max(INITIAL_CAPACITY, file.length()));
+            replay();
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Failed to open shell cache file: %s", file), e);
+        }
+        log.info("Opened shell cache file: {}, records: {}", file, index.size());
+    }
+
+    @Override
+    public synchronized <V> boolean hset(String key, V value) {
+        boolean ret = super.hset(key, value);
+        putHash(key, value);
+        return ret;
+    }
+
+    @Override
+    public synchronized <V> boolean hsetnx(String key, V value) {
+        boolean ret = super.hsetnx(key, value);
+        if (ret) {
+            putHash(key, value);
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized <V> boolean hdel(String key) {
+        boolean ret = super.hdel(key);
+        remove(Record.HASH, key);
+        return ret;
+    }
+
+    @Override
+    public synchronized long hpatch(String property, Map<String, ?> keyValues) {
+        long patched = super.hpatch(property, keyValues);
+        keyValues.keySet().forEach(key -> {
+            Object value = super.hget(key, Object.class);
+            if (nonNull(value)) {
+                putHash(key, value);
+            }
+        });
+        return patched;
+    }
+
+    @Override
+    public synchronized <V> long hmset(Map<String, V> keyValues) {
+        long ret = super.hmset(keyValues);
+        keyValues.forEach((key, value) -> putHash(key, value));
+        return ret;
+    }
+
+    @Override
+    public synchronized <V> boolean set(String key, V value, long expireMs) {
+        boolean ret = super.set(key, value, expireMs);
+        putKey(key, value, toExpireAt(expireMs));
+        return ret;
+    }
+
+    @Override
+    public synchronized <V> long mset(Map<String, V> keyValues, long expireMs) {
+        long ret = super.mset(keyValues, expireMs);
+        keyValues.forEach((key, value) -> putKey(key, value, toExpireAt(expireMs)));
+        return ret;
+    }
+
+    @Override
+    public synchronized <V> boolean setnx(String key, V value, long expireMs) {
+        boolean ret = super.setnx(key, value, expireMs);
+        if (ret) {
+            putKey(key, value, toExpireAt(expireMs));
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized <V> boolean del(String key) {
+        boolean ret = super.del(key);
+        remove(Record.KEY, key);
+        return ret;
+    }
+
+    @Override
+    public synchronized Object deleq(String key, String arg) {
+        Object ret = super.deleq(key, arg);
+        if (nonNull(ret)) {
+            remove(Record.KEY, key);
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized Set<String> deleqAll(Map<String, String> keyValues) {
+        Set<String> deleted = super.deleqAll(keyValues);
+        deleted.forEach(key -> remove(Record.KEY, key));
+        return deleted;
+    }
+
+    @Override
+    public synchronized Set<String> expireeq(Map<String, String> keyValues, long expireMs) {
+        Set<String> renewed = super.expireeq(keyValues, expireMs);
+        long expireAt = toExpireAt(expireMs);
+        renewed.forEach(key -> {
+            Record record = index.get(indexKey(Record.KEY, key));
+            if (nonNull(record)) {
+                record.expireAt = expireAt;
+                append(record);
+            }
+        });
+        return renewed;
+    }
+
+    @Override
+    public synchronized boolean rwlock(String key, String owner, boolean write, long expireMs) {
+        boolean acquired = super.rwlock(key, owner, write, expireMs);
+        if (acquired) {
+            long now = currentTimeMillis();
+            Record record = index.get(indexKey(Record.READ_WRITE, key));
+            if (nonNull(record)) {
+                record.owners.values().removeIf(deadline -> deadline < now);
+            }
+            if (isNull(record) || record.owners.isEmpty()) {
+                record = new Record(Record.READ_WRITE, key);
+                record.write = write;
+                index.put(indexKey(Record.READ_WRITE, key), record);
+            }
+            record.owners.put(owner, now + expireMs);
+            append(record);
+        }
+        return acquired;
+    }
+
+    @Override
+    public synchronized boolean rwunlock(String key, String owner) {
+        boolean released = super.rwunlock(key, owner);
+        Record record = index.get(indexKey(Record.READ_WRITE, key));
+        if (nonNull(record) && nonNull(record.owners.remove(owner))) {
+            if (record.owners.isEmpty()) {
+                remove(Record.READ_WRITE, key);
+            } else {
+                append(record);
+            }
+        }
+        return released;
+    }
+
+    @Override
+    public synchronized List<Boolean> rwexpire(List<String> keys, List<String> owners, long expireMs) {
+        List<Boolean> renewed = super.rwexpire(keys, owners, expireMs);
+        long deadline = currentTimeMillis() + expireMs;
+        for (int i = 0; i < keys.size(); i++) {
+            Record record = index.get(indexKey(Record.READ_WRITE, keys.get(i)));
+            if (renewed.get(i) && nonNull(record)) {
+                record.owners.put(owners.get(i), deadline);
+                append(record);
+            }
+        }
+        return renewed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            closeFile();
+        } finally {
+            super.close(); // Stop the expiration timing wheel.
+        }
+    }
+
+    /**
+     * Put the session record with the expiration of the ACL session timeout,
+     * i.e. the same as the in-memory sessions, it's also called on patching
+     * (e.g. touching), so that the expiration is refreshed.
+     */
+    private void putHash(String key, Object value) {
+        Record record = new Record(Record.HASH, key);
+        record.setValue(value);
+        record.expireAt = toExpireAt(getSessionExpireMs());
+        index.put(indexKey(Record.HASH, key), record);
+        append(record);
+    }
+
+    private void putKey(String key, Object value, long expireAt) {
+        Record record = new Record(Record.KEY, key);
+        record.setValue(value);
+        record.expireAt = expireAt;
+        index.put(indexKey(Record.KEY, key), record);
+        append(record);
+    }
+
+    private void remove(byte type, String key) {
+        if (nonNull(index.remove(indexKey(type, key)))) {
+            Record record = new Record(type, key);
+            record.deleted = true;
+            append(record);
+        }
+    }
+
+    private String indexKey(byte type, String key) {
+        return String.valueOf((char) type).concat(key);
+    }
+
+    private long toExpireAt(long expireMs) {
+        return expireMs > 0 ? currentTimeMillis() + expireMs : Long.MAX_VALUE;
+    }
+
+    /**
+     * Append the record to the log, and compact or grow the mapped region
+     * when it's full.
+     * 
+     * @param record
+     */
+    private void append(Record record) {
+        if (isNull(channel)) {
+            log.warn("Shell cache file is closed, skip persisting of: {}", record.key);
+            return;
+        }
+        try {
+            byte[] payload = record.encode();
+            if (position + payload.length + 12 > mapped.capacity()) {
+                compact();
+                while (position + payload.length + 12 > mapped.capacity()) {
+                    open(file, mapped.capacity() * 2L);
+                }
+            }
+            write(mapped, position, payload);
+            position += payload.length + 8;
+        } catch (IOException e) {
+            log.error(format("Failed to persist shell cache record: %s", record.key), e);
+        }
+    }
+
+    /**
+     * Rewrite the live (non-expired) records to the new log file, and
+     * replace the current log file atomically.
+     * 
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+        long now = currentTimeMillis();
+        List<byte[]> payloads = new ArrayList<>(index.size());
+        long size = 0;
+        for (Record record : index.values()) {
+            if (record.isExpired(now)) {
+                continue;
+            }
+            byte[] payload = record.encode();
+            payloads.add(payload);
+            size += payload.length + 8;
+        }
+        index.values().removeIf(record -> record.isExpired(now));
+
+        File compacting = new File(file.getPath().concat(".compacting"));
+        long capacity = INITIAL_CAPACITY;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+        checkCapacity(capacity);
+        try (RandomAccessFile out = new RandomAccessFile(compacting, "rw")) {
+            out.setLength(0);
+            MappedByteBuffer buffer = out.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+            long pos = 0;
+            for (byte[] payload : payloads) {
+                write(buffer, pos, payload);
+                pos += payload.length + 8;
+            }
+            buffer.force();
+        }
+        closeFile();
+        Files.move(compacting.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+        open(file, capacity);
+        this.position = size;
+    }
+
+    /**
+     * Replay the log to rebuild the index and the in-memory cache.
+     */
+    private void replay() throws IOException {
+        long pos = 0;
+        while (pos + 8 <= mapped.capacity()) {
+            int length = mapped.getInt(toIntExact(pos));
+            if (length <= 0 || pos + 8 + length > mapped.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            for (int i = 0; i < length; i++) {
+                payload[i] = mapped.get(toIntExact(pos + 8 + i));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != mapped.getInt(toIntExact(pos + 4))) {
+                log.warn("Corrupted shell cache record at {}, the rest are ignored.", pos);
+                break;
+            }
+            Record record = decode(payload);
+            if (record.deleted) {
+                index.remove(indexKey(record.type, record.key));
+            } else {
+                index.put(indexKey(record.type, record.key), record);
+            }
+            pos += length + 8;
+        }
+        this.position = pos;
+
+        // Restore the live records to the in-memory cache.
+        long now = currentTimeMillis();
+        for (Record record : index.values()) {
+            if (record.isExpired(now)) {
+                continue;
+            }
+            Object value = record.getValue();
+            switch (record.type) {
+            case Record.HASH:
+                if (nonNull(value)) {
+                    super.hset(record.key, value);
+                }
+                break;
+            case Record.KEY:
+                if (nonNull(value)) {
+                    super.set(record.key, value, record.expireAt == Long.MAX_VALUE ? 0 : record.expireAt - now);
+                }
+                break;
+            case Record.READ_WRITE:
+                record.owners.forEach((owner, deadline) -> super.rwlock(record.key, owner, record.write, deadline - now));
+                break;
+            }
+        }
+    }
+
+    private void open(File file, long capacity) throws IOException {
+        checkCapacity(capacity);
+        if (nonNull(channel)) {
+            closeFile();
+        }
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        this.mapped = channel.map(MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void closeFile() throws IOException {
+        if (nonNull(channel)) {
+            mapped.force();
+            channel.close();
+            raf.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * The single mapped region is limited to 2GB, fail fast instead of the
+     * overflowed offsets.
+     */
+    private void checkCapacity(long capacity) throws IOException {
+        if (capacity > MAX_CAPACITY) {
+            throw new IOException(format("Shell cache file %s exceeds the maximum mapped capacity: %s", file, MAX_CAPACITY));
+        }
+    }
+
+    private static void write(MappedByteBuffer buffer, long pos, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int offset = toIntExact(pos);
+        for (int i = 0; i < payload.length; i++) {
+            buffer.put(offset + 8 + i, payload[i]);
+        }
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset, payload.length); // Commit
+    }
+
+    /**
+     * Record of the log.
+     */
+    private final class Record {
+        private static final byte HASH = 'h';
+        private static final byte KEY = 'k';
+        private static final byte READ_WRITE = 'w';
+
+        private final byte type;
+        private final String key;
+        private boolean deleted;
+        private String valueClass;
+        private byte[] data;
+        private long expireAt = Long.MAX_VALUE;
+        private boolean write;
+        private final Map<String, Long> owners = new HashMap<>(4);
+
+        private Record(byte type, String key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        private void setValue(Object value) {
+            this.valueClass = value.getClass().getName();
+            this.data = serializer.encode(value);
+        }
+
+        private Object getValue() {
+            Class<?> clazz = resolveClassNameNullable(valueClass);
+            if (isNull(clazz)) {
+                log.warn("Skip restoring of '{}', no such class: {}", key, valueClass);
+                return null;
+            }
+            return serializer.decode(data, clazz);
+        }
+
+        private boolean isExpired(long now) {
+            if (type == READ_WRITE) {
+                owners.values().removeIf(deadline -> deadline < now);
+                return owners.isEmpty();
+            }
+            return expireAt <= now;
+        }
+
+        private byte[] encode() throws IOException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(64);
+            try (DataOutputStream out = new DataOutputStream(buf)) {
+                out.writeByte(type);
+                out.writeBoolean(deleted);
+                out.writeUTF(key);
+                if (!deleted) {
+                    switch (type) {
+                    case HASH:
+                    case KEY:
+                        out.writeUTF(valueClass);
+                        out.writeInt(data.length);
+                        out.write(data);
+                        out.writeLong(expireAt);
+                        break;
+                    case READ_WRITE:
+                        out.writeBoolean(write);
+                        out.writeInt(owners.size());
+                        for (Map.Entry<String, Long> ent : owners.entrySet()) {
+                            out.writeUTF(ent.getKey());
+                            out.writeLong(ent.getValue());
+                        }
+                        break;
+                    }
+                }
+            }
+            return buf.toByteArray();
+        }
+
+    }
+
+    private Record decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte type = in.readByte();
+            boolean deleted = in.readBoolean();
+            Record record = new Record(type, in.readUTF());
+            record.deleted = deleted;
+            if (!deleted) {
+                switch (type) {
+                case Record.HASH:
+                case Record.KEY:
+                    record.valueClass = in.readUTF();
+                    record.data = new byte[in.readInt()];
+                    in.readFully(record.data);
+                    record.expireAt = in.readLong();
+                    break;
+                case Record.READ_WRITE:
+                    record.write = in.readBoolean();
+                    for (int i = in.readInt(); i > 0; i--) {
+                        record.owners.put(in.readUTF(), in.readLong());
+                    }
+                    break;
+                default:
+                    throw new IOException(format("Unknown shell cache record type: %s", type));
+                }
+            }
+            return record;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+    private static final long MAX_CAPACITY = Integer.MAX_VALUE;
+
+}
@@ -15,24 +15,28 @@
  */
 package com.wl4g.shell.core.cache;
 
-import static com.wl4g.component.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
-import static com.wl4g.component.common.serialize.JacksonUtils.parseJSON;
-import static com.wl4g.component.common.serialize.JacksonUtils.toJSONString;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.nonNull;
-import static java.util.stream.Collectors.toList;
+import static redis.clients.jedis.util.SafeEncoder.encode;
 
 import java.util.List;
+import java.util.Map;
 
 import com.wl4g.component.support.cache.jedis.JedisClient;
 import com.wl4g.shell.core.config.ServerShellProperties;
 
+import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.params.SetParams;
 
 /**
  * {@link JedisClientShellCache}
  * 
+ * <p>
+ * Note: the {@link JedisClient} does not expose the pipelines, so the batch
+ * operations are performed one by one.
+ * </p>
+ * 
  * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2021-06-30 v1.0.0
  * 
@@ -55,49 +59,21 @@ public class JedisClientShellCache extends AbstractRedisShellCache {
         }
     }
 
-    @Override
-    public <V> V hget(String key, Class<V> valueClass) {
-        return parseJSON(jedisClient.hget(getOpsKey(), key), valueClass);
-    }
-
-    @Override
-    public <V> List<V> hgetAll(Class<V> valueClass) {
-        return safeMap(jedisClient.hgetAll(getOpsKey())).values().stream().map(s -> parseJSON(s, valueClass)).collect(toList());
-    }
-
-    @Override
-    public <V> boolean hset(String key, V value) {
-        Long ret = jedisClient.hset(getOpsKey(), key, toJSONString(value));
-        return nonNull(ret) && ret > 0;
-    }
-
-    @Override
-    public <V> boolean hsetnx(String key, V value) {
-        Long ret = jedisClient.hsetnx(getOpsKey(), key, toJSONString(value));
-        return nonNull(ret) && ret > 0;
-    }
-
-    @Override
-    public boolean hdel(String key) {
-        Long ret = jedisClient.hdel(getOpsKey(), key);
-        return nonNull(ret) && ret > 0;
-    }
-
     @Override
     public <V> V get(String key, Class<V> valueClass) {
-        return parseJSON(jedisClient.get(key), valueClass);
+        return serializer.decode(jedisClient.get(encode(key)), valueClass);
     }
 
     @Override
     public <V> boolean set(String key, V value, long expireMs) {
-        String ret = jedisClient.setex(key, expireMs, toJSONString(value));
+        String ret = jedisClient.set(encode(key), serializer.encode(value), SetParams.setParams().px(expireMs));
         return nonNull(ret) && ("OK".equalsIgnoreCase(ret) || Integer.parseInt(ret) > 0);
     }
 
     @Override
     public <V> boolean setnx(String key, V value, long expireMs) {
         SetParams setParams = SetParams.setParams().nx().px(expireMs);
-        String ret = jedisClient.set(key, toJSONString(value), setParams);
+        String ret = jedisClient.set(encode(key), serializer.encode(value), setParams);
         return nonNull(ret) && ("OK".equalsIgnoreCase(ret) || Integer.parseInt(ret) > 0);
     }
 
@@ -109,7 +85,29 @@ public class JedisClientShellCache extends AbstractRedisShellCache {
 
     @Override
     public Object deleq(String key, String arg) {
-        return jedisClient.eval(UNLOCK_LUA, singletonList(key), singletonList(arg));
+        return jedisClient.eval(UNLOCK_LUA, singletonList(key), singletonList(encodeArg(arg)));
+    }
+
+    /**
+     * The cursor of the script scanning is only valid on a single node, so
+     * the keys of all master nodes are scanned in the cluster mode.
+     */
+    @Override
+    protected List<String> scan(String pattern, int count) {
+        if (jedisClient instanceof JedisCluster) {
+            return NativeJedisShellCache.scanMasters((JedisCluster) jedisClient, pattern, count);
+        }
+        return super.scan(pattern, count);
+    }
+
+    @Override
+    protected Map<String, String> legacyHgetAll() {
+        return jedisClient.hgetAll(getOpsKey());
+    }
+
+    @Override
+    protected Object eval(String script, List<String> keys, List<String> args, boolean multi) {
+        return jedisClient.eval(script, keys, args);
     }
 
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static com.wl4g.component.common.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.component.common.serialize.JacksonUtils.toJSONString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+/**
+ * {@link JsonValueSerializer}
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * 
+ */
+public class JsonValueSerializer implements ValueSerializer {
+
+    @Override
+    public byte[] encode(Object value) {
+        return toJSONString(value).getBytes(UTF_8);
+    }
+
+    @Override
+    public <V> V decode(byte[] data, Class<V> valueClass) {
+        return isNull(data) ? null : parseJSON(new String(data, UTF_8), valueClass);
+    }
+
+    @Override
+    public boolean isJson() {
+        return true;
+    }
+
+}
@@ -15,90 +15,384 @@
  */
 package com.wl4g.shell.core.cache;
 
+import static java.lang.System.currentTimeMillis;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
+import static org.springframework.util.ReflectionUtils.findField;
+import static org.springframework.util.ReflectionUtils.makeAccessible;
+import static org.springframework.util.ReflectionUtils.setField;
 
-import java.time.Duration;
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
-import org.apache.commons.lang3.StringUtils;
-
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.wl4g.shell.core.config.ServerShellProperties;
 
 /**
  * {@link MemoryShellCache}
  * 
+ * <p>
+ * Namespaced in-memory store, the hashes (e.g. sessions) and the keys (e.g.
+ * locks) are separated, the keys have their own expiration driven by the
+ * {@link TimingWheel}, and the expired keys are invisible even if they have
+ * not been evicted yet. The hash fields expire after idle of the ACL session
+ * timeout, which is refreshed on writing (e.g. touching the sessions).
+ * </p>
+ * 
  * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2021-06-30 v1.0.0
  * 
  */
 @SuppressWarnings("unchecked")
-public class MemoryShellCache extends AbstractRedisShellCache {
+public class MemoryShellCache extends AbstractRedisShellCache implements Closeable {
+    private static final long WHEEL_TICK_MS = 100L;
+    private static final int WHEEL_SIZE = 512;
+
+    /** Hashes of namespaces, namespace -> (field -> entry). */
+    private final Map<String, Map<String, Entry>> hashes = new ConcurrentHashMap<>();
+
+    /** Expirable keys, key -> entry. */
+    private final Map<String, Entry> keys = new ConcurrentHashMap<>();
+
+    /** Expiration timing wheel of the keys and the hash fields. */
+    private final TimingWheel<Entry> timingWheel;
 
-    private final Cache<Object, Object> localCache;
+    /** Local read/write locks, key -> owners. */
+    private final Map<String, ReadWriteEntry> rwLocks = new ConcurrentHashMap<>();
+
+    /** Local channel subscribers, channel -> listeners. */
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
 
     public MemoryShellCache(ServerShellProperties config) {
         super(config);
-        this.localCache = CacheBuilder.newBuilder().expireAfterAccess(Duration.ofMillis(config.getSharedLockTimeoutMs())).build();
+        this.timingWheel = new TimingWheel<>("shell-cache-expirer", WHEEL_TICK_MS, WHEEL_SIZE, this::expire);
+    }
+
+    /**
+     * All operations are in memory and never blocking, so the asynchronous
+     * operations are completed in the caller thread directly.
+     */
+    @Override
+    public Executor asyncExecutor() {
+        return Runnable::run;
+    }
+
+    @Override
+    public void close() {
+        timingWheel.close();
     }
 
     @Override
     public <V> V hget(String key, Class<V> valueClass) {
-        return (V) localCache.asMap().get(getOpsKey().concat(key));
+        return (V) liveValue(getHash().get(key), currentTimeMillis());
     }
 
     @Override
     public <V> List<V> hgetAll(Class<V> valueClass) {
-        return localCache.asMap().values().stream().map(e -> (V) e).collect(toList());
+        long now = currentTimeMillis();
+        return getHash().values().stream().filter(e -> !e.isExpired(now)).map(e -> (V) e.value).collect(toList());
     }
 
     @Override
     public <V> boolean hset(String key, V value) {
-        localCache.put(getOpsKey().concat(key), value);
+        Entry entry = new Entry(getOpsKey(), key, value, getSessionExpireMs());
+        getHash().put(key, entry);
+        schedule(entry);
         return true;
     }
 
     @Override
     public <V> boolean hsetnx(String key, V value) {
-        return isNull(localCache.asMap().putIfAbsent(key, value));
+        long now = currentTimeMillis();
+        Entry entry = new Entry(getOpsKey(), key, value, getSessionExpireMs());
+        Entry actual = getHash().compute(key, (k, e) -> (isNull(e) || e.isExpired(now)) ? entry : e);
+        if (actual == entry) {
+            schedule(entry);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public <V> boolean hdel(String key) {
-        return nonNull(localCache.asMap().remove(key));
+        Entry entry = getHash().remove(key);
+        return nonNull(entry) && !entry.isExpired(currentTimeMillis());
+    }
+
+    /**
+     * Patch the property field of the hash values by reflection, and refresh
+     * their idle expiration.
+     */
+    @Override
+    public long hpatch(String property, Map<String, ?> keyValues) {
+        Map<String, Entry> hash = getHash();
+        long now = currentTimeMillis();
+        long expireMs = getSessionExpireMs();
+        long patched = 0;
+        for (Map.Entry<String, ?> ent : keyValues.entrySet()) {
+            Entry entry = hash.get(ent.getKey());
+            Object value = liveValue(entry, now);
+            Field field = isNull(value) ? null : findField(value.getClass(), property);
+            if (nonNull(field)) {
+                makeAccessible(field);
+                setField(field, value, ent.getValue());
+                // The scheduled timeout reschedules it when fired.
+                if (expireMs > 0) {
+                    entry.expireAt = now + expireMs;
+                }
+                ++patched;
+            }
+        }
+        return patched;
+    }
+
+    @Override
+    public <V> List<V> hmget(List<String> keys, Class<V> valueClass) {
+        Map<String, Entry> hash = getHash();
+        long now = currentTimeMillis();
+        return keys.stream().map(key -> (V) liveValue(hash.get(key), now)).collect(toList());
+    }
+
+    @Override
+    public <V> long hmset(Map<String, V> keyValues) {
+        keyValues.forEach((key, value) -> hset(key, value));
+        return keyValues.size();
+    }
+
+    @Override
+    public <V> List<V> mget(List<String> keys, Class<V> valueClass) {
+        return keys.stream().map(key -> get(key, valueClass)).collect(toList());
+    }
+
+    @Override
+    public <V> long mset(Map<String, V> keyValues, long expireMs) {
+        keyValues.forEach((key, value) -> set(key, value, expireMs));
+        return keyValues.size();
     }
 
     @Override
     public <V> V get(String key, Class<V> valueClass) {
-        return (V) localCache.asMap().get(key);
+        return (V) liveValue(keys.get(key), currentTimeMillis());
     }
 
     @Override
     public <V> boolean set(String key, V value, long expireMs) {
-        return nonNull(localCache.asMap().put(key, value));
+        Entry entry = new Entry(null, key, value, expireMs);
+        keys.put(key, entry);
+        schedule(entry);
+        return true;
     }
 
     @Override
-    public <V> boolean setnx(String key, V value, @Deprecated long expireMs) {
-        return isNull(localCache.asMap().putIfAbsent(key, value));
+    public <V> boolean setnx(String key, V value, long expireMs) {
+        long now = currentTimeMillis();
+        Entry entry = new Entry(null, key, value, expireMs);
+        Entry actual = keys.compute(key, (k, e) -> (isNull(e) || e.isExpired(now)) ? entry : e);
+        if (actual == entry) {
+            schedule(entry);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public <V> boolean del(String key) {
-        localCache.invalidate(key);
-        return true;
+        Entry entry = keys.remove(key);
+        return nonNull(entry) && !entry.isExpired(currentTimeMillis());
+    }
+
+    /**
+     * Atomic compare and delete.
+     */
+    @Override
+    public Object deleq(String key, String arg) {
+        long now = currentTimeMillis();
+        boolean[] deleted = new boolean[1];
+        keys.computeIfPresent(key, (k, e) -> {
+            if (e.isExpired(now)) {
+                return null;
+            }
+            if (Objects.equals(e.value, arg)) {
+                deleted[0] = true;
+                return null;
+            }
+            return e;
+        });
+        return deleted[0] ? "OK" : null;
+    }
+
+    @Override
+    public Set<String> deleqAll(Map<String, String> keyValues) {
+        Set<String> deleted = new HashSet<>();
+        keyValues.forEach((key, value) -> {
+            if (nonNull(deleq(key, value))) {
+                deleted.add(key);
+            }
+        });
+        return deleted;
+    }
+
+    @Override
+    public Set<String> expireeq(Map<String, String> keyValues, long expireMs) {
+        long now = currentTimeMillis();
+        Set<String> renewed = new HashSet<>();
+        keyValues.forEach((key, value) -> keys.computeIfPresent(key, (k, e) -> {
+            if (e.isExpired(now)) {
+                return null;
+            }
+            // The scheduled timeout reschedules it when fired.
+            if (Objects.equals(e.value, value)) {
+                e.expireAt = now + expireMs;
+                renewed.add(key);
+            }
+            return e;
+        }));
+        return renewed;
+    }
+
+    @Override
+    public boolean rwlock(String key, String owner, boolean write, long expireMs) {
+        long now = currentTimeMillis();
+        boolean[] acquired = new boolean[1];
+        rwLocks.compute(key, (k, e) -> {
+            if (nonNull(e)) {
+                e.owners.values().removeIf(deadline -> deadline < now);
+            }
+            if (isNull(e) || e.owners.isEmpty()) {
+                e = new ReadWriteEntry(write);
+            } else if (e.write || write) {
+                return e;
+            }
+            e.owners.put(owner, now + expireMs);
+            acquired[0] = true;
+            return e;
+        });
+        return acquired[0];
+    }
+
+    @Override
+    public boolean rwunlock(String key, String owner) {
+        boolean[] released = new boolean[1];
+        rwLocks.computeIfPresent(key, (k, e) -> {
+            released[0] = nonNull(e.owners.remove(owner));
+            return e.owners.isEmpty() ? null : e;
+        });
+        return released[0];
     }
 
     @Override
-    public synchronized Object deleq(String key, String arg) {
-        String value = get(key, String.class);
-        if (StringUtils.equals(value, arg)) {
-            return del(key) ? "OK" : null;
+    public List<Boolean> rwexpire(List<String> keys, List<String> owners, long expireMs) {
+        long now = currentTimeMillis();
+        List<Boolean> results = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String owner = owners.get(i);
+            boolean[] renewed = new boolean[1];
+            rwLocks.computeIfPresent(keys.get(i), (k, e) -> {
+                if (e.owners.containsKey(owner)) {
+                    e.owners.put(owner, now + expireMs);
+                    renewed[0] = true;
+                }
+                return e;
+            });
+            results.add(renewed[0]);
+        }
+        return results;
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        List<Consumer<String>> listeners = subscribers.get(channel);
+        if (nonNull(listeners)) {
+            listeners.forEach(l -> l.accept(message));
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private Map<String, Entry> getHash() {
+        return hashes.computeIfAbsent(getOpsKey(), ns -> new ConcurrentHashMap<>());
+    }
+
+    private Object liveValue(Entry entry, long now) {
+        return (isNull(entry) || entry.isExpired(now)) ? null : entry.value;
+    }
+
+    private void schedule(Entry entry) {
+        if (entry.expireAt != Long.MAX_VALUE) {
+            timingWheel.schedule(entry, entry.expireAt);
+        }
+    }
+
+    /**
+     * Evict the entry when the timeout fired, if the entry has been renewed,
+     * reschedule it, if it has been replaced or deleted, ignore it.
+     * 
+     * @param entry
+     */
+    private void expire(Entry entry) {
+        long now = currentTimeMillis();
+        Map<String, Entry> entries = isNull(entry.namespace) ? keys : hashes.get(entry.namespace);
+        if (isNull(entries)) {
+            return;
+        }
+        entries.computeIfPresent(entry.key, (k, e) -> {
+            if (e != entry) {
+                return e;
+            }
+            if (e.isExpired(now)) {
+                return null;
+            }
+            timingWheel.schedule(e, e.expireAt);
+            return e;
+        });
+    }
+
+    /**
+     * Expirable entry of the key or the hash field.
+     */
+    private static final class Entry {
+        /** The namespace of the hash field, null if the key. */
+        private final String namespace;
+        private final String key;
+        private final Object value;
+        private volatile long expireAt;
+
+        private Entry(String namespace, String key, Object value, long expireMs) {
+            this.namespace = namespace;
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireMs > 0 ? currentTimeMillis() + expireMs : Long.MAX_VALUE;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt <= now;
+        }
+    }
+
+    /**
+     * Local read/write lock entry, guarded by the map computing.
+     */
+    private static final class ReadWriteEntry {
+        private final boolean write;
+        private final Map<String, Long> owners = new HashMap<>(4);
+
+        private ReadWriteEntry(boolean write) {
+            this.write = write;
         }
-        return null;
     }
 
 }
@@ -15,25 +15,47 @@
  */
 package com.wl4g.shell.core.cache;
 
-import static com.wl4g.component.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
-import static com.wl4g.component.common.serialize.JacksonUtils.parseJSON;
-import static com.wl4g.component.common.serialize.JacksonUtils.toJSONString;
+import static redis.clients.jedis.ScanParams.SCAN_POINTER_START;
+import static redis.clients.jedis.util.SafeEncoder.encode;
+import static java.lang.Thread.sleep;
+import static java.util.Collections.nCopies;
 import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.wl4g.shell.core.config.ServerShellProperties;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
 
 /**
  * {@link NativeJedisShellCache}
  * 
+ * <p>
+ * Note: the single {@link Jedis} connection is not thread-safe, so the
+ * standalone mode requires the {@link Pool} (e.g. {@link JedisPool}), and
+ * each operation borrows its own connection.
+ * </p>
+ * 
  * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2021-06-30 v1.0.0
  * 
@@ -41,123 +63,313 @@ import redis.clients.jedis.params.SetParams;
 public class NativeJedisShellCache extends AbstractRedisShellCache {
 
     protected final JedisCluster jedisCluster;
-    protected final Jedis jedis;
+    protected final Pool<Jedis> jedisPool;
+
+    /**
+     * Master nodes of the cluster slots (slot -> 'host:port'), lazily loaded
+     * and reset when the slots are migrated.
+     */
+    private volatile String[] slotMasters;
 
     /**
      * @param redisObj
-     *            type of {@link JedisCluster} or {@link Jedis}
+     *            type of {@link JedisCluster} or {@link Pool} of
+     *            {@link Jedis}
      */
+    @SuppressWarnings("unchecked")
     public NativeJedisShellCache(ServerShellProperties config, Object redisObj) {
         super(config);
         notNullOf(redisObj, "redisObj");
         if (redisObj instanceof JedisCluster) {
             this.jedisCluster = (JedisCluster) redisObj;
             notNullOf(jedisCluster, "jedisCluster");
-            this.jedis = null;
-        } else if (redisObj instanceof JedisCluster) {
-            this.jedis = (Jedis) redisObj;
+            this.jedisPool = null;
+        } else if (redisObj instanceof Pool) {
+            this.jedisPool = (Pool<Jedis>) redisObj;
             this.jedisCluster = null;
-            notNullOf(jedis, "jedis");
+            notNullOf(jedisPool, "jedisPool");
+        } else if (redisObj instanceof Jedis) {
+            throw new IllegalStateException("The single jedis connection is not thread-safe, use the JedisPool instead");
         } else {
             throw new IllegalStateException();
         }
     }
 
     @Override
-    public <V> V hget(String key, Class<V> valueClass) {
+    public <V> V get(String key, Class<V> valueClass) {
         if (nonNull(jedisCluster)) {
-            return parseJSON(jedisCluster.hget(getOpsKey(), key), valueClass);
+            return serializer.decode(jedisCluster.get(encode(key)), valueClass);
         }
-        return parseJSON(jedis.hget(getOpsKey(), key), valueClass);
+        return serializer.decode(execute(jedis -> jedis.get(encode(key))), valueClass);
     }
 
     @Override
-    public <V> List<V> hgetAll(Class<V> valueClass) {
+    public <V> boolean set(String key, V value, long expireMs) {
+        String ret = null;
+        SetParams setParams = SetParams.setParams().px(expireMs);
         if (nonNull(jedisCluster)) {
-            return safeMap(jedisCluster.hgetAll(getOpsKey())).values().stream().map(s -> parseJSON(s, valueClass))
-                    .collect(toList());
+            ret = jedisCluster.set(encode(key), serializer.encode(value), setParams);
+        } else {
+            ret = execute(jedis -> jedis.set(encode(key), serializer.encode(value), setParams));
         }
-        return safeMap(jedis.hgetAll(getOpsKey())).values().stream().map(s -> parseJSON(s, valueClass)).collect(toList());
+        return nonNull(ret) && ("OK".equalsIgnoreCase(ret) || Integer.parseInt(ret) > 0);
     }
 
     @Override
-    public <V> boolean hset(String key, V value) {
+    public <V> boolean setnx(String key, V value, long expireMs) {
+        String ret = null;
+        SetParams setParams = SetParams.setParams().nx().px(expireMs);
         if (nonNull(jedisCluster)) {
-            Long ret = jedisCluster.hset(getOpsKey(), key, toJSONString(value));
-            return nonNull(ret) && ret > 0;
+            ret = jedisCluster.set(encode(key), serializer.encode(value), setParams);
+        } else {
+            ret = execute(jedis -> jedis.set(encode(key), serializer.encode(value), setParams));
         }
-        Long ret = jedis.hset(getOpsKey(), key, toJSONString(value));
-        return nonNull(ret) && ret > 0;
+        return nonNull(ret) && ("OK".equalsIgnoreCase(ret) || Integer.parseInt(ret) > 0);
     }
 
     @Override
-    public <V> boolean hsetnx(String key, V value) {
+    public <V> boolean del(String key) {
+        Long ret = null;
         if (nonNull(jedisCluster)) {
-            Long ret = jedisCluster.hsetnx(getOpsKey(), key, toJSONString(value));
-            return nonNull(ret) && ret > 0;
+            ret = jedisCluster.del(key);
+        } else {
+            ret = execute(jedis -> jedis.del(key));
         }
-        Long ret = jedis.hsetnx(getOpsKey(), key, toJSONString(value));
         return nonNull(ret) && ret > 0;
     }
 
     @Override
-    public boolean hdel(String key) {
+    public Object deleq(String key, String arg) {
         if (nonNull(jedisCluster)) {
-            Long ret = jedisCluster.hdel(getOpsKey(), key);
-            return nonNull(ret) && ret > 0;
+            return jedisCluster.eval(UNLOCK_LUA, singletonList(key), singletonList(encodeArg(arg)));
         }
-        Long ret = jedis.hdel(getOpsKey(), key);
-        return nonNull(ret) && ret > 0;
+        return execute(jedis -> jedis.eval(UNLOCK_LUA, singletonList(key), singletonList(encodeArg(arg))));
     }
 
     @Override
-    public <V> V get(String key, Class<V> valueClass) {
+    protected Object eval(String script, List<String> keys, List<String> args, boolean multi) {
         if (nonNull(jedisCluster)) {
-            return parseJSON(jedisCluster.get(key), valueClass);
+            return jedisCluster.eval(script, keys, args);
         }
-        return parseJSON(jedis.get(key), valueClass);
+        return execute(jedis -> jedis.eval(script, keys, args));
     }
 
+    /**
+     * Pipelined on the borrowed connection, the keys of the cluster mode are
+     * grouped by the master nodes of their slots, and pipelined on each
+     * master node.
+     */
     @Override
-    public <V> boolean set(String key, V value, long expireMs) {
-        String ret = null;
+    protected List<byte[]> pipelinedGet(List<String> keys) {
         if (nonNull(jedisCluster)) {
-            ret = jedisCluster.setex(key, expireMs, toJSONString(value));
-        } else {
-            ret = jedis.setex(key, expireMs, toJSONString(value));
+            return pipelinedOnMasters(keys, (pipeline, key) -> pipeline.get(key), key -> jedisCluster.get(key));
         }
-        return nonNull(ret) && ("OK".equalsIgnoreCase(ret) || Integer.parseInt(ret) > 0);
+        return execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<byte[]>> responses = keys.stream().map(key -> pipeline.get(encode(key))).collect(toList());
+            pipeline.sync();
+            return responses.stream().map(Response::get).collect(toList());
+        });
     }
 
     @Override
-    public <V> boolean setnx(String key, V value, long expireMs) {
-        String ret = null;
-        SetParams setParams = SetParams.setParams().nx().px(expireMs);
+    protected long pipelinedSet(Map<String, byte[]> keyValues, long expireMs) {
+        SetParams setParams = SetParams.setParams().px(expireMs);
+        List<String> keys = new ArrayList<>(keyValues.keySet());
         if (nonNull(jedisCluster)) {
-            ret = jedisCluster.set(key, toJSONString(value), setParams);
-        } else {
-            ret = jedis.set(key, toJSONString(value), setParams);
+            return pipelinedOnMasters(keys, (pipeline, key) -> pipeline.set(key, keyValues.get(encode(key)), setParams),
+                    key -> jedisCluster.set(key, keyValues.get(encode(key)), setParams)).stream()
+                            .filter(ret -> "OK".equalsIgnoreCase(ret)).count();
         }
-        return nonNull(ret) && ("OK".equalsIgnoreCase(ret) || Integer.parseInt(ret) > 0);
+        return execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<String>> responses = new ArrayList<>(keyValues.size());
+            keyValues.forEach((key, value) -> responses.add(pipeline.set(encode(key), value, setParams)));
+            pipeline.sync();
+            return responses.stream().filter(r -> "OK".equalsIgnoreCase(r.get())).count();
+        });
+    }
+
+    /**
+     * Pipeline the commands of the keys grouped by the master nodes of their
+     * slots, the keys of the unknown or migrated slots fall back to the
+     * commands one by one (redirected by the cluster client).
+     * 
+     * @param keys
+     * @param command
+     *            the pipelined command of the encoded key
+     * @param fallback
+     *            the command of the encoded key on the cluster client
+     * @return the results in the order of the keys
+     */
+    private <T> List<T> pipelinedOnMasters(List<String> keys, BiFunction<Pipeline, byte[], Response<T>> command,
+            Function<byte[], T> fallback) {
+        List<T> results = new ArrayList<>(nCopies(keys.size(), null));
+        String[] masters = getSlotMasters();
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String master = isNull(masters) ? null : masters[JedisClusterCRC16.getSlot(keys.get(i))];
+            groups.computeIfAbsent(master, m -> new ArrayList<>()).add(i);
+        }
+        groups.forEach((master, indexes) -> {
+            JedisPool pool = isNull(master) ? null : jedisCluster.getClusterNodes().get(master);
+            if (nonNull(pool)) {
+                try (Jedis node = pool.getResource()) {
+                    Pipeline pipeline = node.pipelined();
+                    List<Response<T>> responses = indexes.stream().map(i -> command.apply(pipeline, encode(keys.get(i))))
+                            .collect(toList());
+                    pipeline.sync();
+                    for (int j = 0; j < indexes.size(); j++) {
+                        results.set(indexes.get(j), responses.get(j).get());
+                    }
+                    return;
+                } catch (Exception e) { // e.g. MOVED
+                    log.debug("Failed to pipeline on the master '{}', fallback to one by one. {}", master, e.getMessage());
+                    slotMasters = null;
+                }
+            }
+            indexes.forEach(i -> results.set(i, fallback.apply(encode(keys.get(i)))));
+        });
+        return results;
     }
 
+    /**
+     * Gets the master nodes of the cluster slots by 'CLUSTER SLOTS' of any
+     * available node.
+     * 
+     * @return the masters of all slots, or null if unavailable
+     */
+    private String[] getSlotMasters() {
+        String[] masters = slotMasters;
+        if (nonNull(masters)) {
+            return masters;
+        }
+        for (JedisPool pool : jedisCluster.getClusterNodes().values()) {
+            try (Jedis node = pool.getResource()) {
+                masters = new String[JedisCluster.HASHSLOTS];
+                for (Object slots : node.clusterSlots()) {
+                    List<?> range = (List<?>) slots;
+                    List<?> master = (List<?>) range.get(2);
+                    String hostPort = encode((byte[]) master.get(0)).concat(":").concat(String.valueOf(master.get(1)));
+                    for (int slot = ((Number) range.get(0)).intValue(); slot <= ((Number) range.get(1)).intValue(); slot++) {
+                        masters[slot] = hostPort;
+                    }
+                }
+                return (slotMasters = masters);
+            } catch (Exception e) {
+                log.debug("Failed to get the cluster slots. {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scan the keys of all master nodes in the cluster mode, because the
+     * cursor is only valid on a single node.
+     */
     @Override
-    public <V> boolean del(String key) {
-        Long ret = null;
+    protected List<String> scan(String pattern, int count) {
         if (nonNull(jedisCluster)) {
-            ret = jedisCluster.del(key);
-        } else {
-            ret = jedis.del(key);
+            return scanMasters(jedisCluster, pattern, count);
         }
-        return nonNull(ret) && ret > 0;
+        return execute(jedis -> {
+            List<String> keys = new ArrayList<>();
+            scan(jedis, pattern, count, keys);
+            return keys;
+        });
+    }
+
+    /**
+     * Scan the keys of all master nodes of the cluster.
+     * 
+     * @param cluster
+     * @param pattern
+     * @param count
+     * @return
+     */
+    static List<String> scanMasters(JedisCluster cluster, String pattern, int count) {
+        List<String> keys = new ArrayList<>();
+        for (JedisPool pool : cluster.getClusterNodes().values()) {
+            try (Jedis node = pool.getResource()) {
+                if (node.info("replication").contains("role:master")) {
+                    scan(node, pattern, count, keys);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static void scan(Jedis node, String pattern, int count, List<String> keys) {
+        ScanParams params = new ScanParams().match(pattern).count(count);
+        String cursor = SCAN_POINTER_START;
+        do {
+            ScanResult<String> ret = node.scan(cursor, params);
+            keys.addAll(ret.getResult());
+            cursor = ret.getCursor();
+        } while (!SCAN_POINTER_START.equals(cursor));
     }
 
     @Override
-    public Object deleq(String key, String arg) {
+    protected Map<String, String> legacyHgetAll() {
         if (nonNull(jedisCluster)) {
-            return jedisCluster.eval(UNLOCK_LUA, singletonList(key), singletonList(arg));
+            return jedisCluster.hgetAll(getOpsKey());
+        }
+        return execute(jedis -> jedis.hgetAll(getOpsKey()));
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        if (nonNull(jedisCluster)) {
+            jedisCluster.publish(channel, message);
+        } else {
+            execute(jedis -> jedis.publish(channel, message));
+        }
+    }
+
+    /**
+     * Subscribe the channel on the dedicated daemon thread, and re-subscribe
+     * when the subscription connection is broken. Note: the subscription of
+     * the standalone mode holds a dedicated connection of the pool.
+     */
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        Thread subscriber = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                JedisPubSub pubSub = new JedisPubSub() {
+                    @Override
+                    public void onMessage(String ch, String message) {
+                        listener.accept(message);
+                    }
+                };
+                try {
+                    if (nonNull(jedisCluster)) {
+                        jedisCluster.subscribe(pubSub, channel);
+                    } else {
+                        try (Jedis jedis = jedisPool.getResource()) {
+                            jedis.subscribe(pubSub, channel);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Subscription of channel '{}' is broken, re-subscribing later. {}", channel, e.getMessage());
+                    try {
+                        sleep(1000L);
+                    } catch (InterruptedException e1) {
+                        return;
+                    }
+                }
+            }
+        }, "shell-cache-subscriber-".concat(channel));
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    /**
+     * Execute on the connection borrowed from the pool (standalone mode).
+     */
+    private <T> T execute(Function<Jedis, T> action) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return action.apply(jedis);
         }
-        return jedis.eval(UNLOCK_LUA, singletonList(key), singletonList(arg));
     }
 
 }
@@ -17,17 +17,30 @@ package com.wl4g.shell.core.cache;
 
 import static com.wl4g.component.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
-import static com.wl4g.component.common.serialize.JacksonUtils.parseJSON;
-import static com.wl4g.component.common.serialize.JacksonUtils.toJSONString;
+import static java.lang.String.valueOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import com.wl4g.shell.core.config.ServerShellProperties;
 
@@ -57,62 +70,126 @@ public class RedisTemplateShellCache extends AbstractRedisShellCache {
         }
     }
 
+    /**
+     * The values are accessed by the binary-safe connection APIs, bypassing
+     * the value serializer of the template.
+     */
     @Override
-    public <V> V hget(String key, Class<V> valueClass) {
-        Object ret = redisTemplate.opsForHash().get(getOpsKey(), key);
-        return parseJSON(ret.toString(), valueClass);
+    public <V> V get(String key, Class<V> valueClass) {
+        byte[] data = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey(key)));
+        return serializer.decode(data, valueClass);
     }
 
     @Override
-    public <V> List<V> hgetAll(Class<V> valueClass) {
-        Map<Object, Object> ret = redisTemplate.opsForHash().entries(getOpsKey());
-        return safeMap(ret).values().stream().map(s -> parseJSON((String) s, valueClass)).collect(toList());
+    public <V> boolean set(String key, V value, long expireMs) {
+        byte[] data = serializer.encode(value);
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(rawKey(key), data,
+                Expiration.milliseconds(expireMs), SetOption.upsert()));
+        return true;
+    }
+
+    @Override
+    public <V> boolean setnx(String key, V value, long expireMs) {
+        byte[] data = serializer.encode(value);
+        return Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(rawKey(key),
+                data, Expiration.milliseconds(expireMs), SetOption.ifAbsent())));
     }
 
     @Override
-    public <V> boolean hset(String key, V value) {
-        redisTemplate.opsForHash().put(getOpsKey(), key, value);
+    public <V> boolean del(String key) {
+        redisTemplate.delete(key);
         return true;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public <V> boolean hsetnx(String key, V value) {
-        return redisTemplate.opsForHash().putIfAbsent(getOpsKey(), key, value);
+    public Object deleq(String key, String arg) {
+        return redisTemplate.execute(RedisScript.of(UNLOCK_LUA, Object.class), singletonList(key), encodeArg(arg));
     }
 
     @Override
-    public boolean hdel(String sessionId) {
-        redisTemplate.opsForHash().delete(getOpsKey(), sessionId);
-        return true;
+    protected Object eval(String script, List<String> keys, List<String> args, boolean multi) {
+        RedisScript<?> redisScript = multi ? RedisScript.of(script, List.class) : RedisScript.of(script, Long.class);
+        return redisTemplate.execute(redisScript, keys, args.toArray());
     }
 
     @Override
-    public <V> V get(String key, Class<V> valueClass) {
-        return parseJSON(redisTemplate.opsForValue().get(key), valueClass);
+    protected List<byte[]> pipelinedGet(List<String> keys) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            keys.forEach(key -> connection.get(rawKey(key)));
+            return null;
+        }, RedisSerializer.byteArray());
+        return results.stream().map(value -> (byte[]) value).collect(toList());
     }
 
     @Override
-    public <V> boolean set(String key, V value, long expireMs) {
-        redisTemplate.opsForValue().set(key, toJSONString(value), Duration.ofMillis(expireMs));
-        return true;
+    protected long pipelinedSet(Map<String, byte[]> keyValues, long expireMs) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            Expiration expiration = Expiration.milliseconds(expireMs);
+            keyValues.forEach((key, value) -> connection.set(rawKey(key), value, expiration, SetOption.upsert()));
+            return null;
+        }, RedisSerializer.byteArray());
+        return keyValues.size();
     }
 
+    /**
+     * Scan the keys of all master nodes in the cluster mode, because the
+     * cursor is only valid on a single node.
+     */
     @Override
-    public <V> boolean setnx(String key, V value, long expireMs) {
-        redisTemplate.opsForValue().setIfAbsent(key, toJSONString(value), Duration.ofMillis(expireMs));
-        return true;
+    protected List<String> scan(String pattern, int count) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        return redisTemplate.execute((RedisCallback<List<String>>) connection -> {
+            List<String> keys = new ArrayList<>();
+            if (connection instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        scan(clusterConnection.scan(node, options), keys);
+                    }
+                }
+            } else {
+                scan(connection.scan(options), keys);
+            }
+            return keys;
+        });
+    }
+
+    private void scan(Cursor<byte[]> cursor, List<String> keys) {
+        try (Cursor<byte[]> c = cursor) {
+            c.forEachRemaining(key -> keys.add(new String(key, UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
-    public <V> boolean del(String key) {
-        redisTemplate.delete(key);
-        return true;
+    protected Map<String, String> legacyHgetAll() {
+        Map<String, String> legacy = new HashMap<>();
+        safeMap(redisTemplate.opsForHash().entries(getOpsKey())).forEach((k, v) -> legacy.put(valueOf(k), valueOf(v)));
+        return legacy;
     }
 
     @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
     @Override
-    public Object deleq(String key, String arg) {
-        return redisTemplate.execute(RedisScript.of(UNLOCK_LUA, Object.class), singletonList(key), arg);
+    public void publish(String channel, String message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+        container.addMessageListener((message, pattern) -> {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            listener.accept(valueOf(body));
+        }, new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        container.start();
     }
 
 }
@@ -16,9 +16,18 @@
 package com.wl4g.shell.core.cache;
 
 import static com.wl4g.component.common.lang.ClassUtils2.resolveClassNameNullable;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import com.wl4g.shell.core.config.ServerShellProperties;
 
@@ -51,6 +60,44 @@ public interface ShellCache {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Patch the property of the hash values in batch, without rewriting the
+     * whole values, e.g. touch the latest timestamp of the sessions.
+     * 
+     * @param property
+     *            the property name of the values
+     * @param keyValues
+     *            hash key -> property value
+     * @return the number of patched values
+     */
+    default long hpatch(String property, Map<String, ?> keyValues) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Gets the hash values of the keys in batch (e.g. pipelined), the missing
+     * values are null.
+     * 
+     * @param keys
+     * @param valueClass
+     * @return the values in the order of the keys
+     */
+    default <V> List<V> hmget(List<String> keys, Class<V> valueClass) {
+        List<V> values = new ArrayList<>(keys.size());
+        keys.forEach(key -> values.add(hget(key, valueClass)));
+        return values;
+    }
+
+    /**
+     * Sets the hash values in batch (e.g. pipelined).
+     * 
+     * @param keyValues
+     * @return the number of set values
+     */
+    default <V> long hmset(Map<String, V> keyValues) {
+        return keyValues.entrySet().stream().filter(ent -> hset(ent.getKey(), ent.getValue())).count();
+    }
+
     default <V> V get(String key, Class<V> valueClass) {
         throw new UnsupportedOperationException();
     }
@@ -59,6 +106,31 @@ public interface ShellCache {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Gets the values of the keys in batch (e.g. pipelined), the missing
+     * values are null.
+     * 
+     * @param keys
+     * @param valueClass
+     * @return the values in the order of the keys
+     */
+    default <V> List<V> mget(List<String> keys, Class<V> valueClass) {
+        List<V> values = new ArrayList<>(keys.size());
+        keys.forEach(key -> values.add(get(key, valueClass)));
+        return values;
+    }
+
+    /**
+     * Sets the values with the same expiration in batch (e.g. pipelined).
+     * 
+     * @param keyValues
+     * @param expireMs
+     * @return the number of set values
+     */
+    default <V> long mset(Map<String, V> keyValues, long expireMs) {
+        return keyValues.entrySet().stream().filter(ent -> set(ent.getKey(), ent.getValue(), expireMs)).count();
+    }
+
     /**
      * Trying lock
      * 
@@ -88,28 +160,168 @@ public interface ShellCache {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Unlock in batch, the keys are deleted only if their value still equals
+     * the expected value.
+     * 
+     * @param keyValues
+     *            key -> expected value
+     * @return the deleted keys
+     */
+    default Set<String> deleqAll(Map<String, String> keyValues) {
+        Set<String> deleted = new HashSet<>();
+        keyValues.forEach((key, value) -> {
+            Object ret = deleq(key, value);
+            if ("OK".equals(ret) || Boolean.TRUE.equals(ret) || (ret instanceof Number && ((Number) ret).longValue() > 0)) {
+                deleted.add(key);
+            }
+        });
+        return deleted;
+    }
+
+    /**
+     * Renew the expiration of the keys in batch, only the keys whose value
+     * still equals the expected value are renewed, e.g. extending the leases
+     * of the held locks.
+     * 
+     * @param keyValues
+     *            key -> expected value
+     * @param expireMs
+     * @return the renewed keys
+     */
+    default Set<String> expireeq(Map<String, String> keyValues, long expireMs) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Try to acquire the shared (read) or exclusive (write) lock of the key,
+     * each owner is recorded with its own expiration.
+     * 
+     * @param key
+     * @param owner
+     * @param write
+     * @param expireMs
+     * @return whether acquired
+     */
+    default boolean rwlock(String key, String owner, boolean write, long expireMs) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Release the read/write lock of the key held by the owner.
+     * 
+     * @param key
+     * @param owner
+     * @return whether released
+     */
+    default boolean rwunlock(String key, String owner) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Renew the expiration of the read/write lock owners in batch.
+     * 
+     * @param keys
+     * @param owners
+     *            the owner of each key
+     * @param expireMs
+     * @return whether renewed of each key
+     */
+    default List<Boolean> rwexpire(List<String> keys, List<String> owners, long expireMs) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Publish the message to the channel, e.g. the lock released notification.
+     * 
+     * @param channel
+     * @param message
+     */
+    default void publish(String channel, String message) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Subscribe the messages of the channel, the listener is called back in
+     * the subscriber thread.
+     * 
+     * @param channel
+     * @param listener
+     */
+    default void subscribe(String channel, Consumer<String> listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Gets the executor of the asynchronous operations, the default is to
+     * execute in the caller thread, the blocking implementations (e.g. redis)
+     * should use the dedicated executor.
+     * 
+     * @return
+     */
+    default Executor asyncExecutor() {
+        return Runnable::run;
+    }
+
+    default <V> CompletionStage<V> hgetAsync(String key, Class<V> valueClass) {
+        return supplyAsync(() -> hget(key, valueClass), asyncExecutor());
+    }
+
+    default <V> CompletionStage<Boolean> hsetAsync(String key, V value) {
+        return supplyAsync(() -> hset(key, value), asyncExecutor());
+    }
+
+    default CompletionStage<Boolean> hdelAsync(String key) {
+        return supplyAsync(() -> hdel(key), asyncExecutor());
+    }
+
+    default <V> CompletionStage<V> getAsync(String key, Class<V> valueClass) {
+        return supplyAsync(() -> get(key, valueClass), asyncExecutor());
+    }
+
+    default <V> CompletionStage<Boolean> setAsync(String key, V value, long expireMs) {
+        return supplyAsync(() -> set(key, value, expireMs), asyncExecutor());
+    }
+
+    default <V> CompletionStage<Boolean> setnxAsync(String key, V value, long expireMs) {
+        return supplyAsync(() -> setnx(key, value, expireMs), asyncExecutor());
+    }
+
+    default CompletionStage<Object> deleqAsync(String key, String arg) {
+        return supplyAsync(() -> deleq(key, arg), asyncExecutor());
+    }
+
     public final static class Factory {
 
         public static ShellCache build(ServerShellProperties config, Object cacheClientObj) {
-            ShellCache shellCache = new MemoryShellCache(config);
+            ShellCache shellCache = null;
             if (nonNull(cacheClientObj)) {
                 if (nonNull(JEDIS_CLIENT_CLASS) && JEDIS_CLIENT_CLASS.isInstance(cacheClientObj)) {
                     shellCache = new JedisClientShellCache(config, cacheClientObj);
                 } else if (nonNull(JEDIS_CLUSTER_CLASS) && JEDIS_CLUSTER_CLASS.isInstance(cacheClientObj)) {
                     shellCache = new NativeJedisShellCache(config, cacheClientObj);
+                } else if (nonNull(JEDIS_POOL_CLASS) && JEDIS_POOL_CLASS.isInstance(cacheClientObj)) {
+                    shellCache = new NativeJedisShellCache(config, cacheClientObj);
                 } else if (nonNull(JEDIS_CLASS) && JEDIS_CLASS.isInstance(cacheClientObj)) {
+                    // Rejected, the single connection is not thread-safe.
                     shellCache = new NativeJedisShellCache(config, cacheClientObj);
                 } else if (nonNull(REDIS_TEMPLATE_CLASS) && REDIS_TEMPLATE_CLASS.isInstance(cacheClientObj)) {
                     shellCache = new RedisTemplateShellCache(config, cacheClientObj);
                 }
+                // L1 in-process cache in front of redis.
+                if (nonNull(shellCache) && config.getLocalCacheTtlMs() > 0) {
+                    shellCache = new TwoTierShellCache(shellCache, config.getLocalCacheMaxSize(), config.getLocalCacheTtlMs());
+                }
             }
-            return shellCache;
+            // Only created when actually chosen.
+            return isNull(shellCache) ? new MemoryShellCache(config) : shellCache;
         }
 
         public static final Class<?> JEDIS_CLIENT_CLASS = resolveClassNameNullable(
                 "com.wl4g.component.support.cache.jedis.JedisClient");
         public static final Class<?> JEDIS_CLUSTER_CLASS = resolveClassNameNullable("redis.clients.jedis.JedisCluster");
         public static final Class<?> JEDIS_CLASS = resolveClassNameNullable("redis.clients.jedis.Jedis");
+        public static final Class<?> JEDIS_POOL_CLASS = resolveClassNameNullable("redis.clients.jedis.util.Pool");
         public static final Class<?> REDIS_TEMPLATE_CLASS = resolveClassNameNullable(
                 "org.springframework.data.redis.core.RedisTemplate");
     }
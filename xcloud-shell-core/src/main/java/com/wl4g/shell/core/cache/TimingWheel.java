@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static com.wl4g.component.common.lang.Assert2.isTrueOf;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+import com.wl4g.component.common.log.SmartLogger;
+
+/**
+ * Hashed timing wheel of the entries expiration, the scheduling is O(1), and
+ * the due entries of each tick are handed to the expirer by the ticker
+ * thread. The timeouts are never cancelled, the expirer should check whether
+ * the target is actually expired (e.g. renewed or replaced), and reschedule
+ * it if necessary. The ticker thread is started lazily on the first
+ * scheduling, and stopped on closing.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-10 v1.0.0
+ * @since v1.0
+ */
+class TimingWheel<T> implements Closeable {
+    protected final SmartLogger log = getLogger(getClass());
+
+    private final long tickMs;
+    private final int mask;
+    private final Queue<Timeout<T>>[] buckets;
+    private final Consumer<T> expirer;
+    /** The start time of the ticker, the ticks are counted from it. */
+    private volatile long startTime;
+
+    /** The new timeouts, transferred to the buckets by the ticker thread. */
+    private final Queue<Timeout<T>> pendings = new ConcurrentLinkedQueue<>();
+    private final String name;
+    private volatile ScheduledExecutorService ticker;
+    private volatile boolean closed;
+    private long currentTick = 0L;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(String name, long tickMs, int wheelSize, Consumer<T> expirer) {
+        isTrueOf(tickMs > 0, "tickMs > 0");
+        isTrueOf(wheelSize > 0, "wheelSize > 0");
+        this.tickMs = tickMs;
+        // Normalize to power of 2.
+        int size = Integer.highestOneBit(wheelSize);
+        size = (size < wheelSize) ? (size << 1) : size;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.expirer = notNullOf(expirer, "expirer");
+        this.name = name;
+    }
+
+    /**
+     * Schedule the target expiration.
+     * 
+     * @param target
+     * @param deadline
+     *            the expiration timestamp(ms).
+     */
+    void schedule(T target, long deadline) {
+        if (closed) {
+            return;
+        }
+        pendings.offer(new Timeout<>(target, deadline));
+        if (isNull(ticker)) {
+            startTicker();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (nonNull(ticker)) {
+            ticker.shutdownNow();
+        }
+        pendings.clear();
+    }
+
+    private synchronized void startTicker() {
+        if (nonNull(ticker) || closed) {
+            return;
+        }
+        startTime = currentTimeMillis();
+        ticker = newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMs, tickMs, MILLISECONDS);
+    }
+
+    private void advance() {
+        try {
+            long tick = currentTick;
+            transferPendings(tick);
+            Iterator<Timeout<T>> it = buckets[(int) (tick & mask)].iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.rounds <= 0) {
+                    it.remove();
+                    expirer.accept(timeout.target);
+                } else {
+                    --timeout.rounds;
+                }
+            }
+            currentTick = tick + 1;
+        } catch (Throwable e) {
+            log.warn("Failed to advance the timing wheel. {}", e.getMessage());
+        }
+    }
+
+    private void transferPendings(long tick) {
+        Timeout<T> timeout;
+        while ((timeout = pendings.poll()) != null) {
+            long deadlineTick = (timeout.deadline - startTime + tickMs - 1) / tickMs;
+            long ticks = Math.max(deadlineTick, tick);
+            timeout.rounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks & mask)].offer(timeout);
+        }
+    }
+
+    private static final class Timeout<T> {
+        private final T target;
+        private final long deadline;
+        private long rounds;
+
+        private Timeout(T target, long deadline) {
+            this.target = target;
+            this.deadline = deadline;
+        }
+    }
+
+}
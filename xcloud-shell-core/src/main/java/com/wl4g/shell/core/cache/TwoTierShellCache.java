@@ -0,0 +1,425 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.wl4g.component.common.log.SmartLogger;
+
+/**
+ * Two-tier {@link ShellCache} decorator, the reads (e.g. session lookups and
+ * lock owner checks) are served from the bounded L1 in-process cache with
+ * TTL, and fall back to the L2 delegate (e.g. redis). The writes go through
+ * to the delegate, and the changed keys are invalidated locally and broadcast
+ * to the other nodes by pub/sub, so that they drop the stale entries.
+ *
+ * <p>
+ * Note: the L1 values are shared between the callers, if the delegate does
+ * not support subscribing, the L1 is disabled since the invalidations of the
+ * other nodes cannot be received.
+ * </p>
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-18 v1.0.0
+ *
+ */
+public class TwoTierShellCache implements ShellCache {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** The L2 shell cache. */
+    protected final ShellCache delegate;
+
+    /** The maximum number of the L1 entries. */
+    protected final int maxSize;
+
+    /** The time to live of the L1 entries. */
+    protected final long ttlMs;
+
+    /** Unique ID of this node, to ignore the own invalidations. */
+    protected final String instanceId = UUID.randomUUID().toString();
+
+    /** L1 LRU entries, e.g. 'k:key' or 'h:field' -> entry. */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Generation of the invalidations, prevents to populate the stale value
+     * loaded before the concurrent invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong(0L);
+
+    /** Whether the L1 is enabled, i.e. the invalidations are subscribed. */
+    private volatile boolean enabled;
+
+    public TwoTierShellCache(ShellCache delegate, int maxSize, long ttlMs) {
+        isTrue(maxSize > 0, format("maxSize must greater than 0, actual is %s", maxSize));
+        isTrue(ttlMs > 0, format("ttlMs must greater than 0, actual is %s", ttlMs));
+        this.delegate = notNullOf(delegate, "delegate");
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TwoTierShellCache.this.maxSize;
+            }
+        };
+        try {
+            delegate.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+            this.enabled = true;
+        } catch (UnsupportedOperationException e) {
+            log.warn("Unsupported invalidation subscribing of '{}', the L1 cache is disabled.",
+                    delegate.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public <V> V hget(String key, Class<V> valueClass) {
+        String l1Key = HASH_PREFIX.concat(key);
+        V value = getLocal(l1Key, valueClass);
+        if (isNull(value)) {
+            long gen = generation.get();
+            value = delegate.hget(key, valueClass);
+            putLocal(l1Key, value, gen);
+        }
+        return value;
+    }
+
+    @Override
+    public <V> List<V> hgetAll(Class<V> valueClass) {
+        return delegate.hgetAll(valueClass);
+    }
+
+    @Override
+    public <V> List<V> hmget(List<String> keys, Class<V> valueClass) {
+        return getLocalAll(HASH_PREFIX, keys, valueClass, misses -> delegate.hmget(misses, valueClass));
+    }
+
+    @Override
+    public <V> long hmset(Map<String, V> keyValues) {
+        try {
+            return delegate.hmset(keyValues);
+        } finally {
+            invalidate(toL1Keys(HASH_PREFIX, keyValues.keySet()));
+        }
+    }
+
+    @Override
+    public <V> boolean hset(String key, V value) {
+        try {
+            return delegate.hset(key, value);
+        } finally {
+            invalidate(singletonList(HASH_PREFIX.concat(key)));
+        }
+    }
+
+    @Override
+    public <V> boolean hsetnx(String key, V value) {
+        try {
+            return delegate.hsetnx(key, value);
+        } finally {
+            invalidate(singletonList(HASH_PREFIX.concat(key)));
+        }
+    }
+
+    @Override
+    public <V> boolean hdel(String key) {
+        try {
+            return delegate.hdel(key);
+        } finally {
+            invalidate(singletonList(HASH_PREFIX.concat(key)));
+        }
+    }
+
+    /**
+     * The touch-only patches (i.e. the latest access timestamps flushed
+     * periodically) are not invalidated nor broadcast, the L1 timestamps lag
+     * at most the L1 TTL, which is far below the session idle timeout.
+     */
+    @Override
+    public long hpatch(String property, Map<String, ?> keyValues) {
+        if (TOUCH_PROPERTY.equals(property)) {
+            return delegate.hpatch(property, keyValues);
+        }
+        try {
+            return delegate.hpatch(property, keyValues);
+        } finally {
+            invalidate(toL1Keys(HASH_PREFIX, keyValues.keySet()));
+        }
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> valueClass) {
+        String l1Key = KEY_PREFIX.concat(key);
+        V value = getLocal(l1Key, valueClass);
+        if (isNull(value)) {
+            long gen = generation.get();
+            value = delegate.get(key, valueClass);
+            putLocal(l1Key, value, gen);
+        }
+        return value;
+    }
+
+    @Override
+    public <V> List<V> mget(List<String> keys, Class<V> valueClass) {
+        return getLocalAll(KEY_PREFIX, keys, valueClass, misses -> delegate.mget(misses, valueClass));
+    }
+
+    @Override
+    public <V> long mset(Map<String, V> keyValues, long expireMs) {
+        try {
+            return delegate.mset(keyValues, expireMs);
+        } finally {
+            invalidate(toL1Keys(KEY_PREFIX, keyValues.keySet()));
+        }
+    }
+
+    @Override
+    public <V> boolean set(String key, V value, long expireMs) {
+        try {
+            return delegate.set(key, value, expireMs);
+        } finally {
+            invalidate(singletonList(KEY_PREFIX.concat(key)));
+        }
+    }
+
+    @Override
+    public <V> boolean setnx(String key, V value, long expireMs) {
+        boolean acquired = delegate.setnx(key, value, expireMs);
+        if (acquired) {
+            invalidate(singletonList(KEY_PREFIX.concat(key)));
+        }
+        return acquired;
+    }
+
+    @Override
+    public <V> boolean del(String key) {
+        try {
+            return delegate.del(key);
+        } finally {
+            invalidate(singletonList(KEY_PREFIX.concat(key)));
+        }
+    }
+
+    @Override
+    public Object deleq(String key, String arg) {
+        try {
+            return delegate.deleq(key, arg);
+        } finally {
+            invalidate(singletonList(KEY_PREFIX.concat(key)));
+        }
+    }
+
+    @Override
+    public Set<String> deleqAll(Map<String, String> keyValues) {
+        try {
+            return delegate.deleqAll(keyValues);
+        } finally {
+            invalidate(toL1Keys(KEY_PREFIX, keyValues.keySet()));
+        }
+    }
+
+    @Override
+    public Set<String> expireeq(Map<String, String> keyValues, long expireMs) {
+        return delegate.expireeq(keyValues, expireMs);
+    }
+
+    @Override
+    public boolean rwlock(String key, String owner, boolean write, long expireMs) {
+        return delegate.rwlock(key, owner, write, expireMs);
+    }
+
+    @Override
+    public boolean rwunlock(String key, String owner) {
+        return delegate.rwunlock(key, owner);
+    }
+
+    @Override
+    public List<Boolean> rwexpire(List<String> keys, List<String> owners, long expireMs) {
+        return delegate.rwexpire(keys, owners, expireMs);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        delegate.publish(channel, message);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        delegate.subscribe(channel, listener);
+    }
+
+    @Override
+    public Executor asyncExecutor() {
+        return delegate.asyncExecutor();
+    }
+
+    /**
+     * The L1 hits are completed in the caller thread directly.
+     */
+    @Override
+    public <V> CompletionStage<V> hgetAsync(String key, Class<V> valueClass) {
+        V value = getLocal(HASH_PREFIX.concat(key), valueClass);
+        return nonNull(value) ? completedFuture(value) : supplyAsync(() -> hget(key, valueClass), asyncExecutor());
+    }
+
+    @Override
+    public <V> CompletionStage<V> getAsync(String key, Class<V> valueClass) {
+        V value = getLocal(KEY_PREFIX.concat(key), valueClass);
+        return nonNull(value) ? completedFuture(value) : supplyAsync(() -> get(key, valueClass), asyncExecutor());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V getLocal(String l1Key, Class<V> valueClass) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(l1Key);
+            if (isNull(entry)) {
+                return null;
+            }
+            if (entry.expireAt <= currentTimeMillis() || !valueClass.isInstance(entry.value)) {
+                entries.remove(l1Key);
+                return null;
+            }
+            return (V) entry.value;
+        }
+    }
+
+    /**
+     * Gets the values from the L1 in batch, and load the missing values from
+     * the delegate in one batch.
+     */
+    private <V> List<V> getLocalAll(String prefix, List<String> keys, Class<V> valueClass,
+            Function<List<String>, List<V>> loader) {
+        List<V> values = new ArrayList<>(keys.size());
+        List<Integer> missIndexes = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            V value = getLocal(prefix.concat(keys.get(i)), valueClass);
+            values.add(value);
+            if (isNull(value)) {
+                missIndexes.add(i);
+                misses.add(keys.get(i));
+            }
+        }
+        if (!misses.isEmpty()) {
+            long gen = generation.get();
+            List<V> loaded = loader.apply(misses);
+            for (int i = 0; i < misses.size(); i++) {
+                values.set(missIndexes.get(i), loaded.get(i));
+                putLocal(prefix.concat(misses.get(i)), loaded.get(i), gen);
+            }
+        }
+        return values;
+    }
+
+    private void putLocal(String l1Key, Object value, long gen) {
+        if (!enabled || isNull(value)) {
+            return;
+        }
+        synchronized (entries) {
+            // Invalidated during loading, the value may be stale.
+            if (generation.get() == gen) {
+                entries.put(l1Key, new Entry(value, currentTimeMillis() + ttlMs));
+            }
+        }
+    }
+
+    /**
+     * Invalidate the L1 entries locally and broadcast to the other nodes.
+     *
+     * @param l1Keys
+     */
+    private void invalidate(List<String> l1Keys) {
+        if (!enabled || l1Keys.isEmpty()) {
+            return;
+        }
+        evict(l1Keys);
+        try {
+            delegate.publish(INVALIDATION_CHANNEL, instanceId.concat(INVALIDATION_SEPARATOR).concat(String.join("\n", l1Keys)));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast the invalidation of {}. {}", l1Keys, e.getMessage());
+        }
+    }
+
+    private List<String> toL1Keys(String prefix, Collection<String> keys) {
+        List<String> l1Keys = new ArrayList<>(keys.size());
+        keys.forEach(key -> l1Keys.add(prefix.concat(key)));
+        return l1Keys;
+    }
+
+    private void onInvalidation(String message) {
+        int index = message.indexOf(INVALIDATION_SEPARATOR);
+        if (index < 0 || message.substring(0, index).equals(instanceId)) {
+            return; // Invalid or own invalidation
+        }
+        List<String> l1Keys = new ArrayList<>();
+        for (String l1Key : message.substring(index + 1).split("\n")) {
+            if (!l1Key.isEmpty()) {
+                l1Keys.add(l1Key);
+            }
+        }
+        evict(l1Keys);
+    }
+
+    private void evict(List<String> l1Keys) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            l1Keys.forEach(entries::remove);
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expireAt;
+
+        private Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final String KEY_PREFIX = "k:";
+    private static final String HASH_PREFIX = "h:";
+    private static final String INVALIDATION_SEPARATOR = "@";
+    private static final String TOUCH_PROPERTY = "latestTimestamp";
+    public static final String INVALIDATION_CHANNEL = "shell:cache:invalidation";
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static com.wl4g.component.common.lang.ClassUtils2.resolveClassNameNullable;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Value serializer SPI of the redis shell caches, the values are encoded to
+ * the bytes stored in redis by the binary-safe APIs.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * 
+ */
+public interface ValueSerializer {
+
+    /**
+     * Encode the value.
+     * 
+     * @param value
+     * @return
+     */
+    byte[] encode(Object value);
+
+    /**
+     * Decode the value, the implementation must be backward compatible with
+     * the JSON values, e.g. written by the older versions.
+     * 
+     * @param data
+     * @param valueClass
+     * @return
+     */
+    <V> V decode(byte[] data, Class<V> valueClass);
+
+    /**
+     * Whether the encoded values are the JSON.
+     * 
+     * @return
+     */
+    default boolean isJson() {
+        return false;
+    }
+
+    /**
+     * Build the value serializer by name, 'json', 'binary' or the class name
+     * of the custom implementation.
+     * 
+     * @param name
+     * @return
+     */
+    public static ValueSerializer build(String name) {
+        if (isBlank(name) || JSON.equalsIgnoreCase(name)) {
+            return new JsonValueSerializer();
+        } else if (BINARY.equalsIgnoreCase(name)) {
+            return new BinaryValueSerializer();
+        }
+        Class<?> serializerClass = resolveClassNameNullable(name);
+        if (isNull(serializerClass) || !ValueSerializer.class.isAssignableFrom(serializerClass)) {
+            throw new IllegalArgumentException(format("Invalid value serializer of '%s'", name));
+        }
+        try {
+            return (ValueSerializer) serializerClass.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException(format("Failed to instantiate value serializer of '%s'", name), e);
+        }
+    }
+
+    public static final String JSON = "json";
+    public static final String BINARY = "binary";
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.config;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.security.MessageDigest.isEqual;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.hash.Hashing;
+
+import com.wl4g.shell.common.registry.PermissionBits;
+import com.wl4g.shell.core.config.ServerShellProperties.AclInfo.CredentialsInfo;
+
+/**
+ * Compiled ACL index of the credentials, keyed by the username, and the
+ * permissions are interned into the bit positions, so that the authorization
+ * check is a single bitset intersection.
+ * 
+ * <p>
+ * The bit positions are interned process-wide by {@link PermissionBits} and
+ * never recycled, so the precomputed bitsets of the shell methods are still
+ * valid after the index is recompiled on reloading.
+ * </p>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-22 v1.0.0
+ * 
+ */
+public final class AclIndex {
+
+    /** Versions of the compiled indexes. */
+    private static final AtomicLong VERSIONS = new AtomicLong(0L);
+
+    /** The version of this index, e.g. to invalidate the cached grants. */
+    private final long version;
+
+    /** Grants of the users, username -> grant. */
+    private final Map<String, Grant> grants;
+
+    private AclIndex(long version, Map<String, Grant> grants) {
+        this.version = version;
+        this.grants = unmodifiableMap(grants);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the grant of the user.
+     * 
+     * @param username
+     * @return null if the user does not exist.
+     */
+    public Grant getGrant(String username) {
+        return grants.get(trimToEmpty(username));
+    }
+
+    /**
+     * Matching the credentials of the user, the password is compared in
+     * constant time.
+     * 
+     * @param username
+     * @param password
+     * @return
+     */
+    public boolean matchs(String username, String password) {
+        Grant grant = getGrant(username);
+        return nonNull(grant) && isEqual(grant.password, trimToEmpty(password).getBytes(UTF_8));
+    }
+
+    /**
+     * Compile the credentials to the index.
+     * 
+     * @param info
+     * @return
+     */
+    public static AclIndex compile(List<CredentialsInfo> info) {
+        Map<String, Grant> grants = new HashMap<>();
+        if (nonNull(info)) {
+            for (CredentialsInfo credentials : info) {
+                String username = trimToEmpty(credentials.getUsername());
+                // The first is preferred, same as the previous linear matching.
+                grants.putIfAbsent(username, new Grant(credentials, trimToEmpty(credentials.getPassword()).getBytes(UTF_8),
+                        toPermits(credentials.getPermissions()), digest(credentials.getPermissions())));
+            }
+        }
+        return new AclIndex(VERSIONS.incrementAndGet(), grants);
+    }
+
+    /**
+     * Convert the permissions to the bitset, the same bit positions as the
+     * required permits of the shell methods, see: {@link PermissionBits}
+     * 
+     * @param permissions
+     * @return
+     */
+    public static BitSet toPermits(String[] permissions) {
+        return PermissionBits.toPermits(permissions);
+    }
+
+    /**
+     * Digest of the permissions, independent of the order and the bit
+     * positions, so that it's comparable across the nodes.
+     * 
+     * @param permissions
+     * @return
+     */
+    public static String digest(String[] permissions) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (nonNull(permissions)) {
+            for (String permission : permissions) {
+                sorted.add(trimToEmpty(permission));
+            }
+        }
+        return Hashing.sha256().hashString(String.join(",", sorted), UTF_8).toString();
+    }
+
+    /**
+     * Check whether the granted permissions include any of the required
+     * permissions, the empty required permissions are allowed anonymous
+     * access.
+     * 
+     * @param required
+     * @param granted
+     * @return
+     */
+    public static boolean isPermitted(BitSet required, BitSet granted) {
+        return required.isEmpty() || (!isNull(granted) && required.intersects(granted));
+    }
+
+    /**
+     * Compiled grant of the user.
+     */
+    public static final class Grant {
+        private final CredentialsInfo credentials;
+        private final byte[] password;
+        private final BitSet permits;
+        private final String digest;
+
+        private Grant(CredentialsInfo credentials, byte[] password, BitSet permits, String digest) {
+            this.credentials = credentials;
+            this.password = password;
+            this.permits = permits;
+            this.digest = digest;
+        }
+
+        public CredentialsInfo getCredentials() {
+            return credentials;
+        }
+
+        public BitSet getPermits() {
+            return permits;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+    }
+
+}
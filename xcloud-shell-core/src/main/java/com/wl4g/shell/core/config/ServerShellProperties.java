@@ -15,11 +15,9 @@
  */
 package com.wl4g.shell.core.config;
 
-import static com.google.common.base.Charsets.UTF_8;
 import static com.wl4g.component.common.lang.Assert2.hasText;
 import static com.wl4g.component.common.lang.Assert2.isTrue;
-import static java.security.MessageDigest.isEqual;
-import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+import static java.util.Objects.isNull;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -28,6 +26,7 @@ import java.util.List;
 
 import com.wl4g.shell.common.config.BaseShellProperties;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -61,6 +60,181 @@ public class ServerShellProperties extends BaseShellProperties {
      */
     private long sharedLockTimeoutMs = 60 * 1000L;
 
+    /**
+     * The number of elements per output batch, when the shell method returns
+     * a lazy result, e.g. {@link java.util.stream.Stream},
+     * {@link java.util.Iterator}, {@link java.lang.Iterable}
+     */
+    private int streamBatchSize = 100;
+
+    /**
+     * The number of elements per output page, when the page is full, the
+     * client will be asked whether to pull the next page, if less than or
+     * equal to 0, it means no paging.
+     */
+    private int streamPageSize = 1000;
+
+    /**
+     * Wait for the client to confirm the timeout of the next page, after
+     * timeout, the output will be terminated.
+     */
+    private long streamPageTimeoutMs = 60 * 1000L;
+
+    /**
+     * The minimum re-execution interval of the watching command, the smaller
+     * interval requested by the client will be raised to it.
+     */
+    private long watchMinIntervalMs = 500L;
+
+    /**
+     * The maximum number of output lines per execution of the watching
+     * command, the excess lines are discarded.
+     */
+    private int watchMaxLines = 1000;
+
+    /**
+     * The maximum number of the progress signals per second of each shell
+     * channel, the intermediate progress updates are coalesced and only the
+     * latest is sent. If less than or equal to 0, there is no throttling.
+     */
+    private int progressMaxRate = 10;
+
+    /**
+     * Timeout for waiting the asynchronous result of each execution of the
+     * watching command.
+     */
+    private long watchTimeoutMs = 60 * 1000L;
+
+    /**
+     * Default command execution deadline, if less than or equal to 0, there
+     * is no deadline. see:
+     * {@link com.wl4g.shell.common.annotation.ShellMethod#timeout()}
+     */
+    private long defaultCommandTimeoutMs = 0L;
+
+    /**
+     * Grace period after the deadline, if the command still ignores the
+     * cancellation, the executing thread will be forcibly stopped.
+     * <p>
+     * Note: the hard stop ({@link Thread#stop()}) may land anywhere in the
+     * command, e.g. leave the resources of the command or the cache entries
+     * inconsistent, it's only the last resort. The hard stop is deferred while
+     * the command is operating or holding the shell locks (except its own
+     * execution lock, which is released in the guarded finally) or writing to
+     * the channel, and the stopped worker thread is discarded. It only applies
+     * to the interactive commands, the detached jobs and watching executions
+     * are only cancelled.
+     * </p>
+     */
+    private long hardStopGraceMs = 5 * 1000L;
+
+    /**
+     * The maximum number of the errors kept by the server, the clients only
+     * receive the compact descriptors of the errors and fetch the full
+     * stacktraces on demand, the least recently fetched are evicted.
+     */
+    private int errorTraceMaxSize = 256;
+
+    /**
+     * The maximum length (characters) of each kept error stacktrace, it's
+     * rendered once when the error is kept, and the exceeded part is
+     * abbreviated.
+     */
+    private int errorTraceMaxLength = 64 * 1024;
+
+    /**
+     * The maximum waiting time for the execution lock of the command, the
+     * waiters are queued in FIFO order and the queue position is reported to
+     * the client. If less than or equal to 0, fail immediately when the lock
+     * is held.
+     */
+    private long lockWaitTimeoutMs = 0L;
+
+    /**
+     * The interval of flushing the coalesced session access timestamp
+     * touches (write-behind), the sessions are near-cached in memory.
+     */
+    private long sessionFlushIntervalMs = 1000L;
+
+    /**
+     * The maximum number of the entries of the L1 in-process cache in front
+     * of the redis shell cache.
+     */
+    private int localCacheMaxSize = 1024;
+
+    /**
+     * The time to live of the entries of the L1 in-process cache, the changed
+     * entries are invalidated on all nodes by pub/sub. If less than or equal
+     * to 0, the L1 cache is disabled.
+     */
+    private long localCacheTtlMs = 2000L;
+
+    /**
+     * The number of threads of the asynchronous operations of the redis shell
+     * cache, e.g. the session lookups are not blocking the signal reading.
+     */
+    private int cacheAsyncThreads = 4;
+
+    /**
+     * The value serializer of the redis shell cache, 'json', 'binary' (the
+     * compact binary of the sessions and the lock owners, and still readable
+     * of the JSON values) or the class name of the custom
+     * {@link com.wl4g.shell.core.cache.ValueSerializer}.
+     */
+    private String cacheSerializer = "json";
+
+    /**
+     * The type of the shell cache, 'auto' (redis if the redis client is
+     * available, otherwise memory), 'memory' or 'file' (the persistent local
+     * cache of the single node, the sessions survive the restarts).
+     */
+    private String cacheType = "auto";
+
+    /**
+     * The directory of the persistent local cache files.
+     */
+    private String cacheFileDir = System.getProperty("user.home") + "/.xcloud-shell";
+
+    /**
+     * The maximum number of concurrently running detached background jobs,
+     * the jobs are executed on a dedicated pool so that they cannot starve
+     * interactive commands.
+     */
+    private int jobMaxConcurrency = 4;
+
+    /**
+     * The maximum number of detached background jobs waiting to run, the
+     * excess submissions will be rejected.
+     */
+    private int jobQueueCapacity = 16;
+
+    /**
+     * The number of latest output lines retained in memory of each detached
+     * background job (ring buffer).
+     */
+    private int jobOutputBufferLines = 1000;
+
+    /**
+     * The maximum number of retained detached background jobs, the oldest
+     * finished jobs will be evicted.
+     */
+    private int jobMaxRetained = 64;
+
+    /**
+     * The spill directory of the detached background jobs full output, if
+     * blank, the output is only retained in the ring buffer. The spill files
+     * are named by the process run and the job ID, and deleted when the job is
+     * evicted.
+     */
+    private String jobSpillDir;
+
+    /**
+     * The maximum bytes of each detached background job spill file, the
+     * subsequent output is no longer spilled (still retained in the ring
+     * buffer) after the limit is reached.
+     */
+    private long jobSpillMaxBytes = 64 * 1024 * 1024L;
+
     /**
      * Authetication configuration.
      */
@@ -109,6 +283,226 @@ public class ServerShellProperties extends BaseShellProperties {
         this.sharedLockTimeoutMs = sharedLockTimeoutMs;
     }
 
+    public int getStreamBatchSize() {
+        return streamBatchSize;
+    }
+
+    public void setStreamBatchSize(int streamBatchSize) {
+        isTrue(streamBatchSize > 0, String.format("streamBatchSize must greater than 0, actual is %s", streamBatchSize));
+        this.streamBatchSize = streamBatchSize;
+    }
+
+    public int getStreamPageSize() {
+        return streamPageSize;
+    }
+
+    public void setStreamPageSize(int streamPageSize) {
+        this.streamPageSize = streamPageSize;
+    }
+
+    public long getStreamPageTimeoutMs() {
+        return streamPageTimeoutMs;
+    }
+
+    public void setStreamPageTimeoutMs(long streamPageTimeoutMs) {
+        isTrue(streamPageTimeoutMs > 0, String.format("streamPageTimeoutMs must greater than 0, actual is %s", streamPageTimeoutMs));
+        this.streamPageTimeoutMs = streamPageTimeoutMs;
+    }
+
+    public long getWatchMinIntervalMs() {
+        return watchMinIntervalMs;
+    }
+
+    public void setWatchMinIntervalMs(long watchMinIntervalMs) {
+        isTrue(watchMinIntervalMs > 0, String.format("watchMinIntervalMs must greater than 0, actual is %s", watchMinIntervalMs));
+        this.watchMinIntervalMs = watchMinIntervalMs;
+    }
+
+    public int getWatchMaxLines() {
+        return watchMaxLines;
+    }
+
+    public void setWatchMaxLines(int watchMaxLines) {
+        isTrue(watchMaxLines > 0, String.format("watchMaxLines must greater than 0, actual is %s", watchMaxLines));
+        this.watchMaxLines = watchMaxLines;
+    }
+
+    public int getProgressMaxRate() {
+        return progressMaxRate;
+    }
+
+    public void setProgressMaxRate(int progressMaxRate) {
+        this.progressMaxRate = progressMaxRate;
+    }
+
+    public long getWatchTimeoutMs() {
+        return watchTimeoutMs;
+    }
+
+    public void setWatchTimeoutMs(long watchTimeoutMs) {
+        isTrue(watchTimeoutMs > 0, String.format("watchTimeoutMs must greater than 0, actual is %s", watchTimeoutMs));
+        this.watchTimeoutMs = watchTimeoutMs;
+    }
+
+    public long getDefaultCommandTimeoutMs() {
+        return defaultCommandTimeoutMs;
+    }
+
+    public void setDefaultCommandTimeoutMs(long defaultCommandTimeoutMs) {
+        this.defaultCommandTimeoutMs = defaultCommandTimeoutMs;
+    }
+
+    public long getHardStopGraceMs() {
+        return hardStopGraceMs;
+    }
+
+    public void setHardStopGraceMs(long hardStopGraceMs) {
+        isTrue(hardStopGraceMs > 0, String.format("hardStopGraceMs must greater than 0, actual is %s", hardStopGraceMs));
+        this.hardStopGraceMs = hardStopGraceMs;
+    }
+
+    public int getErrorTraceMaxSize() {
+        return errorTraceMaxSize;
+    }
+
+    public void setErrorTraceMaxSize(int errorTraceMaxSize) {
+        isTrue(errorTraceMaxSize > 0, String.format("errorTraceMaxSize must greater than 0, actual is %s", errorTraceMaxSize));
+        this.errorTraceMaxSize = errorTraceMaxSize;
+    }
+
+    public int getErrorTraceMaxLength() {
+        return errorTraceMaxLength;
+    }
+
+    public void setErrorTraceMaxLength(int errorTraceMaxLength) {
+        // The abbreviation requires at least the ellipsis and a character.
+        isTrue(errorTraceMaxLength > 3,
+                String.format("errorTraceMaxLength must greater than 3, actual is %s", errorTraceMaxLength));
+        this.errorTraceMaxLength = errorTraceMaxLength;
+    }
+
+    public long getLockWaitTimeoutMs() {
+        return lockWaitTimeoutMs;
+    }
+
+    public void setLockWaitTimeoutMs(long lockWaitTimeoutMs) {
+        this.lockWaitTimeoutMs = lockWaitTimeoutMs;
+    }
+
+    public long getSessionFlushIntervalMs() {
+        return sessionFlushIntervalMs;
+    }
+
+    public void setSessionFlushIntervalMs(long sessionFlushIntervalMs) {
+        isTrue(sessionFlushIntervalMs > 0,
+                String.format("sessionFlushIntervalMs must greater than 0, actual is %s", sessionFlushIntervalMs));
+        this.sessionFlushIntervalMs = sessionFlushIntervalMs;
+    }
+
+    public int getLocalCacheMaxSize() {
+        return localCacheMaxSize;
+    }
+
+    public void setLocalCacheMaxSize(int localCacheMaxSize) {
+        isTrue(localCacheMaxSize > 0, String.format("localCacheMaxSize must greater than 0, actual is %s", localCacheMaxSize));
+        this.localCacheMaxSize = localCacheMaxSize;
+    }
+
+    public long getLocalCacheTtlMs() {
+        return localCacheTtlMs;
+    }
+
+    public void setLocalCacheTtlMs(long localCacheTtlMs) {
+        this.localCacheTtlMs = localCacheTtlMs;
+    }
+
+    public int getCacheAsyncThreads() {
+        return cacheAsyncThreads;
+    }
+
+    public void setCacheAsyncThreads(int cacheAsyncThreads) {
+        isTrue(cacheAsyncThreads > 0, String.format("cacheAsyncThreads must greater than 0, actual is %s", cacheAsyncThreads));
+        this.cacheAsyncThreads = cacheAsyncThreads;
+    }
+
+    public String getCacheSerializer() {
+        return cacheSerializer;
+    }
+
+    public void setCacheSerializer(String cacheSerializer) {
+        this.cacheSerializer = cacheSerializer;
+    }
+
+    public String getCacheType() {
+        return cacheType;
+    }
+
+    public void setCacheType(String cacheType) {
+        this.cacheType = cacheType;
+    }
+
+    public String getCacheFileDir() {
+        return cacheFileDir;
+    }
+
+    public void setCacheFileDir(String cacheFileDir) {
+        this.cacheFileDir = cacheFileDir;
+    }
+
+    public int getJobMaxConcurrency() {
+        return jobMaxConcurrency;
+    }
+
+    public void setJobMaxConcurrency(int jobMaxConcurrency) {
+        isTrue(jobMaxConcurrency > 0, String.format("jobMaxConcurrency must greater than 0, actual is %s", jobMaxConcurrency));
+        this.jobMaxConcurrency = jobMaxConcurrency;
+    }
+
+    public int getJobQueueCapacity() {
+        return jobQueueCapacity;
+    }
+
+    public void setJobQueueCapacity(int jobQueueCapacity) {
+        isTrue(jobQueueCapacity > 0, String.format("jobQueueCapacity must greater than 0, actual is %s", jobQueueCapacity));
+        this.jobQueueCapacity = jobQueueCapacity;
+    }
+
+    public int getJobOutputBufferLines() {
+        return jobOutputBufferLines;
+    }
+
+    public void setJobOutputBufferLines(int jobOutputBufferLines) {
+        isTrue(jobOutputBufferLines > 0,
+                String.format("jobOutputBufferLines must greater than 0, actual is %s", jobOutputBufferLines));
+        this.jobOutputBufferLines = jobOutputBufferLines;
+    }
+
+    public int getJobMaxRetained() {
+        return jobMaxRetained;
+    }
+
+    public void setJobMaxRetained(int jobMaxRetained) {
+        isTrue(jobMaxRetained > 0, String.format("jobMaxRetained must greater than 0, actual is %s", jobMaxRetained));
+        this.jobMaxRetained = jobMaxRetained;
+    }
+
+    public String getJobSpillDir() {
+        return jobSpillDir;
+    }
+
+    public void setJobSpillDir(String jobSpillDir) {
+        this.jobSpillDir = jobSpillDir;
+    }
+
+    public long getJobSpillMaxBytes() {
+        return jobSpillMaxBytes;
+    }
+
+    public void setJobSpillMaxBytes(long jobSpillMaxBytes) {
+        isTrue(jobSpillMaxBytes > 0, String.format("jobSpillMaxBytes must greater than 0, actual is %s", jobSpillMaxBytes));
+        this.jobSpillMaxBytes = jobSpillMaxBytes;
+    }
+
     public AclInfo getAcl() {
         return acl;
     }
@@ -124,20 +518,53 @@ public class ServerShellProperties extends BaseShellProperties {
         private long timeoutMs = 5 * 60 * 1000L;
         private List<CredentialsInfo> info = new ArrayList<>();
 
+        /**
+         * Stateless session mode, the login issues a signed token which is
+         * validated locally by any node holding the same secret, instead of
+         * looking up the session store on every signal.
+         */
+        private boolean tokenEnabled = false;
+
+        /** Shared HMAC secret of the session tokens. */
+        private String tokenSecret;
+
+        /** Expiration of the session tokens. */
+        private long tokenExpireMs = 12 * 60 * 60 * 1000L;
+
+        /**
+         * Interval of re-checking the session tokens revocation, the
+         * revocations are visible to the other nodes within it.
+         */
+        private long tokenRevocationCheckMs = 1000L;
+
+        /**
+         * Compiled index of the credentials, lazily compiled and swapped
+         * atomically when the credentials are reloaded.
+         */
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private transient volatile AclIndex index;
+
+        public void setInfo(List<CredentialsInfo> info) {
+            this.info = info;
+            this.index = null; // Recompile
+        }
+
+        public AclIndex getIndex() {
+            AclIndex index = this.index;
+            if (isNull(index)) {
+                this.index = index = AclIndex.compile(info);
+            }
+            return index;
+        }
+
         public final CredentialsInfo getCredentialsInfo(final String username) {
-            return info.stream()
-                    .filter(ai -> isEqual(trimToEmpty(ai.getUsername()).getBytes(UTF_8), trimToEmpty(username).getBytes(UTF_8)))
-                    .findFirst().orElse(null);
+            AclIndex.Grant grant = getIndex().getGrant(username);
+            return isNull(grant) ? null : grant.getCredentials();
         }
 
         public final boolean matchs(final String username, final String password) {
-            for (CredentialsInfo ai : info) {
-                if (isEqual(trimToEmpty(ai.getUsername()).getBytes(UTF_8), trimToEmpty(username).getBytes(UTF_8))
-                        && isEqual(trimToEmpty(ai.getPassword()).getBytes(UTF_8), trimToEmpty(password).getBytes(UTF_8))) {
-                    return true;
-                }
-            }
-            return false;
+            return getIndex().matchs(username, password);
         }
 
         @Getter
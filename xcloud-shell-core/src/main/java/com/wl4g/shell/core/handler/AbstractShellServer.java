@@ -20,6 +20,7 @@ import static com.wl4g.component.common.lang.Assert2.notNullOf;
 import static com.wl4g.component.common.lang.Assert2.state;
 import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
 import static java.lang.String.format;
+import static java.util.Objects.nonNull;
 
 import java.io.Closeable;
 import java.util.List;
@@ -34,6 +35,7 @@ import com.wl4g.shell.core.handler.EmbeddedShellServer.ServerSignalHandler;
 import com.wl4g.shell.core.locks.ShellLockManager;
 import com.wl4g.shell.core.session.CachingShellSessionDAO;
 import com.wl4g.shell.core.session.ShellSessionDAO;
+import com.wl4g.shell.core.session.ShellTokenManager;
 
 /**
  * Server abstract shell component handler
@@ -50,6 +52,11 @@ public abstract class AbstractShellServer extends GenericShellHandler implements
      */
     private final ThreadLocal<ServerSignalHandler> clientStore = new InheritableThreadLocal<>();
 
+    /**
+     * Executing detached background job of the current thread.
+     */
+    private final ThreadLocal<ShellJob> jobStore = new ThreadLocal<>();
+
     /**
      * Spring application name.
      */
@@ -65,6 +72,11 @@ public abstract class AbstractShellServer extends GenericShellHandler implements
      */
     protected final ShellSessionDAO sessionDAO;
 
+    /**
+     * Stateless session tokens manager.
+     */
+    protected final ShellTokenManager tokenManager;
+
     /**
      * Shell locks manager.
      */
@@ -75,7 +87,9 @@ public abstract class AbstractShellServer extends GenericShellHandler implements
         super(config, registrar);
         this.appName = hasTextOf(appName, "appName");
         this.shellCache = notNullOf(shellCache, "shellCache");
-        this.sessionDAO = new CachingShellSessionDAO(shellCache);
+        this.sessionDAO = new CachingShellSessionDAO(shellCache, config.getSessionFlushIntervalMs(),
+                config.getAcl().getTimeoutMs());
+        this.tokenManager = new ShellTokenManager(shellCache, config.getAcl());
         this.lockManager = new ShellLockManager(shellCache);
     }
 
@@ -92,6 +106,16 @@ public abstract class AbstractShellServer extends GenericShellHandler implements
         return appName;
     }
 
+    /**
+     * Revoke the stateless session token, e.g. the credentials are leaked.
+     * 
+     * @param token
+     * @return
+     */
+    public boolean revokeSessionToken(String token) {
+        return tokenManager.revoke(token);
+    }
+
     /**
      * Register current client handler.
      * 
@@ -120,12 +144,35 @@ public abstract class AbstractShellServer extends GenericShellHandler implements
      */
     protected void cleanup() {
         clientStore.remove();
+        jobStore.remove();
+    }
+
+    /**
+     * Gets the shell context of the current executing command (the detached
+     * background job or the channel).
+     * 
+     * @return
+     */
+    protected BaseShellContext getCurrentContext() {
+        ShellJob job = jobStore.get();
+        return nonNull(job) ? job.getContext() : getClient().getContext();
+    }
+
+    /**
+     * Bind the detached background job to the current thread, the shell
+     * context of the job is used instead of the channel.
+     * 
+     * @param job
+     */
+    void bindJob(ShellJob job) {
+        jobStore.set(job);
     }
 
     @Override
     protected void beforeShellExecution(List<String> commands, TargetMethodWrapper tm, List<Object> args) {
         // Get current context
-        BaseShellContext context = getClient().getContext();
+        ShellJob job = jobStore.get();
+        BaseShellContext context = getCurrentContext();
 
         // Bind target method
         context.setTarget(tm);
@@ -134,7 +181,11 @@ public abstract class AbstractShellServer extends GenericShellHandler implements
         BaseShellContext updatedCtx = resolveInjectArgsForShellContextIfNecceary(context, tm, args);
 
         // Inject update actual context
-        getClient().setContext(updatedCtx);
+        if (nonNull(job)) {
+            job.setContext(updatedCtx);
+        } else {
+            getClient().setContext(updatedCtx);
+        }
     }
 
     /**
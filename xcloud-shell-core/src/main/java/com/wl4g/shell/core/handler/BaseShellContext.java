@@ -49,9 +49,9 @@ import com.wl4g.shell.common.signal.BOFStdoutSignal;
 import com.wl4g.shell.common.signal.ChannelState;
 import com.wl4g.shell.common.signal.EOFStdoutSignal;
 import com.wl4g.shell.common.signal.Signal;
-import com.wl4g.shell.common.signal.StderrSignal;
 import com.wl4g.shell.common.signal.StdoutSignal;
 import com.wl4g.shell.core.handler.EmbeddedShellServer.ServerSignalHandler;
+import com.wl4g.shell.core.locks.ShellLockManager.LockOwner;
 
 /**
  * Base shell handler context
@@ -86,6 +86,22 @@ abstract class BaseShellContext implements ShellContext {
      */
     private TargetMethodWrapper target;
 
+    /**
+     * Detached background job of the current context, if not null, the
+     * outputs are written to the job instead of the channel.
+     */
+    private ShellJob job;
+
+    /**
+     * Cooperative cancellation token of the current command.
+     */
+    private volatile CancellationToken cancellationToken = new CancellationToken();
+
+    /**
+     * Locks owner of the current command invocation.
+     */
+    private volatile LockOwner lockOwner;
+
     protected BaseShellContext() {
     }
 
@@ -95,6 +111,9 @@ abstract class BaseShellContext implements ShellContext {
             setChannel(shc.client);
             setState(shc.state);
             setTarget(shc.target);
+            setJob(shc.job);
+            setCancellationToken(shc.cancellationToken);
+            setLockOwner(shc.lockOwner);
             // Copy event listeners.
             shc.eventListeners.forEach((name, l) -> eventListeners.putIfAbsent(name, l));
         }
@@ -138,6 +157,47 @@ abstract class BaseShellContext implements ShellContext {
         this.target = target;
     }
 
+    void setJob(ShellJob job) {
+        this.job = job;
+    }
+
+    ShellJob getJob() {
+        return job;
+    }
+
+    @Override
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = notNull(cancellationToken, "Cancellation token must not be null");
+    }
+
+    /**
+     * Gets the locks owner of the current command invocation, the locks
+     * acquired by the invocation are keyed on it instead of the thread.
+     * 
+     * @return
+     */
+    public LockOwner getLockOwner() {
+        return lockOwner;
+    }
+
+    void setLockOwner(LockOwner lockOwner) {
+        this.lockOwner = lockOwner;
+    }
+
+    /**
+     * Cancel the current command if it is interruptible, see:
+     * {@link ShellEventListener#onInterrupt(BaseShellContext, boolean)}
+     */
+    void cancelIfInterruptible() {
+        if (nonNull(target) && target.getShellMethod().interruptible() == ALLOW) {
+            cancellationToken.cancel(new ShellException(format("Command interrupted: %s", target.getShellMethod().keys()[0])));
+        }
+    }
+
     TargetMethodWrapper getTarget() {
         if (isNull(target)) {
             throw new Error("The shell target method should not be null???");
@@ -243,13 +303,25 @@ abstract class BaseShellContext implements ShellContext {
         isTrue((output instanceof Signal || output instanceof CharSequence || output instanceof Throwable),
                 format("Unsupported print message types: %s", output.getClass()));
 
+        // Detached background job, independent of the channel, the errors are
+        // owned by the job owner.
+        if (nonNull(job)) {
+            if (output instanceof Throwable) {
+                output = getChannel().toStderr((Throwable) output, job.getOwner());
+            }
+            job.write(output);
+            return this;
+        }
+
         if (nonNull(getChannel()) && getChannel().isActive()) {
+            // Only the compact descriptor of the error is sent, see: StacktraceSignal
+            if (output instanceof Throwable) {
+                output = getChannel().toStderr((Throwable) output);
+            }
             try {
                 log.info("=> {}", output.toString());
                 if (output instanceof CharSequence) {
                     getChannel().writeFlush(new StdoutSignal(output.toString()));
-                } else if (output instanceof Throwable) {
-                    getChannel().writeFlush(new StderrSignal((Throwable) output));
                 } else if (output instanceof Signal) {
                     getChannel().writeFlush(output);
                 } else {
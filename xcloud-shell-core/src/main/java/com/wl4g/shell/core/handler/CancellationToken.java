@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.common.exception.ShellException;
+
+/**
+ * Cooperative cancellation token of the executing shell command, it's
+ * cancelled when the command deadline expires or the client interrupts (only
+ * {@link com.wl4g.shell.common.annotation.ShellMethod.InterruptType#ALLOW}),
+ * the executing thread is also interrupted. e.g:
+ * 
+ * <pre>
+ * &#64;ShellMethod(keys = "export", group = "example", help = "...", timeout = 60_000)
+ * public void export(SimpleShellContext context) {
+ *     CancellationToken token = context.getCancellationToken();
+ *     token.onCancel(() -&gt; closeQuietly(cursor));
+ *     while (cursor.hasNext()) {
+ *         token.throwIfCancelled();
+ *         ...
+ *     }
+ *     context.completed();
+ * }
+ * </pre>
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-11
+ * @since v1.0
+ */
+public class CancellationToken {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** Absolute deadline timestamp, 0 means no deadline. */
+    private final long deadline;
+
+    /** Cancellation callbacks. */
+    private final List<Runnable> callbacks = new ArrayList<>(2);
+
+    /** Cancellation cause, null if not cancelled. */
+    private volatile ShellException cause;
+
+    /**
+     * Executing thread of the command, interrupted on cancellation. Binding
+     * and interrupting are guarded by the token lock, so that the thread is
+     * never interrupted after it has been unbound (e.g. reused by the next
+     * command).
+     */
+    private Thread thread;
+
+    public CancellationToken() {
+        this(0L);
+    }
+
+    CancellationToken(long timeoutMs) {
+        this.deadline = (timeoutMs > 0) ? (currentTimeMillis() + timeoutMs) : 0L;
+    }
+
+    /**
+     * Whether the command has been cancelled.
+     * 
+     * @return
+     */
+    public boolean isCancelled() {
+        return nonNull(cause);
+    }
+
+    /**
+     * Gets the cancellation cause, null if not cancelled.
+     * 
+     * @return
+     */
+    public ShellException getCause() {
+        return cause;
+    }
+
+    /**
+     * Gets the absolute deadline timestamp, 0 means no deadline.
+     * 
+     * @return
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Gets the remaining milliseconds until the deadline, if there is no
+     * deadline, returns {@link Long#MAX_VALUE}.
+     * 
+     * @return
+     */
+    public long getRemainingMs() {
+        return (deadline > 0) ? Math.max(deadline - currentTimeMillis(), 0L) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Throw the cancellation cause if cancelled.
+     * 
+     * @throws ShellException
+     */
+    public void throwIfCancelled() throws ShellException {
+        ShellException cause = this.cause;
+        if (nonNull(cause)) {
+            throw cause;
+        }
+    }
+
+    /**
+     * Register the cancellation callback, if already cancelled, it's called
+     * immediately.
+     * 
+     * @param callback
+     * @return
+     */
+    public CancellationToken onCancel(Runnable callback) {
+        notNullOf(callback, "callback");
+        synchronized (callbacks) {
+            if (!isCancelled()) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        safeRun(callback);
+        return this;
+    }
+
+    /**
+     * Cancel the command, the callbacks are called and the executing thread
+     * is interrupted.
+     * 
+     * @param cause
+     * @return Returns true if cancelled for the first time.
+     */
+    boolean cancel(ShellException cause) {
+        List<Runnable> cancelling = null;
+        synchronized (callbacks) {
+            if (isCancelled()) {
+                return false;
+            }
+            this.cause = notNullOf(cause, "cause");
+            cancelling = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        log.debug("Cancelling shell command. {}", cause.getMessage());
+        cancelling.forEach(c -> safeRun(c));
+        synchronized (this) {
+            if (nonNull(thread)) {
+                thread.interrupt();
+            }
+        }
+        return true;
+    }
+
+    synchronized void bindThread(Thread thread) {
+        this.thread = thread;
+    }
+
+    /**
+     * Unbind the executing thread, and clear its interrupted status of the
+     * cancellation, the thread will be reused. It must be called on the
+     * executing thread.
+     */
+    void unbindThread() {
+        synchronized (this) {
+            this.thread = null;
+        }
+        // No longer interrupted by the cancellation after unbound.
+        if (isCancelled()) {
+            Thread.interrupted();
+        }
+    }
+
+    private void safeRun(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Throwable th) {
+            log.warn("Failed to call cancellation callback. {}", th.getMessage());
+        }
+    }
+
+}
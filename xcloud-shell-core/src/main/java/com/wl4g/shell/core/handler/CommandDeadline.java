@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.shell.common.signal.ChannelState.INTERRUPTED;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.annotation.Nullable;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.common.exception.ProcessTimeoutShellException;
+import com.wl4g.shell.core.locks.ShellLockManager.LockOwner;
+
+/**
+ * Execution deadline of the shell command. When the deadline expires, the
+ * {@link CancellationToken} is cancelled (the executing thread is
+ * interrupted), and if the command still does not return after the grace
+ * period, the executing thread is forcibly stopped (hard stop).
+ * <p>
+ * The {@link ThreadDeath} may land anywhere, so the hard stop is deferred
+ * while the command is operating the shell locks, holding the shell locks
+ * other than its execution lock (which is released by the server in the
+ * guarded finally), or writing to the channel (see:
+ * {@link #enterUnstoppable()}), and it's never issued after the command has
+ * returned (see: {@link #detachThread()}). The stopped thread must be
+ * discarded instead of being reused, so the hard stop is only enabled for the
+ * threads that can be discarded (see: {@link #isHardStopped()}).
+ * </p>
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-11
+ * @since v1.0
+ */
+class CommandDeadline {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** Timer scheduler. */
+    private final ScheduledExecutorService scheduler;
+
+    /** Executing shell context. */
+    private final BaseShellContext context;
+
+    /** Cancellation token of the command. */
+    private final CancellationToken token;
+
+    /** Executing command line. */
+    private final String line;
+
+    /** Execution timeout milliseconds. */
+    private final long timeoutMs;
+
+    /** Hard stop grace milliseconds, 0 means the hard stop is disabled. */
+    private final long hardStopGraceMs;
+
+    /** Locks owner of the command invocation, may be null. */
+    private final LockOwner lockOwner;
+
+    /** The holds of the execution lock, released by the server. */
+    private final int executionHolds;
+
+    /** Executing thread, null if the command is asynchronous. */
+    private Thread thread;
+
+    /** Whether the deadline has expired. */
+    private volatile boolean expired = false;
+
+    /** Whether the command has finished. */
+    private boolean finished = false;
+
+    /** Depth of the sections that must not be stopped, e.g. channel writes. */
+    private int unstoppable = 0;
+
+    private ScheduledFuture<?> expireFuture;
+    private ScheduledFuture<?> hardStopFuture;
+
+    CommandDeadline(ScheduledExecutorService scheduler, BaseShellContext context, CancellationToken token, String line,
+            long timeoutMs, long hardStopGraceMs, @Nullable LockOwner lockOwner, int executionHolds) {
+        this.scheduler = notNullOf(scheduler, "scheduler");
+        this.context = notNullOf(context, "context");
+        this.token = notNullOf(token, "token");
+        this.line = line;
+        this.timeoutMs = timeoutMs;
+        this.hardStopGraceMs = hardStopGraceMs;
+        this.lockOwner = lockOwner;
+        this.executionHolds = executionHolds;
+    }
+
+    /**
+     * Start timing for the current thread.
+     * 
+     * @return
+     */
+    synchronized CommandDeadline arm() {
+        this.thread = Thread.currentThread();
+        this.expireFuture = scheduler.schedule(() -> expire(), timeoutMs, MILLISECONDS);
+        current.set(this);
+        return this;
+    }
+
+    /**
+     * The command has returned (or thrown), the executing thread is no longer
+     * stopped, so the hard stop never lands in the cleanup of the server. It
+     * must be called on the executing thread.
+     */
+    synchronized void detachThread() {
+        this.thread = null;
+        current.remove();
+    }
+
+    /**
+     * The command finished, cancel the timers.
+     */
+    synchronized void disarm() {
+        finished = true;
+        if (nonNull(expireFuture)) {
+            expireFuture.cancel(false);
+        }
+        if (nonNull(hardStopFuture)) {
+            hardStopFuture.cancel(false);
+        }
+    }
+
+    boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * Create the timeout exception of the command.
+     * 
+     * @return
+     */
+    ProcessTimeoutShellException newTimeoutException() {
+        return new ProcessTimeoutShellException(format("Command execution timeout(%sms): %s", timeoutMs, line));
+    }
+
+    /**
+     * Check whether the command failed by the hard stop of this deadline (the
+     * {@link ThreadDeath} may be wrapped by the reflection invoking), if so,
+     * the current thread is marked as hard stopped, see:
+     * {@link #isHardStopped()}
+     * 
+     * @param th
+     * @return
+     */
+    boolean checkHardStopped(Throwable th) {
+        Throwable death = (th instanceof InvocationTargetException) ? ((InvocationTargetException) th).getTargetException()
+                : th;
+        if (isExpired() && (death instanceof ThreadDeath)) {
+            hardStopped.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Enter the section of the current thread that must not be stopped, e.g.
+     * writing the signal to the channel (the {@link ThreadDeath} in the middle
+     * of the serialization corrupts the protocol stream).
+     * 
+     * @return Returns the deadline of the current thread, null if none.
+     */
+    static CommandDeadline enterUnstoppable() {
+        CommandDeadline deadline = current.get();
+        if (nonNull(deadline)) {
+            synchronized (deadline) {
+                ++deadline.unstoppable;
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * Exit the section that must not be stopped.
+     * 
+     * @param deadline
+     *            see: {@link #enterUnstoppable()}
+     */
+    static void exitUnstoppable(@Nullable CommandDeadline deadline) {
+        if (nonNull(deadline)) {
+            synchronized (deadline) {
+                --deadline.unstoppable;
+            }
+        }
+    }
+
+    /**
+     * Check whether the command of the current thread has been hard stopped,
+     * the thread must be discarded (e.g. throw the {@link ThreadDeath} to the
+     * pool) instead of being reused.
+     * 
+     * @return
+     */
+    static boolean isHardStopped() {
+        return hardStopped.get();
+    }
+
+    private void expire() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            expired = true;
+        }
+        log.warn("Cancelling timeout shell command: {}, timeoutMs: {}", line, timeoutMs);
+        context.setState(INTERRUPTED);
+        token.cancel(newTimeoutException());
+        synchronized (this) {
+            if (!finished && nonNull(thread) && hardStopGraceMs > 0) {
+                hardStopFuture = scheduler.schedule(() -> hardStop(), hardStopGraceMs, MILLISECONDS);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private synchronized void hardStop() {
+        if (finished || isNull(thread) || Thread.currentThread() == thread) {
+            return;
+        }
+        if (unstoppable > 0) {
+            log.debug("Deferred the hard stop of the shell command writing to the channel: {}, thread: {}", line, thread);
+            hardStopFuture = scheduler.schedule(() -> hardStop(), HARD_STOP_RETRY_MS, MILLISECONDS);
+            return;
+        }
+        if (nonNull(lockOwner) && (lockOwner.isBusy() || lockOwner.getHolds() > executionHolds)) {
+            log.warn("Deferred the hard stop of the shell command holding the shell locks: {}, thread: {}", line, thread);
+            hardStopFuture = scheduler.schedule(() -> hardStop(), HARD_STOP_RETRY_MS, MILLISECONDS);
+            return;
+        }
+        log.error("Shell command ignores the cancellation, forcibly stopping: {}, thread: {}", line, thread);
+        // Only stopped once.
+        Thread stopping = thread;
+        thread = null;
+        try {
+            stopping.stop();
+        } catch (UnsupportedOperationException e) {
+            log.error("Unable forcibly stop the shell command thread: {}. {}", stopping, e.getMessage());
+        }
+    }
+
+    /** Deadline of the command executing on the current thread. */
+    private static final ThreadLocal<CommandDeadline> current = new ThreadLocal<>();
+
+    /** Whether the command of the current thread has been hard stopped. */
+    private static final ThreadLocal<Boolean> hardStopped = ThreadLocal.withInitial(() -> false);
+
+    /** Retry interval of the deferred hard stop. */
+    private static final long HARD_STOP_RETRY_MS = 200L;
+
+}
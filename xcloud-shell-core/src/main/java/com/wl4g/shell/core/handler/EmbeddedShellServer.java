@@ -22,6 +22,8 @@ import static com.wl4g.component.common.lang.Assert2.state;
 import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_LO;
 import static com.wl4g.shell.common.cli.BuiltInCommand.CMD_LOGIN;
 import static com.wl4g.shell.common.i18n.I18nResourceMessageBundles.getMessage;
+import static com.wl4g.shell.common.signal.ChannelState.COMPLETED;
+import static com.wl4g.shell.common.signal.ChannelState.INTERRUPTED;
 import static com.wl4g.shell.common.signal.ChannelState.RUNNING;
 import static com.wl4g.shell.core.utils.AuthUtils.genSessionID;
 import static java.lang.Math.abs;
@@ -30,31 +32,47 @@ import static java.lang.System.currentTimeMillis;
 import static java.lang.Thread.sleep;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
 import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
 
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import javax.annotation.Nullable;
 
+import com.wl4g.shell.common.annotation.ShellMethod;
+import com.wl4g.shell.common.annotation.ShellMethod.LockMode;
+import com.wl4g.shell.common.annotation.ShellMethod.LockScope;
 import com.wl4g.shell.common.exception.InternalShellException;
 import com.wl4g.shell.common.exception.UnableObtainLockShellException;
 import com.wl4g.shell.common.exception.UnauthenticationShellException;
@@ -63,18 +81,29 @@ import com.wl4g.shell.common.handler.BaseSignalHandler;
 import com.wl4g.shell.common.registry.ShellHandlerRegistrar;
 import com.wl4g.shell.common.registry.TargetMethodWrapper;
 import com.wl4g.shell.common.signal.AckInterruptSignal;
+import com.wl4g.shell.common.signal.AckMoreSignal;
 import com.wl4g.shell.common.signal.AskInterruptSignal;
+import com.wl4g.shell.common.signal.ChannelState;
+import com.wl4g.shell.common.signal.DeltaStdoutSignal;
+import com.wl4g.shell.common.signal.EOFStdoutSignal;
+import com.wl4g.shell.common.signal.JobSignal;
 import com.wl4g.shell.common.signal.LoginSignal;
 import com.wl4g.shell.common.signal.MetaSignal;
 import com.wl4g.shell.common.signal.PreInterruptSignal;
 import com.wl4g.shell.common.signal.PreLoginSignal;
 import com.wl4g.shell.common.signal.Signal;
+import com.wl4g.shell.common.signal.StacktraceSignal;
+import com.wl4g.shell.common.signal.StderrSignal;
 import com.wl4g.shell.common.signal.StdinSignal;
+import com.wl4g.shell.common.signal.WatchSignal;
 import com.wl4g.shell.core.cache.ShellCache;
+import com.wl4g.shell.core.config.AclIndex;
 import com.wl4g.shell.core.config.ServerShellProperties;
-import com.wl4g.shell.core.config.ServerShellProperties.AclInfo.CredentialsInfo;
+import com.wl4g.shell.core.handler.ShellJob.JobState;
+import com.wl4g.shell.core.locks.ShellLockManager.LockOwner;
+import com.wl4g.shell.core.locks.ShellLockManager.QueuedLock;
 import com.wl4g.shell.core.session.ShellSession;
-import com.wl4g.shell.core.utils.AuthUtils;
+import com.wl4g.shell.core.session.ShellTokenManager;
 
 /**
  * Embedded shell handle server
@@ -106,10 +135,34 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
      */
     protected Thread boss;
 
+    /**
+     * Scheduler of the timers only, e.g. watching commands re-execution and
+     * the commands deadlines, the tasks must never block.
+     */
+    protected ScheduledExecutorService scheduler;
+
+    /**
+     * Workers of the watching commands execution, at most one watching per
+     * channel.
+     */
+    protected ExecutorService watchWorker;
+
+    /**
+     * Detached background jobs manager.
+     */
+    protected final ShellJobManager jobManager;
+
+    /**
+     * Bounded store of the errors sent to the clients.
+     */
+    private final ErrorTraceStore traceStore;
+
     public EmbeddedShellServer(ServerShellProperties config, String appName, ShellHandlerRegistrar registrar,
             ShellCache shellCache) {
         super(config, appName, registrar, shellCache);
         this.workers = new ConcurrentHashMap<>(config.getMaxClients());
+        this.jobManager = new ShellJobManager(config);
+        this.traceStore = new ErrorTraceStore(config.getErrorTraceMaxSize(), config.getErrorTraceMaxLength());
     }
 
     /**
@@ -128,6 +181,20 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
             ss.setSoTimeout(0); // Infinite timeout
             log.info("Shell Console started on port(s): {}", bindPort);
 
+            final AtomicInteger incr = new AtomicInteger(0);
+            int schedulerThreads = Math.min(getConfig().getMaxClients(), Runtime.getRuntime().availableProcessors());
+            scheduler = Executors.newScheduledThreadPool(Math.max(schedulerThreads, 1), r -> {
+                Thread t = new Thread(r, getClass().getSimpleName() + "-scheduler-" + incr.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            final AtomicInteger watchIncr = new AtomicInteger(0);
+            watchWorker = new ThreadPoolExecutor(0, getConfig().getMaxClients(), 60, SECONDS, new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, getClass().getSimpleName() + "-watch-" + watchIncr.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
             boss = new Thread(this, getClass().getSimpleName() + "-boss");
             boss.setDaemon(true);
             boss.start();
@@ -163,6 +230,24 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
                     log.error("Closing worker failure", e);
                 }
             }
+
+            if (nonNull(scheduler)) {
+                scheduler.shutdownNow();
+            }
+            if (nonNull(watchWorker)) {
+                watchWorker.shutdownNow();
+            }
+            jobManager.close();
+            lockManager.close();
+            sessionDAO.close();
+            // e.g. the persistent local cache.
+            if (shellCache instanceof Closeable) {
+                try {
+                    ((Closeable) shellCache).close();
+                } catch (IOException e) {
+                    log.warn("Failed to close shell cache. {}", e.getMessage());
+                }
+            }
         }
     }
 
@@ -178,15 +263,43 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
             throws Exception {
         // Check whether the shell channel current command allows shared
         // parallel execution.
-        if (tm.getShellMethod().lock()) {
-            Lock lock = lockManager.getLock(EmbeddedShellServer.class.getSimpleName());
-            if (lock.tryLock()) {
+        ShellMethod sm = tm.getShellMethod();
+        // The locks are owned by the invocation, not the (pooled) thread.
+        LockOwner owner = LockOwner.newInvocation();
+        getCurrentContext().setLockOwner(owner);
+        if (sm.lock()) {
+            QueuedLock lock = getExecutionLock(tm, owner);
+            if (tryLockWithQueuing(lock, mainArg)) {
+                boolean async = false;
                 try {
                     log.debug("Try shell execution lock: {}, tm: {}", lock, tm);
-                    return super.doInvoke(line, commands, mainArg, tm, args);
+                    Object output = invokeWithDeadline(line, commands, mainArg, tm, args);
+                    // Asynchronous shell method, must hold the lock until
+                    // completed.
+                    if (output instanceof CompletionStage) {
+                        async = true;
+                        return ((CompletionStage<?>) output).whenComplete((result, ex) -> {
+                            try {
+                                lock.unlock();
+                            } finally {
+                                owner.complete();
+                            }
+                            log.debug("Released shell execution async lock: {}, tm: {}", lock, tm);
+                        });
+                    }
+                    return output;
                 } finally {
-                    lock.unlock();
-                    log.debug("Released shell execution lock: {}, tm: {}", lock, tm);
+                    // Guarded release, the lock must be released even if the
+                    // thread has been hard stopped (ThreadDeath), and the
+                    // lease of the completed owner is released by watchdog.
+                    if (!async) {
+                        try {
+                            lock.unlock();
+                        } finally {
+                            owner.complete();
+                        }
+                        log.debug("Released shell execution lock: {}, tm: {}", lock, tm);
+                    }
                 }
             } else {
                 throw new UnableObtainLockShellException(getMessage("label.command.unablegetlock", mainArg));
@@ -194,7 +307,152 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
         }
 
         // No enable lock, can be executed in parallel.
-        return super.doInvoke(line, commands, mainArg, tm, args);
+        try {
+            return invokeWithDeadline(line, commands, mainArg, tm, args);
+        } finally {
+            owner.complete();
+        }
+    }
+
+    /**
+     * Gets the execution lock of the command lock group.
+     * 
+     * @param tm
+     * @param owner
+     * @return
+     */
+    private QueuedLock getExecutionLock(TargetMethodWrapper tm, LockOwner owner) {
+        ShellMethod sm = tm.getShellMethod();
+        boolean local = sm.lockScope() == LockScope.LOCAL;
+        // Bulkhead of the command lock group.
+        if (sm.maxConcurrency() > 1) {
+            return lockManager.getBulkhead(getLockName(tm), sm.maxConcurrency(), local, owner);
+        }
+        // The readers share, while the writer is exclusive.
+        return lockManager.getReadWriteLock(getLockName(tm), sm.lockMode() == LockMode.WRITE, local, owner);
+    }
+
+    /**
+     * Try to obtain the execution lock, if the lock waiting is enabled, wait
+     * in the queue and report the queue position to the client.
+     * 
+     * @param lock
+     * @param mainArg
+     * @return
+     * @throws InterruptedException
+     */
+    private boolean tryLockWithQueuing(QueuedLock lock, String mainArg) throws InterruptedException {
+        long waitMs = getConfig().getLockWaitTimeoutMs();
+        if (waitMs <= 0) {
+            return lock.tryLock();
+        }
+        BaseShellContext context = getCurrentContext();
+        return lock.tryLock(waitMs, MILLISECONDS, position -> {
+            try {
+                context.printf0(getMessage("label.command.waitinglock", mainArg, position + 1, waitMs / 1000));
+            } catch (Exception e) {
+                log.debug("Failed to report lock queue position. {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Gets the execution lock name of the shell method, the commands of the
+     * same lock group share the lock, otherwise each command has its own lock.
+     * 
+     * @param tm
+     * @return
+     */
+    private String getLockName(TargetMethodWrapper tm) {
+        ShellMethod sm = tm.getShellMethod();
+        String group = isBlank(sm.lockGroup()) ? sm.keys()[0] : sm.lockGroup();
+        return EmbeddedShellServer.class.getSimpleName().concat(".").concat(group);
+    }
+
+    /**
+     * Invoking the shell method with the cancellation token and deadline.
+     * 
+     * @param line
+     * @param commands
+     * @param mainArg
+     * @param tm
+     * @param args
+     * @return
+     * @throws Exception
+     */
+    private Object invokeWithDeadline(String line, List<String> commands, String mainArg, TargetMethodWrapper tm,
+            List<Object> args) throws Exception {
+        long timeoutMs = determineTimeoutMs(tm);
+        BaseShellContext context = getCurrentContext();
+        CancellationToken token = new CancellationToken(timeoutMs);
+        context.setCancellationToken(token);
+        token.bindThread(Thread.currentThread());
+
+        CommandDeadline deadline = null;
+        if (timeoutMs > 0) {
+            // The pooled threads of the jobs and watching can't be discarded,
+            // they are only cancelled, see: CommandDeadline#isHardStopped
+            boolean hardStoppable = isNull(context.getJob()) && isNull(WatchTask.getExecuting());
+            deadline = new CommandDeadline(scheduler, context, token, line, timeoutMs,
+                    hardStoppable ? getConfig().getHardStopGraceMs() : 0L, context.getLockOwner(),
+                    tm.getShellMethod().lock() ? 1 : 0).arm();
+        }
+        boolean async = false;
+        try {
+            Object output = null;
+            try {
+                output = super.doInvoke(line, commands, mainArg, tm, args);
+            } finally {
+                // The hard stop never lands in the following cleanup.
+                if (nonNull(deadline)) {
+                    deadline.detachThread();
+                }
+                token.unbindThread();
+            }
+            // Asynchronous shell method, the deadline covers until completed.
+            if (output instanceof CompletionStage) {
+                async = true;
+                CompletableFuture<?> future = ((CompletionStage<?>) output).toCompletableFuture();
+                token.onCancel(() -> future.completeExceptionally(token.getCause()));
+                if (isNull(deadline)) {
+                    return future;
+                }
+                final CommandDeadline asyncDeadline = deadline;
+                return future.whenComplete((result, ex) -> asyncDeadline.disarm());
+            }
+            if (nonNull(deadline) && deadline.isExpired()) {
+                throw deadline.newTimeoutException();
+            }
+            return output;
+        } catch (Throwable e) {
+            // Hard stopped, the thread is discarded by the caller.
+            if (nonNull(deadline) && deadline.checkHardStopped(e)) {
+                throw deadline.newTimeoutException();
+            }
+            throw e;
+        } finally {
+            if (!async && nonNull(deadline)) {
+                deadline.disarm();
+            }
+        }
+    }
+
+    /**
+     * Determine the command execution deadline, priority: client override,
+     * shell method, server default.
+     * 
+     * @param tm
+     * @return
+     */
+    private long determineTimeoutMs(TargetMethodWrapper tm) {
+        StdinCommandWrapper stdin = currentStdin.get();
+        if (nonNull(stdin) && stdin.getStdin().getTimeoutMs() > 0) {
+            return stdin.getStdin().getTimeoutMs();
+        }
+        if (tm.getShellMethod().timeout() > 0) {
+            return tm.getShellMethod().timeout();
+        }
+        return getConfig().getDefaultCommandTimeoutMs();
     }
 
     /**
@@ -216,10 +474,16 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
             throw new UnauthenticationShellException(getMessage("label.login.tip", CMD_LOGIN, CMD_LO));
         }
 
-        // Check ACL by roles.
-        String[] permissions = tm.getShellMethod().permissions();
-        CredentialsInfo credentials = getConfig().getAcl().getCredentialsInfo(session.getUsername());
-        if (!AuthUtils.matchAclPermits(permissions, credentials.getPermissions())) {
+        // Check ACL by the compiled permits.
+        BitSet required = tm.getRequiredPermits();
+        AclIndex index = getConfig().getAcl().getIndex();
+        BitSet granted = session.getGrantedPermits(index.getVersion());
+        if (isNull(granted)) {
+            AclIndex.Grant grant = index.getGrant(session.getUsername());
+            granted = isNull(grant) ? new BitSet() : grant.getPermits();
+            session.setGrantedPermits(index.getVersion(), granted);
+        }
+        if (!AclIndex.isPermitted(required, granted)) {
             throw new UnauthorizedShellException(getMessage("label.login.notpermission"));
         }
     }
@@ -285,6 +549,15 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
         /** Binding shell channel session ID. {@link ShellSession}. */
         private String bindSessionId;
 
+        /** Binding stateless session of the token, see: {@link ShellTokenManager}. */
+        private volatile ShellSession tokenSession;
+
+        /** Client confirmation of pulling the next page of streaming output. */
+        private final BlockingQueue<Boolean> moreAcks = new SynchronousQueue<>();
+
+        /** Current watching command task of shell channel. */
+        private volatile WatchTask watchTask;
+
         public ServerSignalHandler(ShellHandlerRegistrar registrar, Socket client, Function<String, Object> func) {
             super(registrar, client, func);
             this.shellContext = new BaseShellContext(this) {
@@ -303,41 +576,191 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
             return shellContext;
         }
 
+        /**
+         * Maximum number of the progress signals per second of the shell
+         * channel.
+         * 
+         * @return
+         */
+        int getProgressMaxRate() {
+            return getConfig().getProgressMaxRate();
+        }
+
+        /**
+         * The shared scheduler of the timers, e.g. the trailing emissions of
+         * the coalesced progress.
+         * 
+         * @return
+         */
+        ScheduledExecutorService getScheduler() {
+            return scheduler;
+        }
+
+        /**
+         * The number of elements (e.g. the table rows) per output batch.
+         * 
+         * @return
+         */
+        int getStreamBatchSize() {
+            return getConfig().getStreamBatchSize();
+        }
+
+        /**
+         * Convert the error to the compact descriptor, the full stacktrace is
+         * kept by the server and fetched on demand.
+         * 
+         * @param th
+         * @return
+         */
+        StderrSignal toStderr(Throwable th) {
+            return toStderr(th, getTraceOwner());
+        }
+
+        /**
+         * Convert the error of the owner to the compact descriptor, e.g. the
+         * errors of the detached jobs are owned by the job owner instead of the
+         * current channel.
+         * 
+         * @param th
+         * @param owner
+         *            null if unknown (nobody can fetch the stacktrace).
+         * @return
+         */
+        StderrSignal toStderr(Throwable th, @Nullable String owner) {
+            return new StderrSignal(traceStore.put(th, owner), th);
+        }
+
+        /**
+         * Gets the owner of the errors of the channel, see:
+         * {@link #toTraceOwner(ShellSession)}
+         * 
+         * @return null if unknown.
+         */
+        @Nullable
+        String getTraceOwner() {
+            try {
+                ShellSession session = tokenSession;
+                if (isNull(session) && !isBlank(bindSessionId)) {
+                    session = sessionDAO.get(bindSessionId);
+                }
+                return toTraceOwner(session);
+            } catch (Exception e) {
+                log.warn("Failed to obtain the error owner of the shell session. {}", e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * The errors are owned by the user if the ACL is enabled (the
+         * unauthenticated sessions own nothing), otherwise by the session.
+         * 
+         * @param session
+         * @return
+         */
+        @Nullable
+        String toTraceOwner(@Nullable ShellSession session) {
+            if (isNull(session)) {
+                return null;
+            }
+            if (getConfig().getAcl().isEnabled()) {
+                return session.isAuthenticated() ? session.getUsername() : null;
+            }
+            return session.getSessionId();
+        }
+
         void setContext(BaseShellContext context) {
             this.shellContext = notNullOf(context, "ShellContext");
         }
 
-        ShellSession obtainShellSession(@Nullable String sessionId) {
-            ShellSession session = null;
-            if (!isBlank(sessionId)) {
-                session = sessionDAO.get(sessionId);
+        /**
+         * Obtain the shell session asynchronously, the writes of the expired
+         * or new session are not waited, since the session is near-cached.
+         * 
+         * @param sessionId
+         * @return
+         */
+        CompletionStage<ShellSession> obtainShellSessionAsync(@Nullable String sessionId) {
+            // Stateless session token, validated locally.
+            if (ShellTokenManager.isToken(sessionId)) {
+                ShellSession session = tokenManager.validate(sessionId);
+                if (nonNull(session)) {
+                    tokenSession = session;
+                    bindSessionId = session.getSessionId();
+                    return completedFuture(session);
+                }
+                sessionId = null; // Invalid, expired or revoked, re-login.
+            }
+            tokenSession = null;
+            CompletionStage<ShellSession> lookup = isBlank(sessionId) ? completedFuture(null) : sessionDAO.getAsync(sessionId);
+            return lookup.thenApply(session -> {
                 // Check expired?
                 if (nonNull(session)
                         && abs(currentTimeMillis() - session.getLatestTimestamp()) >= getConfig().getAcl().getTimeoutMs()) {
-                    sessionDAO.remove(session.getSessionId());
+                    sessionDAO.removeAsync(session.getSessionId());
                     session = null;
                 }
+                if (isNull(session)) {
+                    session = new ShellSession(genSessionID(), null, false, null, 0, 0);
+                    session.setLatestTimestamp(currentTimeMillis());
+                    final String newSessionId = session.getSessionId();
+                    sessionDAO.putAsync(session).whenComplete((ret, ex) -> {
+                        if (nonNull(ex)) {
+                            log.warn("Failed to save the shell session: {}. {}", newSessionId, ex.getMessage());
+                        }
+                    });
+                }
+                bindSessionId = session.getSessionId();
+                return notNull(session, "Cannot obtain shell session.");
+            });
+        }
+
+        ShellSession obtainShellSession(@Nullable String sessionId) {
+            return awaitShellSession(obtainShellSessionAsync(sessionId));
+        }
+
+        /**
+         * Wait the started session lookup, only when the signal needs the
+         * session (e.g. the commands and ACL checks).
+         * 
+         * @param lookup
+         * @return
+         */
+        ShellSession awaitShellSession(CompletionStage<ShellSession> lookup) {
+            try {
+                return lookup.toCompletableFuture().join();
+            } catch (CompletionException e) {
+                throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
             }
-            if (isNull(session)) {
-                session = new ShellSession(genSessionID(), null, false, null, 0, 0);
-                updateSession(session);
-            }
-            bindSessionId = session.getSessionId();
-            return notNull(session, "Cannot obtain shell session.");
         }
 
         ShellSession getShellSession() {
+            ShellSession session = tokenSession;
+            if (nonNull(session)) {
+                return session;
+            }
             return notNull(sessionDAO.get(bindSessionId), InternalShellException.class,
                     "Internal error, not shell signal binding sessionId.");
         }
 
         void updateSession(ShellSession session) {
-            if (nonNull(session)) {
+            if (nonNull(session) && !ShellTokenManager.isToken(session.getSessionId())) {
                 session.setLatestTimestamp(currentTimeMillis());
                 sessionDAO.put(session);
             }
         }
 
+        /**
+         * Touch the session access timestamp, which is coalesced and written
+         * behind.
+         * 
+         * @param session
+         */
+        void touchSession(ShellSession session) {
+            if (nonNull(session) && !ShellTokenManager.isToken(session.getSessionId())) {
+                sessionDAO.touch(session.getSessionId(), currentTimeMillis());
+            }
+        }
+
         @Override
         public void run() {
             while (running.get() && isActive()) {
@@ -348,18 +771,32 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
                     log.debug("<= {}", signal);
 
                     Object output = null;
-                    ShellSession session = obtainShellSession(signal.getSessionId());
-                    // Register shell methods
-                    if (signal instanceof MetaSignal) {
-                        output = new MetaSignal(registrar.getTargetMethods(), session.getSessionId());
-                    } else {
+                    /**
+                     * Start the session lookup without waiting, the control
+                     * signals (e.g. interruption and paging acks) are handled
+                     * while the lookup is in flight, and the others wait the
+                     * session only when they need it.
+                     */
+                    CompletionStage<ShellSession> lookup = obtainShellSessionAsync(signal.getSessionId());
+                    if (!(signal instanceof MetaSignal)) {
                         notNull(((Signal) signal).getSessionId(), InternalShellException.class,
                                 "Internal error, request shell signal sessionId required.");
-                        updateSession(session);
+                        lookup.whenComplete((session, ex) -> {
+                            if (nonNull(ex)) {
+                                log.warn("Failed to obtain the shell session of {}. {}", signal, ex.getMessage());
+                            } else {
+                                touchSession(session);
+                            }
+                        });
+                    }
+                    // Register shell methods
+                    if (signal instanceof MetaSignal) {
+                        output = new MetaSignal(registrar.getTargetMethods(), awaitShellSession(lookup).getSessionId());
                     }
                     // Pre login
-                    if (signal instanceof PreLoginSignal) {
+                    else if (signal instanceof PreLoginSignal) {
                         PreLoginSignal login = (PreLoginSignal) signal;
+                        ShellSession session = awaitShellSession(lookup);
                         if (session.isAuthenticated()) {
                             output = new LoginSignal(true, session.getSessionId())
                                     .withDesc(getMessage("label.login.authenticated"));
@@ -371,8 +808,16 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
                                     session.setAuthenticated(true);
                                     session.setHost(socket.getInetAddress().getHostName());
                                     session.setStartTimestamp(currentTimeMillis());
-                                    updateSession(session);
-                                    output = new LoginSignal(true, session.getSessionId())
+                                    String sessionId = session.getSessionId();
+                                    // Stateless session, the anonymous session is no longer needed.
+                                    if (tokenManager.isEnabled()) {
+                                        sessionDAO.removeAsync(session.getSessionId());
+                                        sessionId = tokenManager.issue(session);
+                                        obtainShellSession(sessionId);
+                                    } else {
+                                        updateSession(session);
+                                    }
+                                    output = new LoginSignal(true, sessionId)
                                             .withDesc(getMessage("label.login.authentication.success"));
                                 } else {
                                     output = new LoginSignal(false).withDesc(getMessage("label.login.authentication.fail"));
@@ -384,6 +829,16 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
                     }
                     // Ask interruption.
                     else if (signal instanceof PreInterruptSignal) {
+                        // Watching stops immediately without confirmation.
+                        if (stopWatch()) {
+                            shellContext.completed();
+                            continue;
+                        }
+                        // Detach from the attached job, the job continues.
+                        ShellJob attached = jobManager.getAttached(this);
+                        if (nonNull(attached) && attached.detach(this)) {
+                            continue;
+                        }
                         // Call pre-interrupt events.
                         shellContext.getUnmodifiableEventListeners().forEach(l -> l.onPreInterrupt(shellContext));
                         // Ask if the client is interrupt.
@@ -395,9 +850,36 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
                         // Call interrupt events.
                         shellContext.getUnmodifiableEventListeners().forEach(l -> l.onInterrupt(shellContext, ack.getConfirm()));
                     }
+                    // Confirm pulling the next page.
+                    else if (signal instanceof AckMoreSignal) {
+                        if (!moreAcks.offer(((AckMoreSignal) signal).isMore())) {
+                            log.debug("No streaming output waiting for the ack: {}", signal);
+                        }
+                    }
+                    // Detached background jobs control
+                    else if (signal instanceof JobSignal) {
+                        awaitShellSession(lookup);
+                        handleJob((JobSignal) signal);
+                    }
+                    // Watching of command
+                    else if (signal instanceof WatchSignal) {
+                        WatchSignal watch = (WatchSignal) signal;
+                        awaitShellSession(lookup);
+                        // Call command events.
+                        shellContext.getUnmodifiableEventListeners().forEach(l -> l.onCommand(shellContext, watch.getLine()));
+                        startWatch(watch);
+                    }
+                    // Fetch stacktrace of the error
+                    else if (signal instanceof StacktraceSignal) {
+                        String errorId = ((StacktraceSignal) signal).getErrorId();
+                        // Only the owner can fetch, see: ErrorTraceStore
+                        String owner = toTraceOwner(awaitShellSession(lookup));
+                        output = new StacktraceSignal(errorId, traceStore.getStacktrace(errorId, owner));
+                    }
                     // Stdin of commands
                     else if (signal instanceof StdinSignal) {
                         StdinSignal stdin = (StdinSignal) signal;
+                        awaitShellSession(lookup);
                         // Call command events.
                         shellContext.getUnmodifiableEventListeners().forEach(l -> l.onCommand(shellContext, stdin.getLine()));
 
@@ -410,19 +892,41 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
                                 /**
                                  * Only {@link ShellContext} printouts are
                                  * supported, and return value is no longer
-                                 * supported (otherwise it will be ignored)
+                                 * supported (otherwise it will be ignored),
+                                 * except for the asynchronous result of
+                                 * {@link CompletionStage} and the lazy result
+                                 * of Stream/Iterator.
                                  */
-                                function.apply(stdin.getLine());
+                                Object output = function.apply(stdin.getLine());
 
+                                /**
+                                 * Asynchronous shell method, the worker is
+                                 * released immediately and the channel is
+                                 * completed when the future completes.
+                                 */
+                                if (output instanceof CompletionStage) {
+                                    final BaseShellContext context = shellContext;
+                                    ((CompletionStage<?>) output)
+                                            .whenComplete((result, ex) -> completeAsync(stdin, context, result, ex));
+                                }
+                                // Lazy rendering of streaming result.
+                                else if (StreamOutputRenderer.isStreamingOutput(output)) {
+                                    renderStreaming(shellContext, output);
+                                }
                                 /**
                                  * see:{@link EmbeddedServerShellHandler#preHandleInput()}#MARK2
                                  */
-                                if (shellContext.getState() != RUNNING) {
+                                else if (shellContext.getState() != RUNNING) {
                                     shellContext.completed();
                                 }
                             } catch (Throwable e) {
                                 log.error(format("Failed to handle shell command: [%s]", stdin.getLine()), e);
                                 handleError(e);
+                                // Discard the hard stopped worker thread, the
+                                // pool creates a new one.
+                                if (CommandDeadline.isHardStopped()) {
+                                    throw new ThreadDeath();
+                                }
                             } finally {
                                 currentStdin.remove();
                             }
@@ -443,8 +947,35 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
             }
         }
 
+        /**
+         * When watching, the outputs of the watching command (written on the
+         * executing worker thread) are captured by the {@link WatchTask} and
+         * not written to the channel directly.
+         */
+        @Override
+        public synchronized void writeFlush(Object message) throws IOException {
+            WatchTask watch = WatchTask.getExecuting();
+            if (nonNull(watch) && watch.capture(message)) {
+                return;
+            }
+            // The hard stop must never land in the middle of the signal
+            // serialization, see: CommandDeadline
+            CommandDeadline deadline = CommandDeadline.enterUnstoppable();
+            try {
+                super.writeFlush(message);
+            } finally {
+                CommandDeadline.exitUnstoppable(deadline);
+            }
+        }
+
         @Override
         public void close() throws IOException {
+            // Stop watching of the disconnected channel.
+            stopWatch();
+
+            // Detached background jobs continue running.
+            jobManager.detachAll(this);
+
             // Prevent threadContext memory leakage.
             cleanup();
 
@@ -460,6 +991,257 @@ public class EmbeddedShellServer extends AbstractShellServer implements Runnable
             log.debug("Remove shellHandler: {}, actual: {}", this, workers.size());
         }
 
+        /**
+         * Completion handling of asynchronous shell method
+         * ({@link CompletionStage}) results.
+         * 
+         * @param stdin
+         * @param context
+         * @param result
+         * @param ex
+         */
+        private void completeAsync(StdinSignal stdin, BaseShellContext context, Object result, Throwable ex) {
+            if (nonNull(ex)) {
+                Throwable cause = (ex instanceof CompletionException && nonNull(ex.getCause())) ? ex.getCause() : ex;
+                log.error(format("Failed to handle async shell command: [%s]", stdin.getLine()), cause);
+                handleError(cause);
+                return;
+            }
+            try {
+                if (StreamOutputRenderer.isStreamingOutput(result)) {
+                    renderStreaming(context, result);
+                    return;
+                } else if (nonNull(result)) {
+                    context.printf0((result instanceof Signal) ? result : result.toString());
+                }
+                if (context.getState() != COMPLETED) {
+                    context.completed();
+                }
+            } catch (Throwable th) {
+                log.error(format("Failed to complete async shell command: [%s]", stdin.getLine()), th);
+                handleError(th);
+            }
+        }
+
+        /**
+         * Lazy rendering the streaming output (Stream/Iterator) of shell
+         * method, and completed. The context that has already been completed
+         * or interrupted by the shell method is not re-opened, and the output
+         * is only closed.
+         * 
+         * @param context
+         * @param output
+         */
+        private void renderStreaming(BaseShellContext context, Object output) {
+            ChannelState state = context.getState();
+            if (state == COMPLETED || state == INTERRUPTED) {
+                log.debug("Skipped streaming output of the {} context.", state);
+                if (output instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) output).close();
+                    } catch (Exception e) {
+                        log.warn("Failed to close streaming output. {}", e.getMessage());
+                    }
+                }
+                return;
+            }
+            if (state != RUNNING) {
+                context.begin();
+            }
+            long count = new StreamOutputRenderer(getConfig(), context, () -> awaitMoreAck()).render(output);
+            log.debug("Rendered streaming output elements: {}", count);
+            if (context.getState() != COMPLETED) {
+                context.completed();
+            }
+        }
+
+        /**
+         * Waiting for the client confirm to pull the next page of streaming
+         * output, if timeout, it is regarded as termination.
+         * 
+         * @return
+         */
+        private boolean awaitMoreAck() {
+            try {
+                Boolean more = moreAcks.poll(getConfig().getStreamPageTimeoutMs(), MILLISECONDS);
+                return nonNull(more) && more;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /**
+         * Start watching the command, the previous watching will be stopped.
+         * 
+         * @param watch
+         */
+        private void startWatch(WatchSignal watch) {
+            stopWatch();
+            final StdinSignal stdin = new StdinSignal(watch.getLine());
+            stdin.setSessionId(watch.getSessionId());
+            Consumer<DeltaStdoutSignal> sender = delta -> {
+                try {
+                    writeFlush(delta);
+                } catch (Throwable th) {
+                    log.warn("Failed to write watching delta output of: {}. {}", watch.getLine(), th.getMessage());
+                    handleError(th);
+                }
+            };
+            WatchTask task = new WatchTask(watch, getConfig().getWatchMaxLines(), () -> executeWatching(stdin), this::toStderr,
+                    sender);
+            this.watchTask = task;
+            task.schedule(scheduler, watchWorker, getConfig().getWatchMinIntervalMs());
+        }
+
+        /**
+         * Stop the current watching.
+         * 
+         * @return Returns true if there was watching.
+         */
+        private boolean stopWatch() {
+            WatchTask task = watchTask;
+            watchTask = null;
+            if (nonNull(task)) {
+                task.cancel();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Execute the watching command once on the watch worker thread, the same
+         * process as {@link StdinSignal} (parsing, ACL, locking and invoking).
+         * 
+         * @param stdin
+         * @return
+         * @throws Exception
+         */
+        private Object executeWatching(StdinSignal stdin) throws Exception {
+            // The watch worker thread is shared by all channels, see:MARK1
+            bind(this);
+            currentStdin.set(new StdinCommandWrapper(stdin, this));
+            try {
+                Object output = function.apply(stdin.getLine());
+                if (output instanceof CompletionStage) {
+                    output = ((CompletionStage<?>) output).toCompletableFuture().get(getConfig().getWatchTimeoutMs(),
+                            MILLISECONDS);
+                }
+                return output;
+            } finally {
+                currentStdin.remove();
+                cleanup();
+            }
+        }
+
+        /**
+         * Handling detached background job control.
+         * 
+         * @param signal
+         * @throws IOException
+         */
+        private void handleJob(JobSignal signal) throws IOException {
+            String reply = null;
+            switch (signal.getAction()) {
+            case RUN:
+                ShellSession session = getShellSession();
+                String owner = getConfig().getAcl().isEnabled() ? session.getUsername() : session.getSessionId();
+                final StdinSignal stdin = new StdinSignal(signal.getLine());
+                stdin.setSessionId(signal.getSessionId());
+                ShellJob job = jobManager.submit(signal.getLine(), owner, j -> runJob(j, stdin));
+                reply = format("[%s] %s  %s", job.getJobId(), job.getState(), job.getLine());
+                break;
+            case LIST:
+                reply = jobManager.list().stream().filter(j -> isJobVisible(j)).map(j -> j.toSummary()).collect(joining("\n"));
+                break;
+            case ATTACH:
+                // The attached channel is completed by the job.
+                getVisibleJob(signal.getJobId()).attach(this, signal.getLines());
+                return;
+            case TAIL:
+                reply = getVisibleJob(signal.getJobId()).tail(signal.getLines()).stream().collect(joining("\n"));
+                break;
+            case KILL:
+                ShellJob killing = getVisibleJob(signal.getJobId());
+                killing.kill();
+                reply = format("[%s] killing, %s", killing.getJobId(), killing.getState());
+                break;
+            }
+            if (!isBlank(reply)) {
+                shellContext.printf0(reply);
+            }
+            shellContext.printf0(new EOFStdoutSignal());
+        }
+
+        /**
+         * Execute the detached background job on the job thread, the job
+         * outputs are independent of the channel.
+         * 
+         * @param job
+         * @param stdin
+         */
+        private void runJob(ShellJob job, StdinSignal stdin) {
+            BaseShellContext context = new BaseShellContext(this) {
+            };
+            context.setJob(job);
+            job.setContext(context);
+
+            // The job thread is shared by all channels, see:MARK1
+            bind(this);
+            bindJob(job);
+            currentStdin.set(new StdinCommandWrapper(stdin, this));
+            try {
+                Object output = function.apply(stdin.getLine());
+                if (output instanceof CompletionStage) {
+                    output = ((CompletionStage<?>) output).toCompletableFuture().get();
+                }
+                BaseShellContext ctx = job.getContext();
+                // The job is not interactive, pulling without paging.
+                if (StreamOutputRenderer.isStreamingOutput(output)) {
+                    new StreamOutputRenderer(getConfig(), ctx, () -> true).render(output);
+                } else if (nonNull(output)) {
+                    ctx.printf0((output instanceof Signal) ? output : output.toString());
+                }
+                job.finish((job.isKilled() || ctx.getState() == INTERRUPTED) ? JobState.KILLED : JobState.COMPLETED);
+            } catch (Throwable e) {
+                if (job.isKilled()) {
+                    job.finish(JobState.KILLED);
+                } else {
+                    log.error(format("Failed to execute shell job: %s", job), e);
+                    job.write(toStderr(e, job.getOwner()));
+                    job.finish(JobState.FAILED);
+                }
+            } finally {
+                currentStdin.remove();
+                cleanup();
+            }
+        }
+
+        /**
+         * Gets the job visible to the current channel user.
+         * 
+         * @param jobId
+         * @return
+         */
+        private ShellJob getVisibleJob(String jobId) {
+            ShellJob job = jobManager.get(jobId);
+            notNull(job, format("No such job: %s", jobId));
+            if (!isJobVisible(job)) {
+                throw new UnauthorizedShellException(getMessage("label.login.notpermission"));
+            }
+            return job;
+        }
+
+        /**
+         * When ACL is enabled, the jobs are only visible to the owner user.
+         * 
+         * @param job
+         * @return
+         */
+        private boolean isJobVisible(ShellJob job) {
+            return !getConfig().getAcl().isEnabled() || Objects.equals(job.getOwner(), getShellSession().getUsername());
+        }
+
         /**
          * Error handling
          * 
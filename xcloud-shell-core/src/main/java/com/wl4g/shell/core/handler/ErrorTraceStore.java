@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.abbreviate;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded store of the errors sent to the clients, only the compact
+ * descriptors are sent (see: {@link com.wl4g.shell.common.signal.StderrSignal}),
+ * the stacktraces are rendered (and capped) once when the errors are kept, so
+ * that the exception graphs (e.g. the causes holding the large objects) are
+ * never retained, and the client fetches them by the error ID, the least
+ * recently fetched errors are evicted. Each error is kept
+ * with its owner (e.g. the session or the user), and only the owner can fetch
+ * it, since the stacktraces may carry the sensitive details.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-27
+ * @since v1.0
+ */
+class ErrorTraceStore {
+
+    /** Errors of the error ID, in access order. */
+    private final Map<String, Entry> errors;
+
+    /** Maximum length of each rendered stacktrace. */
+    private final int maxLength;
+
+    ErrorTraceStore(int maxSize, int maxLength) {
+        isTrue(maxSize > 0, format("maxSize must greater than 0, actual is %s", maxSize));
+        isTrue(maxLength > 3, format("maxLength must greater than 3, actual is %s", maxLength));
+        this.maxLength = maxLength;
+        this.errors = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Keep the error.
+     * 
+     * @param th
+     * @param owner
+     *            the owner allowed to fetch, null if unknown (nobody).
+     * @return the error ID.
+     */
+    String put(Throwable th, @Nullable String owner) {
+        String errorId = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 16);
+        // Rendered outside of the lock.
+        String stacktrace = abbreviate(getStackTrace(th), maxLength);
+        synchronized (this) {
+            errors.put(errorId, new Entry(stacktrace, owner));
+        }
+        return errorId;
+    }
+
+    /**
+     * Gets the full stacktrace of the error of the owner.
+     * 
+     * @param errorId
+     * @param owner
+     * @return null if no such error, it has been evicted, or not owned.
+     */
+    String getStacktrace(String errorId, @Nullable String owner) {
+        Entry entry;
+        synchronized (this) {
+            entry = errors.get(errorId);
+        }
+        if (isNull(entry) || isNull(entry.owner) || !Objects.equals(entry.owner, owner)) {
+            return null;
+        }
+        return entry.stacktrace;
+    }
+
+    private static final class Entry {
+        private final String stacktrace;
+        private final @Nullable String owner;
+
+        private Entry(String stacktrace, @Nullable String owner) {
+            this.stacktrace = stacktrace;
+            this.owner = owner;
+        }
+    }
+
+}
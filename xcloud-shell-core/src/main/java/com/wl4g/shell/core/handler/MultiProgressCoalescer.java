@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.notNull;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import com.wl4g.shell.common.signal.MultiProgressSignal;
+import com.wl4g.shell.common.signal.ProgressSignal;
+
+/**
+ * Coalescer of the multiple concurrent progress bars of the shell channel,
+ * at most N signals per second are emitted, each of which carries only the
+ * bars changed since the last emitted, so the bandwidth is bounded by the
+ * rate instead of the number of the bars. The per-bar updates are recorded
+ * by {@link ProgressCoalescer}. The completed bars are always emitted, and the
+ * suppressed updates are flushed by the trailing emission one interval later.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-25
+ * @since v1.0
+ */
+class MultiProgressCoalescer {
+
+    /** Minimum interval of the emissions, 0 means no throttling. */
+    private final long intervalNanos;
+
+    /** Progress bars, progress ID -> bar. */
+    private final Map<String, ProgressCoalescer> bars = new ConcurrentHashMap<>();
+
+    /** Progress IDs in the order of the registration. */
+    private final List<String> order = new CopyOnWriteArrayList<>();
+
+    /** Next emission slot of nano time. */
+    private final AtomicLong nextEmitNanos = new AtomicLong(nanoTime());
+
+    /** Emitted sequence, guarded by this. */
+    private long sequence = 0L;
+
+    /** Scheduler of the trailing emissions, null if not supported. */
+    private final @Nullable ScheduledExecutorService scheduler;
+
+    /** Whether the trailing emission is scheduled. */
+    private final AtomicBoolean trailing = new AtomicBoolean(false);
+
+    MultiProgressCoalescer(int maxRate) {
+        this(maxRate, null);
+    }
+
+    MultiProgressCoalescer(int maxRate, @Nullable ScheduledExecutorService scheduler) {
+        this.intervalNanos = (maxRate > 0) ? (SECONDS.toNanos(1) / maxRate) : 0L;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Start accumulating the progress steps of the bar, the bar is registered
+     * if absent.
+     * 
+     * @param id
+     * @param title
+     * @param whole
+     * @param writer
+     */
+    void begin(String id, String title, int whole, Consumer<MultiProgressSignal> writer) {
+        obtain(id, whole).start(title, whole);
+        tryEmit(true, writer);
+    }
+
+    /**
+     * Update the absolute progress of the bar, the bar is registered if
+     * absent.
+     * 
+     * @param id
+     * @param title
+     * @param whole
+     * @param progress
+     * @param writer
+     */
+    void update(String id, String title, int whole, int progress, Consumer<MultiProgressSignal> writer) {
+        obtain(id, whole).set(title, whole, progress);
+        tryEmit(progress >= whole, writer);
+    }
+
+    /**
+     * Accumulate the progress steps of the bar.
+     * 
+     * @param id
+     * @param delta
+     * @param writer
+     */
+    void step(String id, long delta, Consumer<MultiProgressSignal> writer) {
+        ProgressCoalescer bar = bars.get(id);
+        notNull(bar, "No such progress '%s', please begin it first.", id);
+        bar.add(delta);
+        // The completed bar is always emitted.
+        tryEmit(bar.getProgress() >= bar.getWhole(), writer);
+    }
+
+    /**
+     * Emit the latest changed bars if they have not been emitted.
+     * 
+     * @param writer
+     */
+    void flush(Consumer<MultiProgressSignal> writer) {
+        tryEmit(true, writer);
+    }
+
+    boolean isEmpty() {
+        return order.isEmpty();
+    }
+
+    private ProgressCoalescer obtain(String id, int whole) {
+        notNull(id, "Progress ID must not be null");
+        ProgressCoalescer bar = bars.get(id);
+        if (nonNull(bar)) {
+            return bar;
+        }
+        synchronized (this) {
+            return bars.computeIfAbsent(id, key -> {
+                order.add(key);
+                return new ProgressCoalescer(whole, 0);
+            });
+        }
+    }
+
+    private void tryEmit(boolean force, Consumer<MultiProgressSignal> writer) {
+        if (intervalNanos > 0 && !force) {
+            long now = nanoTime();
+            long next = nextEmitNanos.get();
+            // Not yet due, or other thread wins the slot.
+            if (now - next < 0 || !nextEmitNanos.compareAndSet(next, now + intervalNanos)) {
+                scheduleTrailing(writer);
+                return;
+            }
+        }
+        emit(writer);
+    }
+
+    /**
+     * Schedule the trailing emission of the suppressed updates one interval
+     * later, at most one is pending.
+     * 
+     * @param writer
+     */
+    private void scheduleTrailing(Consumer<MultiProgressSignal> writer) {
+        if (isNull(scheduler) || !trailing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.schedule(() -> {
+                trailing.set(false);
+                nextEmitNanos.set(nanoTime() + intervalNanos);
+                emit(writer);
+            }, intervalNanos, NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            trailing.set(false); // Shutting down
+        }
+    }
+
+    private synchronized void emit(Consumer<MultiProgressSignal> writer) {
+        LinkedHashMap<String, ProgressSignal> changes = new LinkedHashMap<>();
+        for (String id : order) {
+            ProgressSignal changed = bars.get(id).poll();
+            if (nonNull(changed)) {
+                changes.put(id, changed);
+            }
+        }
+        if (!changes.isEmpty()) {
+            writer.accept(new MultiProgressSignal(++sequence, changes));
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.isNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import com.wl4g.shell.common.signal.ProgressSignal;
+
+/**
+ * Coalescer of the progress updates of the shell channel, at most N progress
+ * signals per second are emitted, the intermediate updates are coalesced and
+ * only the latest value is emitted, the final value is always emitted (e.g.
+ * reaches the whole, or {@link #flush(Consumer)} on completion). The
+ * suppressed updates are flushed by the trailing emission one interval later,
+ * so the progress never stalls when the updates stop before completion.
+ * 
+ * <p>
+ * The updates are safe to call from many worker threads, the hot path is a
+ * striped {@link LongAdder} accumulation (or a plain write of the absolute
+ * progress) and a clock check, only the thread winning the emission slot
+ * takes the snapshot and writes to the channel.
+ * </p>
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-24
+ * @since v1.0
+ */
+class ProgressCoalescer {
+
+    /** Minimum interval of the emissions, 0 means no throttling. */
+    private final long intervalNanos;
+
+    /** Latest progress title, null if never updated. */
+    private volatile String title;
+
+    /** Latest progress whole. */
+    private volatile int whole;
+
+    /** Whether the progress is accumulated by steps or absolute. */
+    private volatile boolean accumulating;
+
+    /** Latest absolute progress. */
+    private final AtomicInteger absolute = new AtomicInteger(0);
+
+    /** Accumulated progress steps. */
+    private final LongAdder accumulated = new LongAdder();
+
+    /** Next emission slot of nano time. */
+    private final AtomicLong nextEmitNanos = new AtomicLong(nanoTime());
+
+    /** Last emitted progress signal, guarded by this. */
+    private ProgressSignal emitted;
+
+    /** Scheduler of the trailing emissions, null if not supported. */
+    private final @Nullable ScheduledExecutorService scheduler;
+
+    /** Whether the trailing emission is scheduled. */
+    private final AtomicBoolean trailing = new AtomicBoolean(false);
+
+    ProgressCoalescer(int whole, int maxRate) {
+        this(whole, maxRate, null);
+    }
+
+    ProgressCoalescer(int whole, int maxRate, @Nullable ScheduledExecutorService scheduler) {
+        this.intervalNanos = (maxRate > 0) ? (SECONDS.toNanos(1) / maxRate) : 0L;
+        this.whole = whole;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Update the absolute progress.
+     * 
+     * @param title
+     * @param whole
+     * @param progress
+     * @param writer
+     */
+    void update(String title, int whole, int progress, Consumer<ProgressSignal> writer) {
+        set(title, whole, progress);
+        tryEmit(progress >= whole, writer);
+    }
+
+    /**
+     * Start accumulating the progress steps.
+     * 
+     * @param title
+     * @param whole
+     * @param writer
+     */
+    void begin(String title, int whole, Consumer<ProgressSignal> writer) {
+        start(title, whole);
+        tryEmit(true, writer);
+    }
+
+    /**
+     * Accumulate the progress steps.
+     * 
+     * @param delta
+     * @param writer
+     */
+    void step(long delta, Consumer<ProgressSignal> writer) {
+        accumulated.add(delta);
+        // The completed progress is always emitted.
+        tryEmit(accumulating && accumulated.sum() >= whole, writer);
+    }
+
+    /**
+     * Emit the latest progress if it has not been emitted.
+     * 
+     * @param writer
+     */
+    void flush(Consumer<ProgressSignal> writer) {
+        tryEmit(true, writer);
+    }
+
+    /**
+     * Record the absolute progress without emitting.
+     * 
+     * @param title
+     * @param whole
+     * @param progress
+     */
+    void set(String title, int whole, int progress) {
+        this.title = title;
+        this.whole = whole;
+        this.absolute.set(progress);
+        this.accumulating = false;
+    }
+
+    /**
+     * Start accumulating the progress steps without emitting.
+     * 
+     * @param title
+     * @param whole
+     */
+    void start(String title, int whole) {
+        this.title = title;
+        this.whole = whole;
+        this.accumulated.reset();
+        this.accumulating = true;
+    }
+
+    /**
+     * Accumulate the progress steps without emitting.
+     * 
+     * @param delta
+     */
+    void add(long delta) {
+        accumulated.add(delta);
+    }
+
+    /**
+     * Take the snapshot of the latest progress if it has changed since the
+     * last emitted.
+     * 
+     * @return null if unchanged.
+     */
+    synchronized ProgressSignal poll() {
+        String title = this.title;
+        int whole = this.whole;
+        int progress = getProgress();
+        // Skip the never updated or unchanged progress.
+        if (isNull(title)) {
+            return null;
+        }
+        if (!isNull(emitted) && emitted.getWhole() == whole && emitted.getProgress() == progress
+                && Objects.equals(emitted.getTitle(), title)) {
+            return null;
+        }
+        return (emitted = new ProgressSignal(title, whole, progress));
+    }
+
+    /**
+     * Gets the latest progress (may be not emitted yet).
+     * 
+     * @return
+     */
+    int getProgress() {
+        int whole = this.whole;
+        long progress = accumulating ? accumulated.sum() : absolute.get();
+        return (int) max(0, min(progress, whole));
+    }
+
+    int getWhole() {
+        return whole;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    private void tryEmit(boolean force, Consumer<ProgressSignal> writer) {
+        if (intervalNanos > 0 && !force) {
+            long now = nanoTime();
+            long next = nextEmitNanos.get();
+            // Not yet due, or other thread wins the slot.
+            if (now - next < 0 || !nextEmitNanos.compareAndSet(next, now + intervalNanos)) {
+                scheduleTrailing(writer);
+                return;
+            }
+        }
+        emit(writer);
+    }
+
+    /**
+     * Schedule the trailing emission of the suppressed update one interval
+     * later, at most one is pending.
+     * 
+     * @param writer
+     */
+    private void scheduleTrailing(Consumer<ProgressSignal> writer) {
+        if (isNull(scheduler) || !trailing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.schedule(() -> {
+                trailing.set(false);
+                nextEmitNanos.set(nanoTime() + intervalNanos);
+                emit(writer);
+            }, intervalNanos, NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            trailing.set(false); // Shutting down
+        }
+    }
+
+    private synchronized void emit(Consumer<ProgressSignal> writer) {
+        ProgressSignal signal = poll();
+        if (!isNull(signal)) {
+            writer.accept(signal);
+        }
+    }
+
+}
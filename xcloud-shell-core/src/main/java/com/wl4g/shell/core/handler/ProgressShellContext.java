@@ -16,18 +16,34 @@
 package com.wl4g.shell.core.handler;
 
 import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
 import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import com.wl4g.component.common.annotation.Reserved;
 import com.wl4g.component.common.log.SmartLogger;
-import com.wl4g.component.common.math.Maths;
 import com.wl4g.shell.common.exception.ChannelShellException;
 import com.wl4g.shell.common.exception.NoSupportedInterruptShellException;
 import com.wl4g.shell.common.exception.ProgressShellException;
+import com.wl4g.shell.common.exception.ShellException;
+import com.wl4g.shell.common.signal.MultiProgressSignal;
 import com.wl4g.shell.common.signal.ProgressSignal;
 
 /**
@@ -45,11 +61,36 @@ public class ProgressShellContext extends BaseShellContext {
 	 */
 	protected ProgressSignal lastProgressed = new ProgressSignal(getClass().getSimpleName(), DEFAULT_WHOLE, 0);
 
+	/**
+	 * Coalescer of the progress updates, see:
+	 * {@link com.wl4g.shell.core.config.ServerShellProperties#getProgressMaxRate()}
+	 */
+	private final ProgressCoalescer coalescer;
+
+	/**
+	 * Writer of the coalesced progress signals.
+	 */
+	private final Consumer<ProgressSignal> writer = signal -> printf0(lastProgressed = signal);
+
+	/**
+	 * Coalescer of the multiple concurrent progress bars.
+	 */
+	private final MultiProgressCoalescer multiCoalescer;
+
+	/**
+	 * Writer of the coalesced multiple progress signals.
+	 */
+	private final Consumer<MultiProgressSignal> multiWriter = signal -> printf0(signal);
+
 	private ProgressShellContext() {
+		this.coalescer = new ProgressCoalescer(DEFAULT_WHOLE, 0);
+		this.multiCoalescer = new MultiProgressCoalescer(0);
 	}
 
 	ProgressShellContext(BaseShellContext context) {
 		super(context);
+		this.coalescer = new ProgressCoalescer(DEFAULT_WHOLE, getChannel().getProgressMaxRate(), getChannel().getScheduler());
+		this.multiCoalescer = new MultiProgressCoalescer(getChannel().getProgressMaxRate(), getChannel().getScheduler());
 	}
 
 	/**
@@ -63,8 +104,8 @@ public class ProgressShellContext extends BaseShellContext {
 		isTrue(currentProgressPercent >= 0 && currentProgressPercent <= 1, "Progress percentage must be between 0 and 1");
 		// checkCurrentProgressRight(currentProgressPercent);
 
-		int curProgressWithDefault = Maths.multiply(DEFAULT_WHOLE, currentProgressPercent).intValue();
-		return (ProgressShellContext) printf0(lastProgressed = new ProgressSignal(title, DEFAULT_WHOLE, curProgressWithDefault));
+		coalescer.update(title, DEFAULT_WHOLE, (int) (DEFAULT_WHOLE * currentProgressPercent), writer);
+		return this;
 	}
 
 	/**
@@ -77,7 +118,86 @@ public class ProgressShellContext extends BaseShellContext {
 	 */
 	public ProgressShellContext printf(String title, int whole, int currentProgress) throws ChannelShellException {
 		// checkCurrentProgressRight(currentProgress);
-		return (ProgressShellContext) printf0(lastProgressed = new ProgressSignal(title, whole, currentProgress));
+		isTrue(currentProgress >= 0 && currentProgress <= whole,
+				format("Illegal progress arguments, progress: %s, whole: %s", currentProgress, whole));
+		coalescer.update(title, whole, currentProgress, writer);
+		return this;
+	}
+
+	/**
+	 * Start the progress accumulated by the steps, e.g. each of the items
+	 * processed calls {@link #step()}, which is cheap and safe to call from
+	 * many worker threads.
+	 *
+	 * @param title
+	 * @param whole
+	 * @return
+	 */
+	public ProgressShellContext begin(String title, int whole) throws ChannelShellException {
+		isTrue(whole >= 0, format("Illegal progress whole: %s", whole));
+		coalescer.begin(title, whole, writer);
+		return this;
+	}
+
+	/**
+	 * Accumulate one step of the progress started by
+	 * {@link #begin(String, int)}.
+	 */
+	public void step() throws ChannelShellException {
+		coalescer.step(1L, writer);
+	}
+
+	/**
+	 * Accumulate the steps of the progress started by
+	 * {@link #begin(String, int)}.
+	 *
+	 * @param delta
+	 */
+	public void step(long delta) throws ChannelShellException {
+		coalescer.step(delta, writer);
+	}
+
+	/**
+	 * Start the progress bar of the ID accumulated by the steps, the multiple
+	 * progress bars (e.g. the partitions processed concurrently) are rendered
+	 * together by the client, and only the changed bars are sent.
+	 *
+	 * @param id
+	 * @param title
+	 * @param whole
+	 * @return
+	 */
+	public ProgressShellContext begin(String id, String title, int whole) throws ChannelShellException {
+		isTrue(whole >= 0, format("Illegal progress whole: %s", whole));
+		multiCoalescer.begin(id, title, whole, multiWriter);
+		return this;
+	}
+
+	/**
+	 * Accumulate the steps of the progress bar started by
+	 * {@link #begin(String, String, int)}.
+	 *
+	 * @param id
+	 * @param delta
+	 */
+	public void step(String id, long delta) throws ChannelShellException {
+		multiCoalescer.step(id, delta, multiWriter);
+	}
+
+	/**
+	 * Output the number of current progress of the progress bar of the ID.
+	 *
+	 * @param id
+	 * @param title
+	 * @param whole
+	 * @param currentProgress
+	 * @return
+	 */
+	public ProgressShellContext printf(String id, String title, int whole, int currentProgress) throws ChannelShellException {
+		isTrue(currentProgress >= 0 && currentProgress <= whole,
+				format("Illegal progress arguments, progress: %s, whole: %s", currentProgress, whole));
+		multiCoalescer.update(id, title, whole, currentProgress, multiWriter);
+		return this;
 	}
 
 	/**
@@ -91,7 +211,19 @@ public class ProgressShellContext extends BaseShellContext {
 	 * @see {@link #completed()}
 	 */
 	public void completed(String message) throws ChannelShellException {
-		printf(message, getProgressed());
+		coalescer.update(message, coalescer.getWhole(), coalescer.getProgress(), writer);
+		completed();
+	}
+
+	/**
+	 * The latest coalesced progress is always delivered before completing.
+	 */
+	@Override
+	public synchronized void completed() throws ChannelShellException {
+		coalescer.flush(writer);
+		if (!multiCoalescer.isEmpty()) {
+			multiCoalescer.flush(multiWriter);
+		}
 		super.completed();
 	}
 
@@ -101,7 +233,118 @@ public class ProgressShellContext extends BaseShellContext {
 	 * @return
 	 */
 	public float getProgressed() {
-		return Maths.divide(lastProgressed.getProgress(), lastProgressed.getWhole()).floatValue();
+		int whole = coalescer.getWhole();
+		return (whole > 0) ? ((float) coalescer.getProgress() / whole) : 0f;
+	}
+
+	/**
+	 * Execute the workload in parallel on a bounded pool of the worker threads,
+	 * see: {@link #parallel(String, List, int, ExecutorService, ParallelTask)}
+	 *
+	 * @param title
+	 * @param items
+	 * @param parallelism
+	 * @param task
+	 * @return The results in the order of the items.
+	 */
+	public <T, R> List<R> parallel(String title, List<T> items, int parallelism, ParallelTask<T, R> task)
+			throws ShellException {
+		isTrue(parallelism > 0, format("parallelism must greater than 0, actual is %s", parallelism));
+		final int workers = min(parallelism, max(notNullOf(items, "items").size(), 1));
+		final AtomicInteger incr = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+			Thread t = new Thread(r, getClass().getSimpleName() + "-parallel-" + incr.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			return parallel(title, items, workers, executor, task);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Execute the workload in parallel, the items are pulled by the workers
+	 * one by one (so the uneven items are balanced), the progress of all the
+	 * workers is aggregated into one progress bar by the striped counters. The
+	 * current shell context is bound to the workers (see:
+	 * {@link UserShellContextBinders#get()}), and the cancellation of the
+	 * command interrupts the workers. The first failure of the workers stops
+	 * the remaining items.
+	 *
+	 * @param title
+	 * @param items
+	 * @param parallelism
+	 *            number of the workers.
+	 * @param executor
+	 * @param task
+	 * @return The results in the order of the items.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T, R> List<R> parallel(String title, List<T> items, int parallelism, ExecutorService executor,
+			ParallelTask<T, R> task) throws ShellException {
+		notNullOf(items, "items");
+		notNullOf(executor, "executor");
+		notNullOf(task, "task");
+		isTrue(parallelism > 0, format("parallelism must greater than 0, actual is %s", parallelism));
+
+		final Object[] results = new Object[items.size()];
+		final AtomicInteger cursor = new AtomicInteger(0);
+		final AtomicBoolean aborted = new AtomicBoolean(false);
+		final List<Future<?>> futures = new ArrayList<>(parallelism);
+		begin(title, items.size());
+
+		for (int w = 1; w <= parallelism; w++) {
+			final ParallelWorker worker = new ParallelWorker(this, w);
+			futures.add(executor.submit(() -> {
+				UserShellContextBinders.bind(this);
+				try {
+					for (int i; !aborted.get() && (i = cursor.getAndIncrement()) < items.size();) {
+						if (getCancellationToken().isCancelled()) {
+							break;
+						}
+						results[i] = task.execute(items.get(i), worker);
+						step();
+					}
+				} catch (Throwable e) {
+					aborted.set(true);
+					throw e;
+				} finally {
+					UserShellContextBinders.unbind();
+				}
+				return null;
+			}));
+		}
+		getCancellationToken().onCancel(() -> futures.forEach(f -> f.cancel(true)));
+
+		// Wait for all the workers.
+		Throwable failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (CancellationException e) {
+				// Cancelled by the command cancellation.
+			} catch (ExecutionException e) {
+				if (isNull(failure)) {
+					failure = e.getCause();
+					futures.forEach(f -> f.cancel(true));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				aborted.set(true);
+				futures.forEach(f -> f.cancel(true));
+				throw new ShellException(format("Interrupted parallel tasks of '%s'", title), e);
+			}
+		}
+		getCancellationToken().throwIfCancelled();
+		if (nonNull(failure)) {
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			throw new ShellException(format("Failed to parallel tasks of '%s'", title), failure);
+		}
+		return (List<R>) asList(results);
 	}
 
 	/**
@@ -161,6 +404,14 @@ public class ProgressShellContext extends BaseShellContext {
 			return context;
 		}
 
+		/**
+		 * Unbind shell context of the current thread, e.g. the pooled worker
+		 * threads.
+		 */
+		public static void unbind() {
+			contextCache.remove();
+		}
+
 		/**
 		 * Got current bind {@link ProgressShellContext}. 
 		 * 
@@ -186,6 +437,56 @@ public class ProgressShellContext extends BaseShellContext {
 
 	}
 
+	/**
+	 * The task of each item of the parallel workload.
+	 *
+	 * @param <T>
+	 * @param <R>
+	 */
+	@FunctionalInterface
+	public static interface ParallelTask<T, R> {
+
+		/**
+		 * Execute the item on the worker thread.
+		 *
+		 * @param item
+		 * @param worker
+		 * @return
+		 * @throws Exception
+		 */
+		R execute(T item, ParallelWorker worker) throws Exception;
+	}
+
+	/**
+	 * The worker of the parallel workload, the outputs of the workers are
+	 * tagged by the worker ID.
+	 */
+	public static final class ParallelWorker {
+		private final ProgressShellContext context;
+		private final int id;
+
+		private ParallelWorker(ProgressShellContext context, int id) {
+			this.context = context;
+			this.id = id;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * Output the message tagged by the worker to the client console.
+		 *
+		 * @param message
+		 * @return
+		 */
+		public ParallelWorker printf(String message) throws ChannelShellException {
+			context.printf0(format("[worker-%s] %s", id, message));
+			return this;
+		}
+
+	}
+
 	/**
 	 * {@link NoOpProgressShellContext}
 	 * 
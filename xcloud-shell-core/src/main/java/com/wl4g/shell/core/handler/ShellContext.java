@@ -51,6 +51,15 @@ public interface ShellContext extends ShellAware {
 	 */
 	boolean isInterrupted() throws NoSupportedInterruptShellException;
 
+	/**
+	 * Gets the cooperative cancellation token of the current command, it is
+	 * cancelled when the command deadline expires or the client interrupts
+	 * (interruptible commands only).
+	 * 
+	 * @return
+	 */
+	CancellationToken getCancellationToken();
+
 	/**
 	 * Get unmodifiable event listeners.
 	 * 
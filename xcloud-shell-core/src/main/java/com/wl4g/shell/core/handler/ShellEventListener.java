@@ -55,6 +55,7 @@ public interface ShellEventListener extends EventListener {
 	default void onInterrupt(BaseShellContext context, boolean confirm) {
 		if (confirm) {
 			context.setState(ChannelState.INTERRUPTED);
+			context.cancelIfInterruptible();
 		}
 	}
 
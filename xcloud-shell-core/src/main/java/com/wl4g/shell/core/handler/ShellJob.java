@@ -0,0 +1,479 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.hasTextOf;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.joining;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.common.signal.EOFStdoutSignal;
+import com.wl4g.shell.common.signal.MultiProgressSignal;
+import com.wl4g.shell.common.signal.ProgressSignal;
+import com.wl4g.shell.common.signal.Signal;
+import com.wl4g.shell.common.signal.StderrSignal;
+import com.wl4g.shell.common.signal.StdoutSignal;
+import com.wl4g.shell.common.signal.TableSignal;
+import com.wl4g.shell.core.handler.EmbeddedShellServer.ServerSignalHandler;
+
+/**
+ * Detached background job of the shell command, the job is not bound to the
+ * launching channel, its outputs are retained in {@link ShellJobOutput} and
+ * forwarded to the attached channel (if any), so it survives the client
+ * disconnection.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-10
+ * @since v1.0
+ */
+class ShellJob {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** Job ID. */
+    private final String jobId;
+
+    /** Launching command line. */
+    private final String line;
+
+    /** Launching user(or session ID if ACL is disabled). */
+    private final String owner;
+
+    /** Bounded output of the job. */
+    private final ShellJobOutput output;
+
+    /** Job create timestamp. */
+    private final long createTime = currentTimeMillis();
+
+    /** Job start timestamp. */
+    private volatile long startTime = 0L;
+
+    /** Job end timestamp. */
+    private volatile long endTime = 0L;
+
+    /** Job state. */
+    private volatile JobState state = JobState.PENDING;
+
+    /** Current shell context of executing job. */
+    private volatile BaseShellContext context;
+
+    /** Future of the executing job. */
+    private volatile Future<?> future;
+
+    /** Whether the job has been killed. */
+    private volatile boolean killed = false;
+
+    /** Current attached channel. */
+    private ServerSignalHandler attached;
+
+    /**
+     * Pending outputs to forward to the channels, the outputs are queued under
+     * the job lock and written to the network outside of it, so that a slow
+     * channel never blocks the job (and the other callers of the job lock).
+     */
+    private final Deque<Forwarding> forwardings = new ArrayDeque<>();
+
+    /** Whether a thread is forwarding the pending outputs. */
+    private boolean forwarding = false;
+
+    ShellJob(String jobId, String line, String owner, ShellJobOutput output) {
+        this.jobId = hasTextOf(jobId, "jobId");
+        this.line = hasTextOf(line, "line");
+        this.owner = owner;
+        this.output = notNullOf(output, "output");
+    }
+
+    String getJobId() {
+        return jobId;
+    }
+
+    String getLine() {
+        return line;
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    JobState getState() {
+        return state;
+    }
+
+    boolean isKilled() {
+        return killed;
+    }
+
+    boolean isFinished() {
+        return state.isFinished();
+    }
+
+    long getEndTime() {
+        return endTime;
+    }
+
+    BaseShellContext getContext() {
+        return context;
+    }
+
+    void setContext(BaseShellContext context) {
+        this.context = notNullOf(context, "context");
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Mark the job as running, if it has not been killed before starting.
+     *
+     * @return
+     */
+    synchronized boolean start() {
+        if (state != JobState.PENDING) {
+            return false;
+        }
+        state = JobState.RUNNING;
+        startTime = currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Finish the job, and end the output of the attached channel.
+     *
+     * @param finalState
+     */
+    void finish(JobState finalState) {
+        synchronized (this) {
+            if (isFinished()) {
+                return;
+            }
+            state = finalState;
+            endTime = currentTimeMillis();
+            output.close();
+            log.info("Finished shell job: {}", this);
+            if (nonNull(attached)) {
+                enqueue(attached, new StdoutSignal(format("[%s] %s", jobId, finalState)), true);
+                enqueue(attached, new EOFStdoutSignal(), true);
+                attached = null;
+            }
+        }
+        forward();
+    }
+
+    /**
+     * Kill the job, the running job will be interrupted.
+     */
+    void kill() {
+        if (isFinished()) {
+            return;
+        }
+        killed = true;
+        synchronized (this) {
+            // Not yet started.
+            if (state == JobState.PENDING) {
+                finish(JobState.KILLED);
+            }
+        }
+        BaseShellContext ctx = context;
+        if (nonNull(ctx)) {
+            ctx.getUnmodifiableEventListeners().forEach(l -> l.onInterrupt(ctx, true));
+        }
+        Future<?> f = future;
+        if (nonNull(f)) {
+            f.cancel(true);
+        }
+    }
+
+    /**
+     * Write the job output, it's retained to the buffer and forwarded to the
+     * attached channel (outside of the job lock).
+     *
+     * @param message
+     *            see: {@link BaseShellContext#printf0(Object)}, the errors
+     *            must have been converted to {@link StderrSignal} (kept with
+     *            the error ID).
+     */
+    void write(Object message) {
+        String text = null;
+        Signal forward = null;
+        if (message instanceof CharSequence) {
+            text = message.toString();
+            forward = new StdoutSignal(text);
+        } else if (message instanceof StderrSignal) {
+            text = formatStderr((StderrSignal) message);
+            forward = (Signal) message;
+        } else if (message instanceof ProgressSignal) {
+            ProgressSignal pro = (ProgressSignal) message;
+            text = format("%s [%s/%s]", pro.getTitle(), pro.getProgress(), pro.getWhole());
+            forward = pro;
+        } else if (message instanceof MultiProgressSignal) {
+            text = formatMultiProgress((MultiProgressSignal) message);
+            forward = (Signal) message;
+        } else if (message instanceof TableSignal) {
+            text = formatTable((TableSignal) message);
+            forward = (Signal) message;
+        } else if (message instanceof StdoutSignal) {
+            text = ((StdoutSignal) message).getContent();
+            forward = (Signal) message;
+        } else {
+            // e.g. BOF/EOF and paging asking, the job is not interactive.
+            return;
+        }
+        synchronized (this) {
+            for (String l : valueOf(text).split("\n")) {
+                output.append(l);
+            }
+            if (nonNull(attached)) {
+                enqueue(attached, forward, false);
+            }
+        }
+        forward();
+    }
+
+    /**
+     * Format the error descriptor to the line, with the error ID to fetch the
+     * full stacktrace.
+     *
+     * @param stderr
+     * @return
+     */
+    static String formatStderr(StderrSignal stderr) {
+        if (isBlank(stderr.getErrorId())) {
+            return "-ERROR: " + stderr.getDescription();
+        }
+        return format("-ERROR: %s (errorId: %s)", stderr.getDescription(), stderr.getErrorId());
+    }
+
+    /**
+     * Format the changed bars of the multiple progress signal to the lines.
+     *
+     * @param multi
+     * @return
+     */
+    static String formatMultiProgress(MultiProgressSignal multi) {
+        StringBuilder lines = new StringBuilder();
+        multi.getChanges().forEach((id, pro) -> {
+            if (lines.length() > 0) {
+                lines.append("\n");
+            }
+            lines.append(format("%s: %s [%s/%s]", id, pro.getTitle(), pro.getProgress(), pro.getWhole()));
+        });
+        return lines.toString();
+    }
+
+    /**
+     * Format the batch of the table signal to the tab separated lines.
+     *
+     * @param table
+     * @return
+     */
+    static String formatTable(TableSignal table) {
+        StringBuilder lines = new StringBuilder();
+        if (nonNull(table.getColumns())) {
+            lines.append(table.getColumns().stream().map(c -> c.getName()).collect(joining("\t")));
+        }
+        table.getRows().forEach(row -> {
+            if (lines.length() > 0) {
+                lines.append("\n");
+            }
+            lines.append(Arrays.stream(row).map(v -> valueOf(v)).collect(joining("\t")));
+        });
+        return lines.toString();
+    }
+
+    /**
+     * Release the job output after the job has been evicted.
+     */
+    void release() {
+        output.delete();
+    }
+
+    /**
+     * Gets the latest output lines of the job.
+     *
+     * @param n
+     * @return
+     */
+    List<String> tail(int n) {
+        return output.tail(n);
+    }
+
+    /**
+     * Attach the channel, the retained output is replayed first, and then the
+     * subsequent output is forwarded until the job finishes or detaches.
+     *
+     * @param channel
+     * @param replayLines
+     */
+    void attach(ServerSignalHandler channel, int replayLines) {
+        synchronized (this) {
+            List<String> lines = output.tail(replayLines);
+            if (!lines.isEmpty()) {
+                enqueue(channel, new StdoutSignal(String.join("\n", lines)), true);
+            }
+            if (isFinished()) {
+                enqueue(channel, new StdoutSignal(format("[%s] %s", jobId, state)), true);
+                enqueue(channel, new EOFStdoutSignal(), true);
+            } else {
+                // Only one attached channel, the previous one is detached.
+                if (nonNull(attached) && attached != channel) {
+                    enqueue(attached, new EOFStdoutSignal(), true);
+                }
+                attached = channel;
+            }
+        }
+        forward();
+    }
+
+    /**
+     * Detach the channel, the job continues running.
+     *
+     * @param channel
+     * @return Returns true if the channel was attached.
+     */
+    boolean detach(ServerSignalHandler channel) {
+        synchronized (this) {
+            if (isNull(attached) || attached != channel) {
+                return false;
+            }
+            enqueue(attached, new StdoutSignal(format("[%s] detached, %s", jobId, state)), true);
+            enqueue(attached, new EOFStdoutSignal(), true);
+            attached = null;
+        }
+        forward();
+        return true;
+    }
+
+    synchronized boolean isAttached(@Nullable ServerSignalHandler channel) {
+        return nonNull(attached) && attached == channel;
+    }
+
+    /**
+     * Queue the output to forward to the channel (under the job lock), when
+     * the channel can't keep up, the outputs exceeding the maximum pending
+     * are dropped from forwarding (they are still retained in the job output,
+     * see: {@link #tail(int)}), except the control outputs.
+     *
+     * @param channel
+     * @param message
+     * @param control
+     *            e.g. the replay, status and EOF outputs
+     */
+    private void enqueue(ServerSignalHandler channel, Signal message, boolean control) {
+        if (!control && forwardings.size() >= DEFAULT_MAX_PENDING_FORWARDINGS) {
+            log.debug("Dropped forwarding of job: {}, the attached channel is too slow.", jobId);
+            return;
+        }
+        forwardings.offer(new Forwarding(channel, message));
+    }
+
+    /**
+     * Write the pending outputs to the channels outside of the job lock, only
+     * one thread forwards at a time, so the outputs are kept in order.
+     */
+    private void forward() {
+        synchronized (this) {
+            if (forwarding) {
+                return;
+            }
+            forwarding = true;
+        }
+        while (true) {
+            Forwarding f;
+            synchronized (this) {
+                f = forwardings.poll();
+                if (isNull(f)) {
+                    forwarding = false;
+                    return;
+                }
+            }
+            try {
+                if (f.channel.isActive()) {
+                    f.channel.writeFlush(f.message);
+                    continue;
+                }
+            } catch (Throwable th) {
+                log.debug("Failed to forward job output to attached channel. {}", th.getMessage());
+            }
+            // Disconnected, auto detach.
+            synchronized (this) {
+                if (attached == f.channel) {
+                    attached = null;
+                }
+                forwardings.removeIf(p -> p.channel == f.channel);
+            }
+        }
+    }
+
+    /**
+     * Gets the job summary line.
+     *
+     * @return
+     */
+    String toSummary() {
+        long begin = (startTime > 0) ? startTime : createTime;
+        long elapsed = ((endTime > 0) ? endTime : currentTimeMillis()) - begin;
+        return format("[%s]  %-9s  %6ss  %-10s  %s", jobId, state, elapsed / 1000, valueOf(owner), line);
+    }
+
+    @Override
+    public String toString() {
+        return "ShellJob [jobId=" + jobId + ", state=" + state + ", owner=" + owner + ", line=" + line + ", outputs="
+                + output.getTotal() + "]";
+    }
+
+    /**
+     * Pending output to forward to the channel.
+     */
+    private static class Forwarding {
+        private final ServerSignalHandler channel;
+        private final Signal message;
+
+        private Forwarding(ServerSignalHandler channel, Signal message) {
+            this.channel = channel;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Detached background job states.
+     */
+    static enum JobState {
+        PENDING, RUNNING, COMPLETED, FAILED, KILLED;
+
+        boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == KILLED;
+        }
+    }
+
+    /** Maximum number of pending outputs to forward to the attached channel. */
+    private static final int DEFAULT_MAX_PENDING_FORWARDINGS = 1024;
+
+}
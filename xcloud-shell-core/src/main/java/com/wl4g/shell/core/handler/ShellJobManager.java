@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.common.exception.ShellException;
+import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.handler.EmbeddedShellServer.ServerSignalHandler;
+
+/**
+ * Detached background jobs manager, the jobs are executed on the dedicated
+ * bounded pool (independent of the channel workers), and retained until
+ * evicted.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-10
+ * @since v1.0
+ */
+class ShellJobManager implements Closeable {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** Shell configuration. */
+    private final ServerShellProperties config;
+
+    /** Retained jobs, jobId -> job. */
+    private final Map<String, ShellJob> jobs = new ConcurrentHashMap<>();
+
+    /** Job ID generator. */
+    private final AtomicInteger jobIdGenerator = new AtomicInteger(0);
+
+    /**
+     * Current run ID of the process, the job IDs restart on every process
+     * start, it distinguishes the spill files of the different runs.
+     */
+    private final String runId = Long.toString(currentTimeMillis(), 36);
+
+    /** Dedicated bounded jobs executor. */
+    private final ThreadPoolExecutor jobExecutor;
+
+    ShellJobManager(ServerShellProperties config) {
+        this.config = notNullOf(config, "config");
+        final AtomicInteger incr = new AtomicInteger(0);
+        this.jobExecutor = new ThreadPoolExecutor(config.getJobMaxConcurrency(), config.getJobMaxConcurrency(), 0, SECONDS,
+                new LinkedBlockingQueue<>(config.getJobQueueCapacity()), r -> {
+                    Thread t = new Thread(r, getClass().getSimpleName() + "-job-" + incr.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Submit the detached background job.
+     *
+     * @param line
+     * @param owner
+     * @param runner
+     *            executes the job command on the job thread
+     * @return
+     */
+    ShellJob submit(String line, String owner, Consumer<ShellJob> runner) {
+        evictFinished(1);
+
+        String jobId = String.valueOf(jobIdGenerator.incrementAndGet());
+        File spillFile = isBlank(config.getJobSpillDir()) ? null : new File(config.getJobSpillDir(),
+                "job-" + runId + "-" + jobId + ".log");
+        ShellJob job = new ShellJob(jobId, line, owner, new ShellJobOutput(config.getJobOutputBufferLines(), spillFile,
+                config.getJobSpillMaxBytes()));
+        jobs.put(jobId, job);
+        try {
+            job.setFuture(jobExecutor.submit(() -> {
+                try {
+                    if (job.start()) {
+                        runner.accept(job);
+                    }
+                } finally {
+                    // Evict when the jobs finish, not only on the submissions.
+                    evictFinished(0);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            throw new ShellException(String.format("Too many background jobs, maximum running: %s, waiting: %s",
+                    config.getJobMaxConcurrency(), config.getJobQueueCapacity()));
+        }
+        log.info("Submitted shell job: {}", job);
+        return job;
+    }
+
+    ShellJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Gets all retained jobs, order by jobId.
+     *
+     * @return
+     */
+    List<ShellJob> list() {
+        return jobs.values().stream().sorted(comparingLong(j -> Long.parseLong(j.getJobId()))).collect(toList());
+    }
+
+    /**
+     * Detach the disconnected channel from all jobs.
+     *
+     * @param channel
+     */
+    void detachAll(ServerSignalHandler channel) {
+        jobs.values().forEach(j -> j.detach(channel));
+    }
+
+    /**
+     * Evict the oldest finished jobs that exceed the maximum retained.
+     *
+     * @param reserved
+     *            the number of jobs to reserve, e.g. the submitting job
+     */
+    private void evictFinished(int reserved) {
+        int excess = jobs.size() - config.getJobMaxRetained() + reserved;
+        if (excess <= 0) {
+            return;
+        }
+        List<ShellJob> finished = new ArrayList<>();
+        jobs.values().stream().filter(j -> j.isFinished()).sorted(comparingLong(j -> j.getEndTime())).limit(excess)
+                .forEach(j -> finished.add(j));
+        finished.forEach(j -> {
+            // Evicted concurrently by the other finishing jobs.
+            if (nonNull(jobs.remove(j.getJobId()))) {
+                j.release();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        jobs.values().forEach(j -> j.kill());
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Find the job that the channel is attached.
+     *
+     * @param channel
+     * @return
+     */
+    ShellJob getAttached(ServerSignalHandler channel) {
+        for (ShellJob job : jobs.values()) {
+            if (job.isAttached(channel)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    boolean hasAttached(ServerSignalHandler channel) {
+        return nonNull(getAttached(channel));
+    }
+
+}
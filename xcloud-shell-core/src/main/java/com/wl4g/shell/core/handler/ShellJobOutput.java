@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.nonNull;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.wl4g.component.common.log.SmartLogger;
+
+/**
+ * Bounded output of the detached background job, the latest lines are
+ * retained in the ring buffer, and the full output is optionally spilled to
+ * the file (up to the maximum bytes).
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-10
+ * @since v1.0
+ */
+class ShellJobOutput implements Closeable {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** Ring buffer of the latest output lines. */
+    private final String[] ring;
+
+    /** Total number of appended lines. */
+    private long total = 0L;
+
+    /** Spill file of the full output. */
+    private final File spillFile;
+
+    /** Maximum bytes of the spill file. */
+    private final long spillMaxBytes;
+
+    /** Spilled bytes. */
+    private long spilledBytes = 0L;
+
+    /** Spill file writer, null if spilling is disabled, failed or full. */
+    private BufferedWriter spill;
+
+    ShellJobOutput(int capacity, @Nullable File spillFile, long spillMaxBytes) {
+        isTrue(capacity > 0, "Job output capacity must greater than 0");
+        isTrue(spillMaxBytes > 0, "Job output spillMaxBytes must greater than 0");
+        this.ring = new String[capacity];
+        this.spillFile = spillFile;
+        this.spillMaxBytes = spillMaxBytes;
+        if (nonNull(spillFile)) {
+            try {
+                spillFile.getParentFile().mkdirs();
+                // Truncate the stale output, e.g. left by the previous crash.
+                this.spill = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spillFile, false), UTF_8));
+            } catch (IOException e) {
+                log.warn("Failed to open job output spill file: {}. {}", spillFile, e.getMessage());
+            }
+        }
+    }
+
+    File getSpillFile() {
+        return spillFile;
+    }
+
+    synchronized long getTotal() {
+        return total;
+    }
+
+    synchronized void append(String line) {
+        ring[(int) (total % ring.length)] = line;
+        ++total;
+        if (nonNull(spill)) {
+            try {
+                byte[] data = line.getBytes(UTF_8);
+                if (spilledBytes + data.length + 1 > spillMaxBytes) {
+                    spill.write(TRUNCATED_MARK);
+                    spill.newLine();
+                    log.warn("Job output spill file: {} exceeds the maximum bytes: {}, spilling stopped.", spillFile,
+                            spillMaxBytes);
+                    closeSpill();
+                    return;
+                }
+                spill.write(line);
+                spill.newLine();
+                spilledBytes += data.length + 1;
+            } catch (IOException e) {
+                log.warn("Failed to spill job output, spilling disabled. {}", e.getMessage());
+                closeSpill();
+            }
+        }
+    }
+
+    /**
+     * Gets the latest output lines retained in the ring buffer.
+     *
+     * @param n
+     * @return
+     */
+    synchronized List<String> tail(int n) {
+        int size = (int) Math.min(total, ring.length);
+        n = Math.max(Math.min(n, size), 0);
+        List<String> lines = new ArrayList<>(n);
+        for (long i = total - n; i < total; i++) {
+            lines.add(ring[(int) (i % ring.length)]);
+        }
+        if (nonNull(spill)) {
+            try {
+                spill.flush();
+            } catch (IOException e) {
+                log.warn("Failed to flush job output spill. {}", e.getMessage());
+            }
+        }
+        return lines;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSpill();
+    }
+
+    /**
+     * Close and delete the spill file, e.g. the job has been evicted.
+     */
+    synchronized void delete() {
+        closeSpill();
+        if (nonNull(spillFile) && spillFile.exists() && !spillFile.delete()) {
+            log.warn("Failed to delete job output spill file: {}", spillFile);
+        }
+    }
+
+    private void closeSpill() {
+        if (nonNull(spill)) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                log.warn("Failed to close job output spill. {}", e.getMessage());
+            }
+            spill = null;
+        }
+    }
+
+    /** Last line of the truncated spill file. */
+    private static final String TRUNCATED_MARK = "... (truncated, see the latest output by tail)";
+
+}
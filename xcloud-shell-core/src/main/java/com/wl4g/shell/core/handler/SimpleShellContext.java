@@ -15,7 +15,10 @@
  */
 package com.wl4g.shell.core.handler;
 
+import static java.util.Arrays.asList;
+
 import com.wl4g.shell.common.exception.ChannelShellException;
+import com.wl4g.shell.common.signal.TableSignal.Column;
 
 /**
  * {@link SimpleShellContext}
@@ -41,4 +44,15 @@ public class SimpleShellContext extends BaseShellContext {
 		return (SimpleShellContext) printf0(message);
 	}
 
+	/**
+	 * Open the structured table output, the rows are sent in batches and
+	 * rendered (or exported) by the client, don't forget to close it.
+	 *
+	 * @param columns
+	 * @return
+	 */
+	public TableWriter table(Column... columns) {
+		return new TableWriter(this, asList(columns), getChannel().getStreamBatchSize());
+	}
+
 }
\ No newline at end of file
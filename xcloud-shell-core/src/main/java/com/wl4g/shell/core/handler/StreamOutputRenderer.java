@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.shell.common.i18n.I18nResourceMessageBundles.getMessage;
+import static com.wl4g.shell.common.signal.ChannelState.INTERRUPTED;
+import static java.lang.String.valueOf;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.common.signal.AskMoreSignal;
+import com.wl4g.shell.core.config.ServerShellProperties;
+
+/**
+ * Lazy output renderer of the shell method result, when the shell method
+ * returns {@link Stream} or {@link Iterator}, the elements are pulled lazily
+ * and rendered in batches to the channel, pulling follows the client demand
+ * (paging), and terminates early when the client interrupts or stops paging.
+ * Note: {@link Iterable} results (e.g. collections) are not streamed, they are
+ * still rendered by {@link Object#toString()} as before.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-08
+ * @since v1.0
+ */
+class StreamOutputRenderer {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /** Shell configuration. */
+    private final ServerShellProperties config;
+
+    /** Current shell context of output channel. */
+    private final BaseShellContext context;
+
+    /** Waiting for the client confirm to pull the next page. */
+    private final BooleanSupplier moreAcker;
+
+    StreamOutputRenderer(ServerShellProperties config, BaseShellContext context, BooleanSupplier moreAcker) {
+        this.config = notNullOf(config, "config");
+        this.context = notNullOf(context, "context");
+        this.moreAcker = notNullOf(moreAcker, "moreAcker");
+    }
+
+    /**
+     * Render lazy output elements to the channel.
+     *
+     * @param output
+     *            the shell method output, see: {@link #isStreamingOutput(Object)}
+     * @return The number of rendered elements.
+     */
+    long render(Object output) {
+        Iterator<?> it = null;
+        if (output instanceof Stream) {
+            it = ((Stream<?>) output).iterator();
+        } else if (output instanceof Iterator) {
+            it = (Iterator<?>) output;
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported streaming output of '%s'", output));
+        }
+        // e.g. Stream backed by IO resources.
+        AutoCloseable closer = (output instanceof AutoCloseable) ? (AutoCloseable) output : null;
+
+        final int batchSize = config.getStreamBatchSize();
+        final int pageSize = config.getStreamPageSize();
+        final List<String> batch = new ArrayList<>(batchSize);
+        long count = 0;
+        try {
+            while (!isTerminated() && it.hasNext()) {
+                batch.add(valueOf(it.next()));
+                ++count;
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+                // Page is full, follow client demand.
+                if (pageSize > 0 && (count % pageSize) == 0 && it.hasNext()) {
+                    flush(batch);
+                    context.printf0(new AskMoreSignal(getMessage("label.paging.more"), count));
+                    if (!moreAcker.getAsBoolean()) {
+                        log.debug("Early termination of streaming output by client, outputed: {}", count);
+                        break;
+                    }
+                }
+            }
+            if (!isTerminated()) {
+                flush(batch);
+            }
+        } finally {
+            if (nonNull(closer)) {
+                try {
+                    closer.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close streaming output. {}", e.getMessage());
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Flush batch elements to the channel.
+     *
+     * @param batch
+     */
+    private void flush(List<String> batch) {
+        if (!batch.isEmpty()) {
+            context.printf0(String.join("\n", batch));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Check whether the current output has been interrupted by the client or
+     * the channel is closed.
+     *
+     * @return
+     */
+    private boolean isTerminated() {
+        if (context.getState() == INTERRUPTED) {
+            return true;
+        }
+        // Detached background job survives the channel disconnection.
+        return isNull(context.getJob()) && !context.getChannel().isActive();
+    }
+
+    /**
+     * Check whether the output of the shell method requires lazy rendering.
+     *
+     * @param output
+     * @return
+     */
+    static boolean isStreamingOutput(Object output) {
+        return (output instanceof Stream) || (output instanceof Iterator);
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.lang.Assert2.state;
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.wl4g.shell.common.exception.ChannelShellException;
+import com.wl4g.shell.common.signal.TableSignal;
+import com.wl4g.shell.common.signal.TableSignal.Column;
+
+/**
+ * Structured table output writer of the shell method, the rows are converted
+ * to the typed values of the columns and sent in batches by
+ * {@link TableSignal}, the formatting (padding, alignment) is left to the
+ * client.
+ * 
+ * <pre>
+ * try (TableWriter table = context.table(Column.of("id", INTEGER), Column.of("name", STRING))) {
+ *     users.forEach(u -&gt; table.row(u.getId(), u.getName()));
+ * }
+ * </pre>
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-26
+ * @since v1.0
+ */
+public class TableWriter implements AutoCloseable {
+
+    /** Current shell context of output channel. */
+    private final BaseShellContext context;
+
+    /** Column schema of the table. */
+    private final List<Column> columns;
+
+    /** The number of rows per batch. */
+    private final int batchSize;
+
+    /** Rows of the current batch. */
+    private List<Object[]> batch;
+
+    /** Sent batch sequence. */
+    private long sequence = 0L;
+
+    /** Whether the last batch has been sent. */
+    private boolean closed = false;
+
+    TableWriter(BaseShellContext context, List<Column> columns, int batchSize) {
+        this.context = notNullOf(context, "context");
+        isTrue(!notNullOf(columns, "columns").isEmpty(), "Table columns must not be empty");
+        this.columns = unmodifiableList(new ArrayList<>(columns));
+        isTrue(batchSize > 0, format("batchSize must greater than 0, actual is %s", batchSize));
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Append the row of the table, the values are in the order of the columns.
+     * 
+     * @param values
+     * @return
+     * @throws ChannelShellException
+     */
+    public synchronized TableWriter row(Object... values) throws ChannelShellException {
+        state(!closed, "The table has been closed.");
+        notNullOf(values, "values");
+        isTrue(values.length == columns.size(),
+                format("Mismatched row values: %s, columns: %s", asList(values), columns));
+
+        Object[] row = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            row[i] = columns.get(i).getType().convert(values[i]);
+        }
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            send(false);
+        }
+        return this;
+    }
+
+    /**
+     * Send the remaining rows as the last batch.
+     */
+    @Override
+    public synchronized void close() throws ChannelShellException {
+        if (!closed) {
+            closed = true;
+            send(true);
+        }
+    }
+
+    private void send(boolean last) {
+        List<Object[]> rows = batch;
+        batch = new ArrayList<>(batchSize);
+        ++sequence;
+        context.printf0(new TableSignal(sequence, (sequence == 1) ? columns : null, rows, last));
+    }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static com.wl4g.component.common.lang.Assert2.isTrue;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.common.signal.DeltaStdoutSignal;
+import com.wl4g.shell.common.signal.MultiProgressSignal;
+import com.wl4g.shell.common.signal.ProgressSignal;
+import com.wl4g.shell.common.signal.Signal;
+import com.wl4g.shell.common.signal.StderrSignal;
+import com.wl4g.shell.common.signal.StdoutSignal;
+import com.wl4g.shell.common.signal.TableSignal;
+import com.wl4g.shell.common.signal.WatchSignal;
+
+/**
+ * Server-side watching task of the shell command, the command is re-executed
+ * periodically, its outputs are captured (instead of being written to the
+ * channel), and only the lines changed since the previous execution are sent
+ * to the client by {@link DeltaStdoutSignal}. The scheduler only fires the
+ * timer, and each execution is handed to the worker pool, because the command
+ * may block (e.g. waiting for distributed locks) and must never starve the
+ * other timers (e.g. command deadlines) of the scheduler.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-09
+ * @since v1.0
+ */
+class WatchTask implements Runnable {
+    protected final SmartLogger log = getLogger(getClass());
+
+    /**
+     * Watching task executing on the current worker thread, the capture is
+     * bound to the executing thread, so that the other signals of the channel
+     * (e.g. interruption confirm, job replies, error messages of the sender)
+     * are never swallowed.
+     */
+    private static final ThreadLocal<WatchTask> executing = new ThreadLocal<>();
+
+    /** Watching command signal. */
+    private final WatchSignal watch;
+
+    /** Maximum number of output lines of each execution. */
+    private final int maxLines;
+
+    /** Execute the watching command once. */
+    private final Callable<Object> command;
+
+    /** Convert the error to the descriptor kept with the error ID. */
+    private final Function<Throwable, StderrSignal> stderrConverter;
+
+    /** Send delta output to the channel. */
+    private final Consumer<DeltaStdoutSignal> sender;
+
+    /** Captured output lines of the current execution. */
+    private final List<String> captured = new ArrayList<>();
+
+    /** Output lines of the previous execution. */
+    private List<String> previous = emptyList();
+
+    /** Sent delta output sequence. */
+    private long sequence = 0L;
+
+    /**
+     * Error of the previous failed execution, the repeated failures reuse it,
+     * so that the error store is not flooded by each re-execution.
+     */
+    private StderrSignal lastError;
+
+    /** Scheduler of the watching timer. */
+    private ScheduledExecutorService scheduler;
+
+    /** Worker pool of the watching executions. */
+    private ExecutorService worker;
+
+    /** Re-execution interval of the watching command. */
+    private long intervalMs;
+
+    /** Cancelled status of watching. */
+    private volatile boolean cancelled;
+
+    /** Scheduled future of the next execution timer. */
+    private volatile ScheduledFuture<?> timerFuture;
+
+    /** Future of the executing command on the worker. */
+    private volatile Future<?> executionFuture;
+
+    WatchTask(WatchSignal watch, int maxLines, Callable<Object> command, Function<Throwable, StderrSignal> stderrConverter,
+            Consumer<DeltaStdoutSignal> sender) {
+        isTrue(maxLines > 0, "Watch maxLines must greater than 0");
+        this.watch = notNullOf(watch, "watch");
+        this.maxLines = maxLines;
+        this.command = notNullOf(command, "command");
+        this.stderrConverter = notNullOf(stderrConverter, "stderrConverter");
+        this.sender = notNullOf(sender, "sender");
+    }
+
+    WatchSignal getWatch() {
+        return watch;
+    }
+
+    /**
+     * Schedule re-execution of the watching command with fixed delay, the next
+     * timer is only scheduled after the previous execution has completed, so
+     * that slow commands never overlap.
+     *
+     * @param scheduler
+     * @param worker
+     * @param minIntervalMs
+     */
+    void schedule(ScheduledExecutorService scheduler, ExecutorService worker, long minIntervalMs) {
+        this.scheduler = notNullOf(scheduler, "scheduler");
+        this.worker = notNullOf(worker, "worker");
+        this.intervalMs = Math.max(watch.getIntervalMs(), minIntervalMs);
+        scheduleNext(0L);
+        log.debug("Scheduled watching of: {}, intervalMs: {}", watch.getLine(), intervalMs);
+    }
+
+    /**
+     * Cancel watching, the executing command is interrupted.
+     */
+    void cancel() {
+        cancelled = true;
+        ScheduledFuture<?> timer = timerFuture;
+        if (nonNull(timer)) {
+            timer.cancel(false);
+        }
+        Future<?> execution = executionFuture;
+        if (nonNull(execution)) {
+            execution.cancel(true);
+        }
+        log.debug("Cancelled watching of: {}", watch.getLine());
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Gets the watching task executing on the current thread.
+     *
+     * @return Returns null if the current thread is not executing the watching
+     *         command.
+     */
+    static WatchTask getExecuting() {
+        return executing.get();
+    }
+
+    /**
+     * Schedule the timer of the next execution.
+     *
+     * @param delayMs
+     */
+    private void scheduleNext(long delayMs) {
+        if (!isCancelled()) {
+            try {
+                this.timerFuture = scheduler.schedule(() -> dispatch(), delayMs, MILLISECONDS);
+            } catch (RejectedExecutionException e) { // Server closed
+                log.debug("Stopped watching of: {}. {}", watch.getLine(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hand the execution over to the worker pool (on the scheduler thread),
+     * when the worker pool is saturated, retry on the next interval.
+     */
+    private void dispatch() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            this.executionFuture = worker.submit(() -> {
+                try {
+                    run();
+                } finally {
+                    scheduleNext(intervalMs);
+                }
+            });
+            // Cancelled during the submission.
+            if (isCancelled()) {
+                executionFuture.cancel(true);
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Skipped watching execution of: {}, the workers are busy.", watch.getLine());
+            scheduleNext(intervalMs);
+        }
+    }
+
+    /**
+     * Capture the output message of the watching command.
+     *
+     * @param message
+     * @return Returns true if the message has been captured and must not be
+     *         written to the channel.
+     */
+    boolean capture(Object message) {
+        // The outputs of the cancelled execution are dropped until it has
+        // finished.
+        if (isCancelled()) {
+            return true;
+        }
+        String line = null;
+        if (message instanceof StdoutSignal) {
+            line = ((StdoutSignal) message).getContent();
+        } else if (message instanceof StderrSignal) {
+            line = ShellJob.formatStderr((StderrSignal) message);
+        } else if (message instanceof ProgressSignal) {
+            ProgressSignal pro = (ProgressSignal) message;
+            line = format("%s [%s/%s]", pro.getTitle(), pro.getProgress(), pro.getWhole());
+        } else if (message instanceof MultiProgressSignal) {
+            line = ShellJob.formatMultiProgress((MultiProgressSignal) message);
+        } else if (message instanceof TableSignal) {
+            line = ShellJob.formatTable((TableSignal) message);
+        } else {
+            // e.g. BOF/EOF of each execution or delta output.
+            return !(message instanceof DeltaStdoutSignal);
+        }
+        synchronized (captured) {
+            for (String l : valueOf(line).split("\n")) {
+                if (captured.size() < maxLines) {
+                    captured.add(l);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        if (isCancelled()) {
+            return;
+        }
+        executing.set(this);
+        try {
+            captureOutput(command.call());
+            lastError = null;
+        } catch (Throwable th) {
+            if (isCancelled()) {
+                return;
+            }
+            log.debug("Failed to execute watching command: {}. {}", watch.getLine(), getRootCauseMessage(th));
+            capture(keepError(th));
+        } finally {
+            executing.remove();
+        }
+
+        List<String> current = null;
+        synchronized (captured) {
+            current = new ArrayList<>(captured);
+            captured.clear();
+        }
+
+        // Only changed lines are sent, and unchanged output is not sent.
+        LinkedHashMap<Integer, String> changes = new LinkedHashMap<>();
+        for (int i = 0; i < current.size(); i++) {
+            String line = current.get(i);
+            if (i >= previous.size() || !line.equals(previous.get(i))) {
+                changes.put(i, line);
+            }
+        }
+        if (sequence == 0 || !changes.isEmpty() || current.size() != previous.size()) {
+            if (!isCancelled()) {
+                sender.accept(new DeltaStdoutSignal(watch.getLine(), ++sequence, current.size(), changes));
+            }
+        }
+        previous = current;
+    }
+
+    /**
+     * Keep the error of the failed execution, the same error as the previous
+     * execution is kept only once.
+     *
+     * @param th
+     * @return
+     */
+    private StderrSignal keepError(Throwable th) {
+        StderrSignal last = lastError;
+        if (nonNull(last) && last.getDescription().equals(new StderrSignal(th).getDescription())) {
+            return last;
+        }
+        return (lastError = stderrConverter.apply(th));
+    }
+
+    /**
+     * Capture the return value of the watching command, the streaming result
+     * is pulled up to {@link #maxLines}.
+     *
+     * @param output
+     */
+    private void captureOutput(Object output) {
+        if (isNull(output)) {
+            return;
+        }
+        if (StreamOutputRenderer.isStreamingOutput(output)) {
+            Iterator<?> it = (output instanceof Stream) ? ((Stream<?>) output).iterator() : (Iterator<?>) output;
+            try {
+                for (int i = 0; i < maxLines && it.hasNext(); i++) {
+                    capture(new StdoutSignal(valueOf(it.next())));
+                }
+            } finally {
+                if (output instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) output).close();
+                    } catch (Exception e) {
+                        log.warn("Failed to close streaming output. {}", e.getMessage());
+                    }
+                }
+            }
+        } else {
+            capture((output instanceof Signal) ? output : new StdoutSignal(valueOf(output)));
+        }
+    }
+
+}
@@ -19,19 +19,43 @@ import static com.wl4g.component.common.lang.Assert2.hasTextOf;
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
 import static com.wl4g.component.common.lang.SystemUtils2.GLOBAL_PROCESS_SERIAL;
 import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
 import static java.lang.Thread.currentThread;
 import static java.lang.Thread.interrupted;
-import static java.lang.Thread.sleep;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static java.util.concurrent.locks.LockSupport.unpark;
 import static org.springframework.util.Assert.hasText;
 import static org.springframework.util.Assert.isTrue;
 import static org.springframework.util.Assert.notNull;
 
+import java.io.Closeable;
+import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
 
 import com.google.common.annotations.Beta;
 import com.wl4g.component.common.log.SmartLogger;
@@ -40,21 +64,101 @@ import com.wl4g.shell.core.cache.ShellCache;
 /**
  * {@link ShellLockManager}
  * 
+ * <p>
+ * The waiters of the same lock in the current JVM are queued in FIFO order,
+ * only the head of queue retries to acquire, and it's woken up by the release
+ * notification (local release or published by other nodes through
+ * {@link ShellCache#publish(String, String)}) instead of polling. If the
+ * cache does not support the notification, the head falls back to retry with
+ * exponential backoff.
+ * </p>
+ * <p>
+ * The locks are two-tier, the threads of the current JVM contend for the
+ * local lease first, only the local winner touches the distributed tier
+ * (one cache operation per acquisition), and the reentrant holds are counted
+ * in memory.
+ * </p>
+ * <p>
+ * The ownership and the reentrant holds are keyed on the {@link LockOwner},
+ * the shell commands use the owner of each invocation (not the thread), since
+ * the pooled worker thread may be reused by the next command while the
+ * previous asynchronous invocation still holds the lock.
+ * </p>
+ * <p>
+ * The read/write locks allow the readers holding concurrently, while the
+ * writer is exclusive, the waiting writer blocks the later readers of the
+ * current JVM (FIFO), and the lock upgrading is not supported.
+ * </p>
+ * <p>
+ * The held locks are extended by the lease renewal watchdog while the owner
+ * is alive, the renewals of all the held locks are batched into one cache
+ * operation per tick, and stop on unlock or the owner dead (the invocation
+ * completed, or the owner thread terminated).
+ * </p>
+ * 
  * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2021-07-01 v1.0.0
  *  {@link com.wl4g.component.support.cache.locks.JedisLockManager}
  */
-public class ShellLockManager {
+public class ShellLockManager implements Closeable {
     protected final SmartLogger log = getLogger(getClass());
     protected static final String NAMESPACE = "reentrantUnfairLock.";
+    protected static final String LOCAL_NAMESPACE = "localBulkhead.";
+    protected static final String RW_NAMESPACE = "readWriteLock.";
+    protected static final int LOCAL_MAX_READERS = Integer.MAX_VALUE;
     protected static final String NXXX = "NX";
     protected static final String EXPX = "PX";
     protected static final long FRAME_INTERVAL_MS = 50L;
+    protected static final long MAX_BACKOFF_MS = 1000L;
+    protected static final String RELEASED_CHANNEL = "shell:lock:released";
+    protected static final String RELEASED_SEPARATOR = "@";
+    protected static final long WATCHDOG_INTERVAL_MS = 1000L;
 
     protected final ShellCache shellCache;
 
+    /** Local bulkheads permits, lockName -> semaphore. */
+    protected final Map<String, Semaphore> localBulkheads = new ConcurrentHashMap<>();
+
+    /** Local FIFO waiters of the locks, lockName -> waiters. */
+    protected final Map<String, Deque<Thread>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Leases of the locks held by current node, lockName -> lease, the
+     * reentrant acquiring does not need to be queued.
+     */
+    protected final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    /** The lease renewal watchdog. */
+    protected final ScheduledExecutorService watchdog;
+
+    /** Whether the lease renewal is supported by the cache. */
+    private volatile boolean leaseRenewal = true;
+
+    /** Current lock manager instance ID, ignore the released notification from self. */
+    protected final String instanceId = UUID.randomUUID().toString();
+
+    /** Whether the released notification is supported by the cache. */
+    protected final boolean releasedNotification;
+
+    /** Statistics of the cache operations and acquisitions. */
+    protected final LongAdder cacheOps = new LongAdder();
+    protected final LongAdder acquisitions = new LongAdder();
+    protected final LongAdder waits = new LongAdder();
+
     public ShellLockManager(ShellCache shellCache) {
         this.shellCache = notNullOf(shellCache, "shellCache");
+        this.releasedNotification = subscribeReleased();
+        this.watchdog = newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "shell-lock-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog.scheduleWithFixedDelay(this::renewLeases, WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
     }
 
     /**
@@ -63,10 +167,22 @@ public class ShellLockManager {
      * @param name
      * @return
      */
-    public Lock getLock(String name) {
+    public QueuedLock getLock(String name) {
         return getLock(name, 10, TimeUnit.SECONDS);
     }
 
+    /**
+     * Get and create {@link FastReentrantUnfairDistributedRedLock} with name
+     * and owner.
+     * 
+     * @param name
+     * @param owner
+     * @return
+     */
+    public QueuedLock getLock(String name, LockOwner owner) {
+        return getLock(name, 10, TimeUnit.SECONDS, owner);
+    }
+
     /**
      * Get and create {@link FastReentrantUnfairDistributedRedLock} with name.
      * 
@@ -75,11 +191,340 @@ public class ShellLockManager {
      * @param unit
      * @return
      */
-    public Lock getLock(String name, long expiredAt, TimeUnit unit) {
+    public QueuedLock getLock(String name, long expiredAt, TimeUnit unit) {
+        return getLock(name, expiredAt, unit, LockOwner.ofCurrentThread());
+    }
+
+    /**
+     * Get and create {@link FastReentrantUnfairDistributedRedLock} with name
+     * and owner.
+     * 
+     * @param name
+     * @param expiredAt
+     * @param unit
+     * @param owner
+     * @return
+     */
+    public QueuedLock getLock(String name, long expiredAt, TimeUnit unit, LockOwner owner) {
         hasText(name, "Lock name must not be empty.");
         isTrue(expiredAt > 0, "Lock expiredAt must greater than 0");
         notNull(unit, "TimeUnit must not be null.");
-        return new FastReentrantUnfairDistributedRedLock(name, unit.toMillis(expiredAt));
+        notNull(owner, "Lock owner must not be null.");
+        return new FastReentrantUnfairDistributedRedLock(name, owner, unit.toMillis(expiredAt));
+    }
+
+    /**
+     * Get and create bulkhead lock with name, which limits the maximum number
+     * of concurrent holders.
+     * 
+     * @param name
+     * @param permits
+     *            maximum number of concurrent holders, 1 means exclusive.
+     * @param local
+     *            if true, it's only limited within the current JVM, otherwise
+     *            cluster-wide limited through {@link ShellCache}.
+     * @return
+     */
+    public QueuedLock getBulkhead(String name, int permits, boolean local) {
+        return getBulkhead(name, permits, local, LockOwner.ofCurrentThread());
+    }
+
+    /**
+     * Get and create bulkhead lock with name and owner.
+     * 
+     * @param name
+     * @param permits
+     * @param local
+     * @param owner
+     * @return
+     * @see #getBulkhead(String, int, boolean)
+     */
+    public QueuedLock getBulkhead(String name, int permits, boolean local, LockOwner owner) {
+        hasText(name, "Lock name must not be empty.");
+        isTrue(permits > 0, "Bulkhead permits must greater than 0");
+        notNull(owner, "Lock owner must not be null.");
+        if (local) {
+            return new LocalBulkheadLock(LOCAL_NAMESPACE.concat(name),
+                    localBulkheads.computeIfAbsent(name, n -> new Semaphore(permits)), 1, owner);
+        }
+        if (permits == 1) {
+            return getLock(name, owner);
+        }
+        return new DistributedBulkheadLock(name, permits, TimeUnit.SECONDS.toMillis(10), owner);
+    }
+
+    /**
+     * Get and create read/write lock with name, the readers (shared) can hold
+     * concurrently, while the writer is exclusive.
+     * 
+     * @param name
+     * @param write
+     *            if true, acquire the exclusive (write) lock, otherwise the
+     *            shared (read) lock.
+     * @param local
+     *            if true, it's only limited within the current JVM, otherwise
+     *            cluster-wide limited through {@link ShellCache}.
+     * @return
+     */
+    public QueuedLock getReadWriteLock(String name, boolean write, boolean local) {
+        return getReadWriteLock(name, write, local, LockOwner.ofCurrentThread());
+    }
+
+    /**
+     * Get and create read/write lock with name and owner.
+     * 
+     * @param name
+     * @param write
+     * @param local
+     * @param owner
+     * @return
+     * @see #getReadWriteLock(String, boolean, boolean)
+     */
+    public QueuedLock getReadWriteLock(String name, boolean write, boolean local, LockOwner owner) {
+        hasText(name, "Lock name must not be empty.");
+        notNull(owner, "Lock owner must not be null.");
+        if (local) {
+            // The writer occupies all permits.
+            String localName = RW_NAMESPACE.concat(name);
+            return new LocalBulkheadLock(LOCAL_NAMESPACE.concat(localName),
+                    localBulkheads.computeIfAbsent(localName, n -> new Semaphore(LOCAL_MAX_READERS)),
+                    write ? LOCAL_MAX_READERS : 1, owner);
+        }
+        return new DistributedReadWriteLock(name, write, TimeUnit.SECONDS.toMillis(10), owner);
+    }
+
+    /**
+     * Gets the statistics of the cache operations and acquisitions, e.g. to
+     * measure the cache operations per acquisition under contention.
+     * 
+     * @return
+     */
+    public LockStats getStats() {
+        return new LockStats(cacheOps.sum(), acquisitions.sum(), waits.sum());
+    }
+
+    /**
+     * Waiting to acquire the lock in FIFO order of the local waiters.
+     * 
+     * @param name
+     *            the waiting queue name
+     * @param acquirer
+     *            try acquire once
+     * @param timeoutMs
+     *            waiting timeout, less than 0 means waiting forever.
+     * @param positionListener
+     *            the queue position (starting from 0) change listener, may be
+     *            null.
+     * @return
+     * @throws InterruptedException
+     */
+    protected boolean awaitAcquire(String name, BooleanSupplier acquirer, long timeoutMs, IntConsumer positionListener)
+            throws InterruptedException {
+        if (interrupted()) {
+            throw new InterruptedException();
+        }
+        // Fast path, nobody is waiting locally.
+        Deque<Thread> queue = waiters.get(name);
+        if ((isNull(queue) || queue.isEmpty()) && acquirer.getAsBoolean()) {
+            return true;
+        }
+        if (timeoutMs == 0) {
+            return false;
+        }
+
+        Thread current = currentThread();
+        waiters.compute(name, (n, q) -> {
+            q = isNull(q) ? new ConcurrentLinkedDeque<>() : q;
+            q.offer(current);
+            return q;
+        });
+        waits.increment();
+
+        long deadline = timeoutMs < 0 ? Long.MAX_VALUE : currentTimeMillis() + timeoutMs;
+        long backoffMs = FRAME_INTERVAL_MS;
+        int lastPosition = -1;
+        boolean acquired = false;
+        try {
+            while (true) {
+                int position = getPosition(name, current);
+                // Only the head of queue tries to acquire.
+                if (position == 0 && (acquired = acquirer.getAsBoolean())) {
+                    return true;
+                }
+                if (nonNull(positionListener) && position != lastPosition) {
+                    positionListener.accept(lastPosition = position);
+                }
+                long remainingMs = deadline - currentTimeMillis();
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                // The head rechecks periodically, in case of the released
+                // notification is missing, e.g. the lock holder expired.
+                long parkMs = remainingMs;
+                if (position == 0) {
+                    parkMs = min(remainingMs, backoffMs);
+                    backoffMs = releasedNotification ? MAX_BACKOFF_MS : min(backoffMs << 1, MAX_BACKOFF_MS);
+                } else if (nonNull(positionListener)) {
+                    parkMs = min(remainingMs, MAX_BACKOFF_MS); // Refresh position
+                }
+                parkNanos(this, MILLISECONDS.toNanos(parkMs));
+                if (interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiters.computeIfPresent(name, (n, q) -> {
+                q.remove(current);
+                return q.isEmpty() ? null : q;
+            });
+            // Pass the chance to the next waiter, e.g. the shared lock can be
+            // held by multiple waiters, or given up.
+            signalNext(name);
+        }
+    }
+
+    /**
+     * Wakeup the head waiter of the lock.
+     * 
+     * @param name
+     */
+    protected void signalNext(String name) {
+        Deque<Thread> queue = waiters.get(name);
+        if (nonNull(queue)) {
+            Thread head = queue.peekFirst();
+            if (nonNull(head)) {
+                unpark(head);
+            }
+        }
+    }
+
+    /**
+     * Notify the lock is released, wakeup the local head waiter and publish
+     * to other nodes.
+     * 
+     * @param name
+     */
+    protected void notifyReleased(String name) {
+        signalNext(name);
+        if (releasedNotification) {
+            try {
+                cacheOps.increment();
+                shellCache.publish(RELEASED_CHANNEL, instanceId.concat(RELEASED_SEPARATOR).concat(name));
+            } catch (Exception e) {
+                log.warn("Failed to publish lock released of '{}'. {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Renew the due leases of the held locks, the leases with the same
+     * expiration are renewed in one batch.
+     */
+    protected void renewLeases() {
+        if (!leaseRenewal || leases.isEmpty()) {
+            return;
+        }
+        try {
+            long now = currentTimeMillis();
+            // expiredMs -> (leaseKey -> lease)
+            Map<Long, Map<String, Lease>> dues = new HashMap<>(4);
+            Map<Long, Map<String, Lease>> rwDues = new HashMap<>(4);
+            // Dead leases of the exclusive locks, released in one batch.
+            Map<String, Lease> deads = new HashMap<>(4);
+            leases.forEach((leaseKey, lease) -> {
+                if (!lease.held) {
+                    return; // Claiming
+                } else if (!lease.owner.isAlive()) {
+                    // The owning invocation completed without unlocking (e.g.
+                    // crashed), stop renewing.
+                    if (leases.remove(leaseKey, lease)) {
+                        log.warn("Owner of the lock '{}' is dead, releasing it.", lease.key);
+                        if (lease.readWrite) {
+                            cacheOps.increment();
+                            shellCache.rwunlock(lease.key, lease.requestId);
+                            notifyReleased(lease.queueName);
+                        } else {
+                            deads.put(lease.key, lease);
+                        }
+                    }
+                } else if (now >= lease.renewAt) {
+                    (lease.readWrite ? rwDues : dues).computeIfAbsent(lease.expiredMs, e -> new HashMap<>()).put(leaseKey,
+                            lease);
+                }
+            });
+            if (!deads.isEmpty()) {
+                Map<String, String> keyValues = new HashMap<>(deads.size());
+                deads.forEach((key, lease) -> keyValues.put(key, lease.requestId));
+                cacheOps.increment();
+                shellCache.deleqAll(keyValues);
+                deads.values().forEach(lease -> notifyReleased(lease.queueName));
+            }
+
+            dues.forEach((expiredMs, dueLeases) -> {
+                Map<String, String> keyValues = new HashMap<>(dueLeases.size());
+                dueLeases.forEach((leaseKey, lease) -> keyValues.put(lease.key, lease.requestId));
+                cacheOps.increment();
+                Set<String> renewed = shellCache.expireeq(keyValues, expiredMs);
+                dueLeases.forEach((leaseKey, lease) -> afterRenewed(leaseKey, lease, renewed.contains(lease.key), now));
+            });
+            rwDues.forEach((expiredMs, dueLeases) -> {
+                List<String> leaseKeys = new ArrayList<>(dueLeases.keySet());
+                List<String> keys = new ArrayList<>(leaseKeys.size());
+                List<String> owners = new ArrayList<>(leaseKeys.size());
+                leaseKeys.forEach(leaseKey -> {
+                    keys.add(dueLeases.get(leaseKey).key);
+                    owners.add(dueLeases.get(leaseKey).requestId);
+                });
+                cacheOps.increment();
+                List<Boolean> renewed = shellCache.rwexpire(keys, owners, expiredMs);
+                for (int i = 0; i < leaseKeys.size(); i++) {
+                    afterRenewed(leaseKeys.get(i), dueLeases.get(leaseKeys.get(i)), renewed.get(i), now);
+                }
+            });
+        } catch (UnsupportedOperationException e) {
+            log.warn("Unsupported lease renewal of '{}', the held locks will expire.", shellCache.getClass().getSimpleName());
+            leaseRenewal = false;
+        } catch (Exception e) {
+            log.warn("Failed to renew the lock leases. {}", e.getMessage());
+        }
+    }
+
+    private void afterRenewed(String leaseKey, Lease lease, boolean renewed, long now) {
+        if (renewed) {
+            lease.renewAt = now + lease.expiredMs / 3;
+        } else if (leases.remove(leaseKey, lease)) {
+            log.warn("Lost the lease of lock '{}', it's expired or held by others.", lease.key);
+        }
+    }
+
+    private int getPosition(String name, Thread waiter) {
+        Deque<Thread> queue = waiters.get(name);
+        if (nonNull(queue)) {
+            int position = 0;
+            for (Thread t : queue) {
+                if (t == waiter) {
+                    return position;
+                }
+                ++position;
+            }
+        }
+        return 0;
+    }
+
+    private boolean subscribeReleased() {
+        try {
+            shellCache.subscribe(RELEASED_CHANNEL, message -> {
+                int index = message.indexOf(RELEASED_SEPARATOR);
+                if (index > 0 && !message.substring(0, index).equals(instanceId)) {
+                    signalNext(message.substring(index + 1));
+                }
+            });
+            return true;
+        } catch (UnsupportedOperationException e) {
+            log.info("Unsupported lock released notification of '{}', fallback to retry with backoff.",
+                    shellCache.getClass().getSimpleName());
+            return false;
+        }
     }
 
     /**
@@ -124,39 +569,25 @@ public class ShellLockManager {
      *      Redlock failover analysis</a>
      */
     @Beta
-    private final class FastReentrantUnfairDistributedRedLock implements Lock {
+    private final class FastReentrantUnfairDistributedRedLock implements QueuedLock {
         /** Current locker name. */
         protected final String name;
+        /** The waiting queue name, e.g. the slot locks share the bulkhead queue. */
+        protected String queueName;
+        /** Current locker owner. */
+        protected final LockOwner owner;
         /** Current locker request ID. */
         protected final String requestId;
         /** Current locker expired time(MS). */
         protected final long expiredMs;
-        /**
-         * Current locker reentrant counter.
-         * <font color=red>Special Note: assuming that the situation of retry to
-         * obtain lock occurs, it must be in the same JVM process.</font>
-         */
-        protected final AtomicLong counter;
-
-        public FastReentrantUnfairDistributedRedLock(String name, long expiredMs) {
-            this(name, expiredMs, 0L);
-        }
 
-        public FastReentrantUnfairDistributedRedLock(String name, long expiredMs, long counterValue) {
-            this(name, expiredMs, new AtomicLong(counterValue));
-        }
-
-        public FastReentrantUnfairDistributedRedLock(String name, long expiredMs, AtomicLong counter) {
-            this((NAMESPACE.concat(name)), getThreadCurrentProcessId(), expiredMs, counter);
-        }
-
-        public FastReentrantUnfairDistributedRedLock(String name, String currentProcessId, long expiredMs, AtomicLong counter) {
-            this.name = hasTextOf(name, "lockName");
-            this.requestId = hasTextOf(currentProcessId, "currentProcessId");
+        public FastReentrantUnfairDistributedRedLock(String name, LockOwner owner, long expiredMs) {
+            this.name = hasTextOf(NAMESPACE.concat(name), "lockName");
+            this.queueName = this.name;
+            this.owner = notNullOf(owner, "owner");
+            this.requestId = owner.getOwnerId();
             isTrue(expiredMs > 0, "Lock expiredMs must greater than 0");
             this.expiredMs = expiredMs;
-            this.counter = counter;
-            isTrue(counter.get() >= 0, "Lock count must greater than 0");
         }
 
         @Override
@@ -170,13 +601,10 @@ public class ShellLockManager {
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            if (interrupted())
-                throw new InterruptedException();
-            while (true) {
-                if (doTryAcquire())
-                    break;
-                sleep(FRAME_INTERVAL_MS);
+            if (isReentrant() && doTryAcquire()) {
+                return;
             }
+            awaitAcquire(queueName, this::doTryAcquire, -1L, null);
         }
 
         @Override
@@ -185,41 +613,67 @@ public class ShellLockManager {
         }
 
         @Override
-        public boolean tryLock(long tryTimeout, TimeUnit unit) throws InterruptedException {
+        public boolean tryLock(long tryTimeout, TimeUnit unit, IntConsumer positionListener) throws InterruptedException {
             notNull(unit, "TimeUnit must not be null.");
-            isTrue((tryTimeout > 0 && tryTimeout <= expiredMs), "TryTimeout must be > 0 && <= " + expiredMs);
-            long t = unit.toMillis(tryTimeout) / FRAME_INTERVAL_MS, c = 0;
-            while (t > ++c) {
-                if (doTryAcquire())
-                    return true;
-                sleep(FRAME_INTERVAL_MS);
+            if (isReentrant() && doTryAcquire()) {
+                return true;
             }
-            return false;
+            return awaitAcquire(queueName, this::doTryAcquire, Math.max(unit.toMillis(tryTimeout), 0L), positionListener);
+        }
+
+        /**
+         * Check whether the current owner is the local holder, the reentrant
+         * acquiring skip the waiting queue.
+         * 
+         * @return
+         */
+        private boolean isReentrant() {
+            Lease lease = leases.get(name);
+            return nonNull(lease) && lease.held && requestId.equals(lease.requestId);
         }
 
         @Override
         public void unlock() {
-            // Obtain locked processId.
-            String acquiredRequestId = shellCache.get(name, String.class);
-            // Current thread is holder?
-            if (!requestId.equals(acquiredRequestId)) {
-                log.debug("No need to unlock of requestId: {}, acquiredRequestId: {}, counter: {}", requestId, acquiredRequestId,
-                        counter);
-                return;
+            owner.enter();
+            try {
+                doUnlock();
+            } finally {
+                owner.exit();
             }
+        }
 
-            // Obtain lock record once decrement.
-            counter.decrementAndGet();
-            log.debug("No need to unlock and reenter the stack lock layer, counter: {}", counter);
-
-            if (counter.longValue() == 0L) { // All thread stack layers exited?
-                Object res = shellCache.deleq(name, requestId);
-                if (!assertValidity(res)) {
-                    log.debug("Failed to unlock for %{}@{}", requestId, name);
-                } else {
-                    log.debug("Unlock successful for %{}@{}", requestId, name);
+        private void doUnlock() {
+            // Obtain lock record once decrement in memory.
+            Lease[] released = new Lease[1];
+            boolean[] decremented = new boolean[1];
+            Lease lease = leases.computeIfPresent(name, (n, l) -> {
+                if (!l.held || !requestId.equals(l.requestId)) {
+                    return l;
                 }
+                decremented[0] = true;
+                if (--l.holds > 0) {
+                    return l;
+                }
+                released[0] = l;
+                return null;
+            });
+            if (decremented[0]) {
+                owner.holds.decrementAndGet();
+            }
+            if (isNull(released[0])) { // Current thread is not holder or reenter the stack lock layer?
+                log.debug("No need to unlock of requestId: {}, lease: {}", requestId, lease);
+                return;
             }
+
+            // All thread stack layers exited.
+            cacheOps.increment();
+            Object res = shellCache.deleq(name, requestId);
+            if (!assertValidity(res)) {
+                log.debug("Failed to unlock for %{}@{}", requestId, name);
+            } else {
+                log.debug("Unlock successful for %{}@{}", requestId, name);
+            }
+            notifyReleased(queueName);
         }
 
         @Override
@@ -234,24 +688,44 @@ public class ShellLockManager {
          * @return
          */
         private final boolean doTryAcquire() {
-            String acquiredProcessId = shellCache.get(name, String.class); // Locked-processId.
-            if (requestId.equals(acquiredProcessId)) {
-                // Obtain lock record once cumulatively.
-                counter.incrementAndGet();
-                log.debug("Reuse acquire lock for name: {}, acquiredProcessId: {}, counter: {}", name, acquiredProcessId,
-                        counter);
-                return true;
-            } else {
-                // Not currently locked? Lock expired? Local counter reset.
-                counter.set(0L);
+            owner.enter();
+            try {
+                if (doTryAcquire0()) {
+                    owner.holds.incrementAndGet();
+                    return true;
+                }
+                return false;
+            } finally {
+                owner.exit();
+            }
+        }
+
+        private final boolean doTryAcquire0() {
+            // Local tier, contend within the current JVM first.
+            Lease claimed = new Lease(name, owner, queueName, expiredMs, false, true);
+            Lease lease = leases.compute(name, (n, l) -> {
+                if (isNull(l)) {
+                    return claimed;
+                }
+                if (l.held && requestId.equals(l.requestId)) {
+                    ++l.holds; // Obtain lock record once cumulatively.
+                }
+                return l;
+            });
+            if (lease != claimed) {
+                // Reentrant or held by the other local thread.
+                return lease.held && requestId.equals(lease.requestId);
             }
 
-            // Try to acquire a new lock from the server.
+            // Distributed tier, only the local winner tries to acquire a new
+            // lock from the server.
+            cacheOps.increment();
             if (assertValidity(shellCache.setnx(name, requestId, expiredMs))) {
-                // Obtain lock record once cumulatively.
-                counter.incrementAndGet();
+                claimed.hold();
+                acquisitions.increment();
                 return true;
             }
+            leases.remove(name, claimed);
             return false;
         }
 
@@ -279,4 +753,490 @@ public class ShellLockManager {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Local bulkhead lock backed by the shared {@link Semaphore}, not
+     * reentrant, and can be unlocked by other threads (e.g. asynchronous shell
+     * method completion).
+     */
+    private final class LocalBulkheadLock implements QueuedLock {
+        private final String name;
+        private final Semaphore semaphore;
+        /** The permits occupied by each hold, e.g. the writer occupies all. */
+        private final int permits;
+        private final LockOwner owner;
+        private final AtomicBoolean acquired = new AtomicBoolean(false);
+
+        public LocalBulkheadLock(String name, Semaphore semaphore, int permits, LockOwner owner) {
+            this.name = hasTextOf(name, "name");
+            this.semaphore = notNullOf(semaphore, "semaphore");
+            this.permits = permits;
+            this.owner = notNullOf(owner, "owner");
+        }
+
+        @Override
+        public void lock() {
+            try {
+                lockInterruptibly();
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            awaitAcquire(name, this::tryLock, -1L, null);
+        }
+
+        @Override
+        public boolean tryLock() {
+            owner.enter();
+            try {
+                if (semaphore.tryAcquire(permits)) {
+                    acquired.set(true);
+                    owner.holds.incrementAndGet();
+                    acquisitions.increment();
+                    return true;
+                }
+                return false;
+            } finally {
+                owner.exit();
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit, IntConsumer positionListener) throws InterruptedException {
+            notNull(unit, "TimeUnit must not be null.");
+            return awaitAcquire(name, this::tryLock, Math.max(unit.toMillis(time), 0L), positionListener);
+        }
+
+        @Override
+        public void unlock() {
+            owner.enter();
+            try {
+                if (acquired.compareAndSet(true, false)) {
+                    semaphore.release(permits);
+                    owner.holds.decrementAndGet();
+                    signalNext(name);
+                }
+            } finally {
+                owner.exit();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Distributed bulkhead lock, the permits are the slot locks of
+     * {@link FastReentrantUnfairDistributedRedLock}, and the holder occupies
+     * any free slot.
+     */
+    private final class DistributedBulkheadLock implements QueuedLock {
+        private final String name;
+        private final FastReentrantUnfairDistributedRedLock[] slots;
+        private volatile FastReentrantUnfairDistributedRedLock acquired;
+
+        public DistributedBulkheadLock(String name, int permits, long expiredMs, LockOwner owner) {
+            this.name = NAMESPACE.concat(name);
+            this.slots = new FastReentrantUnfairDistributedRedLock[permits];
+            for (int i = 0; i < permits; i++) {
+                slots[i] = new FastReentrantUnfairDistributedRedLock(name.concat(".slot-") + i, owner, expiredMs);
+                // Any slot released wakeup the bulkhead waiters.
+                slots[i].queueName = this.name;
+            }
+        }
+
+        @Override
+        public void lock() {
+            try {
+                lockInterruptibly();
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            awaitAcquire(name, this::tryLock, -1L, null);
+        }
+
+        @Override
+        public boolean tryLock() {
+            // Start from the random slot, to spread the contention.
+            int offset = ThreadLocalRandom.current().nextInt(slots.length);
+            for (int i = 0; i < slots.length; i++) {
+                FastReentrantUnfairDistributedRedLock slot = slots[(offset + i) % slots.length];
+                if (slot.tryLock()) {
+                    acquired = slot;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long tryTimeout, TimeUnit unit, IntConsumer positionListener) throws InterruptedException {
+            notNull(unit, "TimeUnit must not be null.");
+            return awaitAcquire(name, this::tryLock, Math.max(unit.toMillis(tryTimeout), 0L), positionListener);
+        }
+
+        @Override
+        public void unlock() {
+            FastReentrantUnfairDistributedRedLock slot = acquired;
+            if (nonNull(slot)) {
+                acquired = null;
+                slot.unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Distributed read/write lock, the owners are recorded in the hash of the
+     * key with their own expiration through {@link ShellCache#rwlock}, and
+     * the reentrant holds are counted in memory.
+     */
+    private final class DistributedReadWriteLock implements QueuedLock {
+        private final String key;
+        private final LockOwner owner;
+        private final String requestId;
+        private final String leaseKey;
+        private final boolean write;
+        private final long expiredMs;
+
+        public DistributedReadWriteLock(String name, boolean write, long expiredMs, LockOwner owner) {
+            this.key = RW_NAMESPACE.concat(name);
+            this.owner = notNullOf(owner, "owner");
+            this.requestId = owner.getOwnerId();
+            this.leaseKey = key.concat("#").concat(requestId);
+            this.write = write;
+            isTrue(expiredMs > 0, "Lock expiredMs must greater than 0");
+            this.expiredMs = expiredMs;
+        }
+
+        @Override
+        public void lock() {
+            try {
+                lockInterruptibly();
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (isReentrant() && tryLock()) {
+                return;
+            }
+            awaitAcquire(key, this::tryLock, -1L, null);
+        }
+
+        @Override
+        public boolean tryLock() {
+            owner.enter();
+            try {
+                if (doTryLock()) {
+                    owner.holds.incrementAndGet();
+                    return true;
+                }
+                return false;
+            } finally {
+                owner.exit();
+            }
+        }
+
+        private boolean doTryLock() {
+            Lease claimed = new Lease(key, owner, key, expiredMs, true, write);
+            Lease lease = leases.compute(leaseKey, (n, l) -> {
+                if (isNull(l)) {
+                    return claimed;
+                }
+                // Reentrant, but the upgrading of read to write is not
+                // supported.
+                if (l.held && (l.write || !write)) {
+                    ++l.holds;
+                }
+                return l;
+            });
+            if (lease != claimed) {
+                return lease.held && (lease.write || !write);
+            }
+
+            cacheOps.increment();
+            if (shellCache.rwlock(key, requestId, write, expiredMs)) {
+                claimed.hold();
+                acquisitions.increment();
+                return true;
+            }
+            leases.remove(leaseKey, claimed);
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long tryTimeout, TimeUnit unit, IntConsumer positionListener) throws InterruptedException {
+            notNull(unit, "TimeUnit must not be null.");
+            if (isReentrant() && tryLock()) {
+                return true;
+            }
+            return awaitAcquire(key, this::tryLock, Math.max(unit.toMillis(tryTimeout), 0L), positionListener);
+        }
+
+        private boolean isReentrant() {
+            Lease lease = leases.get(leaseKey);
+            return nonNull(lease) && lease.held;
+        }
+
+        @Override
+        public void unlock() {
+            owner.enter();
+            try {
+                doUnlock();
+            } finally {
+                owner.exit();
+            }
+        }
+
+        private void doUnlock() {
+            Lease[] released = new Lease[1];
+            boolean[] decremented = new boolean[1];
+            leases.computeIfPresent(leaseKey, (n, l) -> {
+                if (!l.held) {
+                    return l;
+                }
+                decremented[0] = true;
+                if (--l.holds > 0) {
+                    return l;
+                }
+                released[0] = l;
+                return null;
+            });
+            if (decremented[0]) {
+                owner.holds.decrementAndGet();
+            }
+            if (nonNull(released[0])) {
+                cacheOps.increment();
+                if (!shellCache.rwunlock(key, requestId)) {
+                    log.debug("Failed to unlock for %{}@{}", requestId, key);
+                }
+                notifyReleased(key);
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The lock which waiters are queued in FIFO order, and the queue position
+     * can be observed while waiting.
+     */
+    public static interface QueuedLock extends Lock {
+
+        @Override
+        default boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return tryLock(time, unit, null);
+        }
+
+        /**
+         * Acquires the lock if it is free within the given waiting time.
+         * 
+         * @param time
+         * @param unit
+         * @param positionListener
+         *            the queue position (starting from 0) change listener,
+         *            may be null.
+         * @return
+         * @throws InterruptedException
+         */
+        boolean tryLock(long time, TimeUnit unit, IntConsumer positionListener) throws InterruptedException;
+    }
+
+    /**
+     * Owner of the locks, the ownership and the reentrant holds are keyed on
+     * the owner ID. The shell commands create the owner of each invocation,
+     * which is carried in the shell context, and completed when the
+     * invocation (including the asynchronous result) completes, the leases
+     * are only renewed while the owner is alive.
+     */
+    public static final class LockOwner {
+        private static final AtomicLong invocationSequence = new AtomicLong(0);
+
+        private final String ownerId;
+        /** The owner thread, null if the owner is the invocation. */
+        private final Thread thread;
+        private volatile boolean completed;
+        /** The holds of all the locks, including the reentrant holds. */
+        private final AtomicInteger holds = new AtomicInteger(0);
+        /** The depth of the lock operations in progress. */
+        private final AtomicInteger busy = new AtomicInteger(0);
+
+        private LockOwner(String ownerId, Thread thread) {
+            this.ownerId = hasTextOf(ownerId, "ownerId");
+            this.thread = thread;
+        }
+
+        public String getOwnerId() {
+            return ownerId;
+        }
+
+        /**
+         * Whether the owner is alive, the leases of the dead owner are no
+         * longer renewed and released by the watchdog.
+         * 
+         * @return
+         */
+        public boolean isAlive() {
+            return !completed && (isNull(thread) || thread.isAlive());
+        }
+
+        /**
+         * Complete the owner, e.g. the invocation finished.
+         */
+        public void complete() {
+            this.completed = true;
+        }
+
+        /**
+         * Gets the holds of all the locks held by the owner.
+         * 
+         * @return
+         */
+        public int getHolds() {
+            return holds.get();
+        }
+
+        /**
+         * Whether the owner is operating the locks (e.g. acquiring, unlocking
+         * or the cache operations of the locks), the owner thread must not be
+         * forcibly stopped, otherwise the leases or the permits are corrupted.
+         * 
+         * @return
+         */
+        public boolean isBusy() {
+            return busy.get() > 0;
+        }
+
+        private void enter() {
+            busy.incrementAndGet();
+        }
+
+        private void exit() {
+            busy.decrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return "LockOwner [ownerId=" + ownerId + "]";
+        }
+
+        /**
+         * Create the owner of the new invocation, it's unique in the cluster.
+         * 
+         * @return
+         */
+        public static LockOwner newInvocation() {
+            return new LockOwner(GLOBAL_PROCESS_SERIAL + "-i" + invocationSequence.incrementAndGet(), null);
+        }
+
+        /**
+         * Gets the owner of the current thread, see:
+         * {@link ShellLockManager#getThreadCurrentProcessId()}
+         * 
+         * @return
+         */
+        public static LockOwner ofCurrentThread() {
+            return new LockOwner(getThreadCurrentProcessId(), currentThread());
+        }
+    }
+
+    /**
+     * Lease of the lock held by current node, it's also the local tier of the
+     * lock, the local threads contend for the lease first, and the reentrant
+     * holds are counted in memory.
+     */
+    private static final class Lease {
+        private final String key;
+        private final String requestId;
+        private final String queueName;
+        private final long expiredMs;
+        /** Whether the read/write lock, see: {@link ShellCache#rwlock} */
+        private final boolean readWrite;
+        private final boolean write;
+        private final LockOwner owner;
+        /** Whether the distributed lock is acquired, false means claiming. */
+        private volatile boolean held;
+        /** Reentrant holds, guarded by the leases map computing. */
+        private int holds = 1;
+        private volatile long renewAt;
+
+        private Lease(String key, LockOwner owner, String queueName, long expiredMs, boolean readWrite, boolean write) {
+            this.key = key;
+            this.requestId = owner.getOwnerId();
+            this.queueName = queueName;
+            this.expiredMs = expiredMs;
+            this.readWrite = readWrite;
+            this.write = write;
+            this.owner = owner;
+        }
+
+        private void hold() {
+            this.renewAt = currentTimeMillis() + expiredMs / 3;
+            this.held = true;
+        }
+
+        @Override
+        public String toString() {
+            return format("Lease [key=%s, requestId=%s, write=%s, held=%s, holds=%s]", key, requestId, write, held, holds);
+        }
+    }
+
+    /**
+     * Statistics of the lock manager.
+     */
+    public static final class LockStats {
+        private final long cacheOps;
+        private final long acquisitions;
+        private final long waits;
+
+        public LockStats(long cacheOps, long acquisitions, long waits) {
+            this.cacheOps = cacheOps;
+            this.acquisitions = acquisitions;
+            this.waits = waits;
+        }
+
+        /** The number of cache operations issued by the locks. */
+        public long getCacheOps() {
+            return cacheOps;
+        }
+
+        /** The number of the new acquisitions (excluding reentrant). */
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        /** The number of the waits enqueued. */
+        public long getWaits() {
+            return waits;
+        }
+
+        public double getOpsPerAcquisition() {
+            return acquisitions == 0 ? 0d : (double) cacheOps / acquisitions;
+        }
+
+        @Override
+        public String toString() {
+            return format("LockStats [cacheOps=%s, acquisitions=%s, waits=%s, opsPerAcquisition=%.2f]", cacheOps, acquisitions,
+                    waits, getOpsPerAcquisition());
+        }
+    }
+
+}
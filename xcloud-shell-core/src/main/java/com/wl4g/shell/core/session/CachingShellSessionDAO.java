@@ -16,9 +16,24 @@
 package com.wl4g.shell.core.session;
 
 import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.wl4g.component.common.log.SmartLogger;
 import com.wl4g.shell.core.cache.ShellCache;
 
 import redis.clients.jedis.Jedis;
@@ -27,45 +42,264 @@ import redis.clients.jedis.JedisCluster;
 /**
  * {@link CachingShellSessionDAO}
  * 
+ * <p>
+ * The sessions are near-cached in memory, the touches of the latest access
+ * timestamp are coalesced and written behind periodically by patching the
+ * timestamp property only, while the other changes (e.g. authentication) are
+ * written through.
+ * </p>
+ * 
+ * <p>
+ * The written through changes and removals are broadcast by pub/sub, so that
+ * the other nodes drop their near-cached sessions. If the shell cache does
+ * not support subscribing, the near-cache is disabled.
+ * </p>
+ * 
  * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2021-06-30 v1.0.0
  * 
  */
 public class CachingShellSessionDAO implements ShellSessionDAO {
+    protected final SmartLogger log = getLogger(getClass());
+    protected static final String TIMESTAMP_PROPERTY = "latestTimestamp";
 
     protected final ShellCache shellCache;
 
+    /** Idle timeout of the near-cached sessions. */
+    protected final long idleTimeoutMs;
+
+    /** Near-cache of the sessions, sessionId -> session. */
+    protected final Map<String, ShellSession> nearCache = new ConcurrentHashMap<>();
+
+    /** Pending touches, sessionId -> latest timestamp. */
+    protected final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+
+    /** Write-behind flusher. */
+    protected final ScheduledExecutorService flusher;
+
+    /** Unique ID of this node, to ignore the own invalidations. */
+    protected final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Generation of the invalidations, prevents to near-cache the stale
+     * session loaded before the concurrent invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong(0L);
+
+    /** Whether the near-cache is enabled, i.e. the invalidations are subscribed. */
+    private volatile boolean nearCacheEnabled;
+
     /**
      * @param redisObj
      *            type of {@link JedisCluster} or {@link Jedis}
      */
     public CachingShellSessionDAO(ShellCache shellCache) {
+        this(shellCache, 1000L, 5 * 60 * 1000L);
+    }
+
+    /**
+     * @param shellCache
+     * @param flushIntervalMs
+     *            the interval of flushing the coalesced touches.
+     * @param idleTimeoutMs
+     *            the idle sessions are evicted from the near-cache.
+     */
+    public CachingShellSessionDAO(ShellCache shellCache, long flushIntervalMs, long idleTimeoutMs) {
         this.shellCache = notNullOf(shellCache, "shellCache");
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.flusher = newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "shell-session-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, MILLISECONDS);
+        try {
+            shellCache.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+            this.nearCacheEnabled = true;
+        } catch (UnsupportedOperationException e) {
+            log.warn("Unsupported session invalidation subscribing of '{}', the near-cache is disabled.",
+                    shellCache.getClass().getSimpleName());
+        }
     }
 
     @Override
     public ShellSession get(String sessionId) {
-        return shellCache.hget(sessionId, ShellSession.class);
+        ShellSession session = nearCache.get(sessionId);
+        if (isNull(session)) {
+            long gen = generation.get();
+            session = shellCache.hget(sessionId, ShellSession.class);
+            putNearCache(session, gen);
+        }
+        return session;
+    }
+
+    /**
+     * The near-cache hits are completed immediately, and the misses are
+     * loaded on the asynchronous executor of the shell cache.
+     */
+    @Override
+    public CompletionStage<ShellSession> getAsync(String sessionId) {
+        ShellSession session = nearCache.get(sessionId);
+        if (nonNull(session)) {
+            return completedFuture(session);
+        }
+        long gen = generation.get();
+        return shellCache.hgetAsync(sessionId, ShellSession.class).thenApply(loaded -> {
+            putNearCache(loaded, gen);
+            return loaded;
+        });
     }
 
     @Override
     public List<ShellSession> getAll() {
+        flush();
         return shellCache.hgetAll(ShellSession.class);
     }
 
     @Override
     public boolean put(ShellSession session) {
-        return shellCache.hset(session.getSessionId(), session);
+        // Write through, including the pending touch.
+        pendingTouches.remove(session.getSessionId());
+        if (nearCacheEnabled) {
+            nearCache.put(session.getSessionId(), session);
+        }
+        try {
+            return shellCache.hset(session.getSessionId(), session);
+        } finally {
+            broadcastInvalidation(session.getSessionId());
+        }
+    }
+
+    @Override
+    public CompletionStage<Boolean> putAsync(ShellSession session) {
+        pendingTouches.remove(session.getSessionId());
+        if (nearCacheEnabled) {
+            nearCache.put(session.getSessionId(), session);
+        }
+        return shellCache.hsetAsync(session.getSessionId(), session).whenComplete(
+                (ret, ex) -> broadcastInvalidation(session.getSessionId()));
     }
 
     @Override
     public boolean putIfAbsent(ShellSession session) {
-        return shellCache.hset(session.getSessionId(), session);
+        return put(session);
     }
 
     @Override
     public boolean remove(String sessionId) {
-        return shellCache.hdel(sessionId);
+        pendingTouches.remove(sessionId);
+        nearCache.remove(sessionId);
+        try {
+            return shellCache.hdel(sessionId);
+        } finally {
+            broadcastInvalidation(sessionId);
+        }
+    }
+
+    @Override
+    public CompletionStage<Boolean> removeAsync(String sessionId) {
+        pendingTouches.remove(sessionId);
+        nearCache.remove(sessionId);
+        return shellCache.hdelAsync(sessionId).whenComplete((ret, ex) -> broadcastInvalidation(sessionId));
+    }
+
+    /**
+     * Only queue the touch without loading the session, the missing sessions
+     * (e.g. expired) are skipped when flushing.
+     */
+    @Override
+    public void touch(String sessionId, long latestTimestamp) {
+        ShellSession session = nearCache.get(sessionId);
+        if (nonNull(session)) {
+            session.setLatestTimestamp(latestTimestamp);
+        }
+        pendingTouches.put(sessionId, latestTimestamp);
+    }
+
+    /**
+     * Flush the coalesced touches in batch, and evict the idle sessions from
+     * the near-cache.
+     */
+    @Override
+    public void flush() {
+        try {
+            if (!pendingTouches.isEmpty()) {
+                Map<String, Long> touches = new HashMap<>(pendingTouches.size());
+                pendingTouches.forEach((sessionId, timestamp) -> {
+                    if (pendingTouches.remove(sessionId, timestamp)) {
+                        touches.put(sessionId, timestamp);
+                    }
+                });
+                try {
+                    shellCache.hpatch(TIMESTAMP_PROPERTY, touches);
+                } catch (UnsupportedOperationException e) {
+                    // Fallback to rewrite the whole sessions in batch.
+                    Map<String, ShellSession> sessions = new HashMap<>(touches.size());
+                    touches.forEach((sessionId, timestamp) -> {
+                        ShellSession session = get(sessionId);
+                        if (nonNull(session)) {
+                            session.setLatestTimestamp(timestamp);
+                            sessions.put(sessionId, session);
+                        }
+                    });
+                    shellCache.hmset(sessions);
+                } catch (RuntimeException e) {
+                    // Retry on the next flushing.
+                    touches.forEach(pendingTouches::putIfAbsent);
+                    throw e;
+                }
+            }
+            long now = currentTimeMillis();
+            nearCache.values().removeIf(s -> (now - s.getLatestTimestamp()) >= idleTimeoutMs);
+        } catch (Exception e) {
+            log.warn("Failed to flush the session touches. {}", e.getMessage());
+        }
     }
 
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private void putNearCache(ShellSession session, long gen) {
+        if (!nearCacheEnabled || isNull(session)) {
+            return;
+        }
+        synchronized (nearCache) {
+            // Invalidated during loading, the session may be stale.
+            if (generation.get() == gen) {
+                nearCache.putIfAbsent(session.getSessionId(), session);
+            }
+        }
+    }
+
+    /**
+     * Broadcast the changed or removed session to the other nodes.
+     */
+    private void broadcastInvalidation(String sessionId) {
+        if (!nearCacheEnabled) {
+            return;
+        }
+        try {
+            shellCache.publish(INVALIDATION_CHANNEL, instanceId.concat(INVALIDATION_SEPARATOR).concat(sessionId));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast the session invalidation of '{}'. {}", sessionId, e.getMessage());
+        }
+    }
+
+    private void onInvalidation(String message) {
+        int index = message.indexOf(INVALIDATION_SEPARATOR);
+        if (index < 0 || message.substring(0, index).equals(instanceId)) {
+            return; // Invalid or own invalidation
+        }
+        synchronized (nearCache) {
+            generation.incrementAndGet();
+            nearCache.remove(message.substring(index + 1));
+        }
+    }
+
+    private static final String INVALIDATION_SEPARATOR = "@";
+    public static final String INVALIDATION_CHANNEL = "shell:session:invalidation";
+
 }
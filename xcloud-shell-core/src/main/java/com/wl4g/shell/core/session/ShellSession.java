@@ -15,7 +15,11 @@
  */
 package com.wl4g.shell.core.session;
 
-import lombok.AllArgsConstructor;
+import static java.util.Objects.nonNull;
+
+import java.util.BitSet;
+
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -30,7 +34,6 @@ import lombok.ToString;
  */
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 @ToString
 public class ShellSession {
@@ -53,4 +56,56 @@ public class ShellSession {
     /** Session latest access timestamp. */
     private long latestTimestamp;
 
+    /** Cached granted permits of the user, see: {@link AclIndex}. */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile GrantedPermits grantedPermits;
+
+    public ShellSession(String sessionId, String username, boolean authenticated, String host, long startTimestamp,
+            long latestTimestamp) {
+        this.sessionId = sessionId;
+        this.username = username;
+        this.authenticated = authenticated;
+        this.host = host;
+        this.startTimestamp = startTimestamp;
+        this.latestTimestamp = latestTimestamp;
+    }
+
+    /**
+     * Gets the cached granted permits.
+     * 
+     * @param version
+     *            the current ACL index version.
+     * @return null if not cached or the ACL has been reloaded.
+     */
+    public BitSet getGrantedPermits(long version) {
+        GrantedPermits granted = this.grantedPermits;
+        return (nonNull(granted) && granted.version == version) ? granted.permits : null;
+    }
+
+    /**
+     * Caching the granted permits of the ACL index version.
+     * 
+     * @param version
+     * @param permits
+     */
+    public void setGrantedPermits(long version, BitSet permits) {
+        this.grantedPermits = new GrantedPermits(version, permits);
+    }
+
+    /**
+     * Immutable granted permits with its ACL index version, so that both are
+     * published by a single volatile write.
+     */
+    private static final class GrantedPermits {
+        private final long version;
+        private final BitSet permits;
+
+        private GrantedPermits(long version, BitSet permits) {
+            this.version = version;
+            this.permits = permits;
+        }
+    }
+
 }
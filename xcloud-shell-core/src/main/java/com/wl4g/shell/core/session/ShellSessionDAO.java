@@ -15,7 +15,11 @@
  */
 package com.wl4g.shell.core.session;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.io.Closeable;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 /**
  * {@link ShellSessionDAO}
@@ -24,7 +28,7 @@ import java.util.List;
  * @version 2021-06-30 v1.0.0
  * 
  */
-public interface ShellSessionDAO {
+public interface ShellSessionDAO extends Closeable {
 
     default ShellSession get(String sessionId) {
         return null;
@@ -46,4 +50,49 @@ public interface ShellSessionDAO {
         return false;
     }
 
+    /**
+     * Gets the session asynchronously, the implementation may complete
+     * immediately when the session is cached locally.
+     * 
+     * @param sessionId
+     * @return
+     */
+    default CompletionStage<ShellSession> getAsync(String sessionId) {
+        return completedFuture(get(sessionId));
+    }
+
+    default CompletionStage<Boolean> putAsync(ShellSession session) {
+        return completedFuture(put(session));
+    }
+
+    default CompletionStage<Boolean> removeAsync(String sessionId) {
+        return completedFuture(remove(sessionId));
+    }
+
+    /**
+     * Touch the latest access timestamp of the session, the implementation
+     * may coalesce and write behind the touches.
+     * 
+     * @param sessionId
+     * @param latestTimestamp
+     */
+    default void touch(String sessionId, long latestTimestamp) {
+        ShellSession session = get(sessionId);
+        if (session != null) {
+            session.setLatestTimestamp(latestTimestamp);
+            put(session);
+        }
+    }
+
+    /**
+     * Flush the pending writes.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+
 }
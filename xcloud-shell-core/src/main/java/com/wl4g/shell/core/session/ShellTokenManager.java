@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.session;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.wl4g.component.common.lang.Assert2.hasText;
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.shell.core.utils.AuthUtils.genSessionID;
+import static java.lang.System.currentTimeMillis;
+import static java.security.MessageDigest.isEqual;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.startsWith;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.wl4g.component.common.log.SmartLogger;
+import com.wl4g.shell.core.cache.ShellCache;
+import com.wl4g.shell.core.config.AclIndex;
+import com.wl4g.shell.core.config.ServerShellProperties.AclInfo;
+
+/**
+ * {@link ShellTokenManager}
+ * 
+ * <p>
+ * Stateless session tokens, the login issues a token signed by HMAC-SHA256
+ * and carrying the username, the permissions digest and the expiration, so
+ * any node holding the same secret validates it locally without looking up
+ * the {@link ShellSessionDAO}. The token becomes invalid when the permissions
+ * of the user change, and it can be revoked before the expiration through
+ * the revocation list in the {@link ShellCache}, which is re-checked at most
+ * once per {@link AclInfo#getTokenRevocationCheckMs()} for each token.
+ * </p>
+ * 
+ * <pre>
+ * T.base64url(tokenId \n username \n digest \n issuedAt \n expireAt).base64url(hmac)
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-23 v1.0.0
+ * 
+ */
+public class ShellTokenManager {
+    protected final SmartLogger log = getLogger(getClass());
+
+    protected final ShellCache shellCache;
+    protected final AclInfo acl;
+
+    /** Thread-confined MACs, since {@link Mac} is not thread-safe. */
+    private final ThreadLocal<Mac> macs;
+
+    /** Latest revocation checked timestamps, tokenId -> timestamp. */
+    private final Map<String, Long> revocationChecked = new ConcurrentHashMap<>();
+
+    public ShellTokenManager(ShellCache shellCache, AclInfo acl) {
+        this.shellCache = notNullOf(shellCache, "shellCache");
+        this.acl = notNullOf(acl, "acl");
+        if (acl.isTokenEnabled()) {
+            hasText(acl.getTokenSecret(), "The token secret is required when the session token is enabled.");
+            final SecretKeySpec key = new SecretKeySpec(acl.getTokenSecret().getBytes(UTF_8), HMAC_ALGORITHM);
+            this.macs = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                    mac.init(key);
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } else {
+            this.macs = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return acl.isTokenEnabled();
+    }
+
+    /**
+     * Issue the token of the authenticated session.
+     * 
+     * @param session
+     * @return
+     */
+    public String issue(ShellSession session) {
+        hasText(session.getUsername(), "Cannot issue the token of the unauthenticated session.");
+        AclIndex.Grant grant = acl.getIndex().getGrant(session.getUsername());
+        long issuedAt = currentTimeMillis();
+        String payload = String.join(SEPARATOR, genSessionID(), session.getUsername(),
+                isNull(grant) ? "" : grant.getDigest(), String.valueOf(issuedAt),
+                String.valueOf(issuedAt + acl.getTokenExpireMs()));
+        return TOKEN_PREFIX.concat(encode(payload.getBytes(UTF_8))).concat(".").concat(encode(sign(payload)));
+    }
+
+    /**
+     * Validate the token locally.
+     * 
+     * @param token
+     * @return The authenticated session, or null if the token is invalid,
+     *         expired or revoked.
+     */
+    public ShellSession validate(String token) {
+        String[] claims = parse(token);
+        if (isNull(claims)) {
+            return null;
+        }
+        long now = currentTimeMillis();
+        long expireAt = Long.parseLong(claims[4]);
+        if (now >= expireAt) {
+            log.debug("Expired session token of user: {}", claims[1]);
+            revocationChecked.remove(claims[0]);
+            return null;
+        }
+        // The permissions of the user have changed?
+        AclIndex.Grant grant = acl.getIndex().getGrant(claims[1]);
+        if (isNull(grant) || !grant.getDigest().equals(claims[2])) {
+            log.debug("Outdated permissions of session token of user: {}", claims[1]);
+            return null;
+        }
+        if (isRevoked(claims[0], now)) {
+            log.debug("Revoked session token of user: {}", claims[1]);
+            return null;
+        }
+        long issuedAt = Long.parseLong(claims[3]);
+        return new ShellSession(token, claims[1], true, null, issuedAt, now);
+    }
+
+    /**
+     * Revoke the token before the expiration, all the nodes are visible.
+     * 
+     * @param token
+     * @return false if the token is invalid or expired.
+     */
+    public boolean revoke(String token) {
+        String[] claims = parse(token);
+        if (isNull(claims)) {
+            return false;
+        }
+        long remainingMs = Long.parseLong(claims[4]) - currentTimeMillis();
+        if (remainingMs <= 0) {
+            return false;
+        }
+        revocationChecked.remove(claims[0]);
+        return shellCache.set(REVOKED_KEY_PREFIX.concat(claims[0]), claims[1], remainingMs);
+    }
+
+    /**
+     * Parse and verify the signature of the token.
+     * 
+     * @param token
+     * @return the claims, or null if the signature is invalid.
+     */
+    private String[] parse(String token) {
+        if (!isToken(token)) {
+            return null;
+        }
+        int dot = token.indexOf('.', TOKEN_PREFIX.length());
+        if (dot < 0 || isNull(macs)) {
+            return null;
+        }
+        try {
+            String payload = new String(decode(token.substring(TOKEN_PREFIX.length(), dot)), UTF_8);
+            if (!isEqual(sign(payload), decode(token.substring(dot + 1)))) {
+                log.warn("Invalid signature of session token: #{}", fingerprint(token));
+                return null;
+            }
+            String[] claims = payload.split(SEPARATOR, -1);
+            return (claims.length == 5) ? claims : null;
+        } catch (IllegalArgumentException e) { // Malformed base64
+            log.warn("Malformed session token: #{}", fingerprint(token));
+            return null;
+        }
+    }
+
+    private boolean isRevoked(String tokenId, long now) {
+        Long checked = revocationChecked.get(tokenId);
+        if (nonNull(checked) && (now - checked) < acl.getTokenRevocationCheckMs()) {
+            return false;
+        }
+        if (nonNull(shellCache.get(REVOKED_KEY_PREFIX.concat(tokenId), String.class))) {
+            revocationChecked.remove(tokenId);
+            return true;
+        }
+        if (revocationChecked.size() >= MAX_REVOCATION_CHECKED) {
+            revocationChecked.clear();
+        }
+        revocationChecked.put(tokenId, now);
+        return false;
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(UTF_8));
+    }
+
+    /**
+     * The short SHA-256 fingerprint of the token for logging, the token is
+     * the bearer credential and must never be logged.
+     * 
+     * @param token
+     * @return
+     */
+    private static String fingerprint(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(UTF_8));
+            StringBuilder hex = new StringBuilder(FINGERPRINT_BYTES * 2);
+            for (int i = 0; i < FINGERPRINT_BYTES; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            return "unknown";
+        }
+    }
+
+    private static String encode(byte[] data) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+    }
+
+    private static byte[] decode(String data) {
+        return Base64.getUrlDecoder().decode(data);
+    }
+
+    /**
+     * Check whether the session ID is a stateless session token.
+     * 
+     * @param sessionId
+     * @return
+     */
+    public static boolean isToken(String sessionId) {
+        return startsWith(sessionId, TOKEN_PREFIX);
+    }
+
+    public static final String TOKEN_PREFIX = "T.";
+    public static final String REVOKED_KEY_PREFIX = "shell:token:revoked:";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String SEPARATOR = "\n";
+    private static final int MAX_REVOCATION_CHECKED = 4096;
+    private static final int FINGERPRINT_BYTES = 8;
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.session.ShellSession;
+
+/**
+ * Tests of {@link FileShellCache}, the log is replayed after reopening, the
+ * torn or corrupted tail records are ignored, and the log is compacted
+ * instead of growing.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-21 v1.0.0
+ * @since v1.0
+ */
+public class FileShellCacheTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ServerShellProperties config;
+    private File file;
+    private FileShellCache cache;
+
+    @Before
+    public void setup() throws Exception {
+        config = new ServerShellProperties();
+        file = new File(folder.getRoot(), "shell.cache");
+        cache = new FileShellCache(config, file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+    }
+
+    @Test
+    public void testReplayAfterReopen() throws Exception {
+        long now = currentTimeMillis();
+        cache.hset("s1", new ShellSession("s1", "admin", true, "127.0.0.1", now, now));
+        cache.hset("s2", new ShellSession("s2", "admin", true, "127.0.0.1", now, now));
+        cache.hpatch("latestTimestamp", singletonMap("s1", now + 1000L));
+        cache.hdel("s2");
+        cache.set("lock", "owner1", 0L);
+        cache.set("expiring", "owner2", 100L);
+        assertTrue(cache.rwlock("rw", "reader1", false, 60_000L));
+        Thread.sleep(200L);
+
+        reopen();
+        assertEquals(now + 1000L, cache.hget("s1", ShellSession.class).getLatestTimestamp());
+        assertNull(cache.hget("s2", ShellSession.class));
+        assertEquals("owner1", cache.get("lock", String.class));
+        assertNull(cache.get("expiring", String.class));
+        // The replayed reader still holds the read lock.
+        assertFalse(cache.rwlock("rw", "writer", true, 60_000L));
+        assertTrue(cache.rwunlock("rw", "reader1"));
+        assertTrue(cache.rwlock("rw", "writer", true, 60_000L));
+    }
+
+    @Test
+    public void testTornTailIgnored() throws Exception {
+        cache.set("k1", "v1", 0L);
+        cache.set("k2", "v2", 0L);
+        cache.close();
+
+        // The length is committed after the payload, i.e. crashed before.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(lastRecordOffset(raf));
+            raf.writeInt(0);
+        }
+        cache = new FileShellCache(config, file);
+        assertEquals("v1", cache.get("k1", String.class));
+        assertNull(cache.get("k2", String.class));
+
+        // The log is appendable after the torn tail.
+        cache.set("k3", "v3", 0L);
+        reopen();
+        assertEquals("v1", cache.get("k1", String.class));
+        assertEquals("v3", cache.get("k3", String.class));
+    }
+
+    @Test
+    public void testCorruptedTailIgnored() throws Exception {
+        cache.set("k1", "v1", 0L);
+        cache.set("k2", "v2", 0L);
+        cache.close();
+
+        // Flip the last byte of the payload, mismatched the CRC32.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long offset = lastRecordOffset(raf);
+            raf.seek(offset);
+            long last = offset + 8 + raf.readInt() - 1;
+            raf.seek(last);
+            int b = raf.read();
+            raf.seek(last);
+            raf.write(~b);
+        }
+        cache = new FileShellCache(config, file);
+        assertEquals("v1", cache.get("k1", String.class));
+        assertNull(cache.get("k2", String.class));
+    }
+
+    @Test
+    public void testCompactedInsteadOfGrowing() throws Exception {
+        long initialLength = file.length();
+        String value = StringUtils.repeat('x', 1024);
+        // Overwrites far beyond the initial mapped region.
+        for (int i = 0; i < 4096; i++) {
+            cache.set("k" + (i % 4), value + i, 0L);
+        }
+        assertEquals(initialLength, file.length());
+
+        reopen();
+        assertEquals(initialLength, file.length());
+        for (int i = 4092; i < 4096; i++) {
+            assertEquals(value + i, cache.get("k" + (i % 4), String.class));
+        }
+    }
+
+    private void reopen() throws Exception {
+        cache.close();
+        cache = new FileShellCache(config, file);
+    }
+
+    /**
+     * Walk the committed records, i.e. '| LENGTH | CRC32 | PAYLOAD |'.
+     */
+    private static long lastRecordOffset(RandomAccessFile raf) throws Exception {
+        long pos = 0, last = -1;
+        while (pos + 8 <= raf.length()) {
+            raf.seek(pos);
+            int length = raf.readInt();
+            if (length <= 0) {
+                break;
+            }
+            last = pos;
+            pos += length + 8;
+        }
+        assertTrue(last >= 0);
+        return last;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.session.ShellSession;
+
+/**
+ * Tests of the per-entry expiration and the namespaces of
+ * {@link MemoryShellCache}.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+public class MemoryShellCacheTests {
+
+    private MemoryShellCache cache;
+
+    @Before
+    public void setup() {
+        ServerShellProperties config = new ServerShellProperties();
+        config.getAcl().setTimeoutMs(500L);
+        cache = new MemoryShellCache(config);
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void testKeyExpired() throws Exception {
+        assertTrue(cache.set("k1", "v1", 200L));
+        assertTrue(cache.set("k2", "v2", 0L)); // Never expire
+        assertEquals("v1", cache.get("k1", String.class));
+
+        Thread.sleep(400L);
+        assertNull(cache.get("k1", String.class));
+        assertEquals("v2", cache.get("k2", String.class));
+        // The expired key is absent for setnx.
+        assertTrue(cache.setnx("k1", "v1-2", 200L));
+        assertFalse(cache.setnx("k1", "v1-3", 200L));
+    }
+
+    @Test
+    public void testKeyRenewedByOwner() throws Exception {
+        assertTrue(cache.setnx("lock", "owner1", 300L));
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(150L);
+            assertEquals(1, cache.expireeq(singletonMap("lock", "owner1"), 300L).size());
+            // Only renewed by the owner.
+            assertTrue(cache.expireeq(singletonMap("lock", "owner2"), 300L).isEmpty());
+        }
+        assertEquals("owner1", cache.get("lock", String.class));
+
+        assertNull(cache.deleq("lock", "owner2"));
+        assertNotNull(cache.deleq("lock", "owner1"));
+        assertNull(cache.get("lock", String.class));
+    }
+
+    @Test
+    public void testHashFieldIdleExpired() throws Exception {
+        long now = currentTimeMillis();
+        cache.hset("s1", new ShellSession("s1", "admin", true, "127.0.0.1", now, now));
+        cache.hset("s2", new ShellSession("s2", "admin", true, "127.0.0.1", now, now));
+
+        // Refreshed by touching.
+        Thread.sleep(300L);
+        assertEquals(1L, cache.hpatch("latestTimestamp", singletonMap("s1", currentTimeMillis())));
+        Thread.sleep(300L);
+        assertNotNull(cache.hget("s1", ShellSession.class));
+        assertNull(cache.hget("s2", ShellSession.class));
+        assertEquals(1, cache.hgetAll(ShellSession.class).size());
+    }
+
+    @Test
+    public void testHashesAndKeysSeparated() {
+        long now = currentTimeMillis();
+        cache.hset("same", new ShellSession("same", "admin", true, "127.0.0.1", now, now));
+        cache.set("same", "lock-owner", 0L);
+
+        assertEquals("lock-owner", cache.get("same", String.class));
+        assertEquals("same", cache.hget("same", ShellSession.class).getSessionId());
+        assertEquals(1, cache.hgetAll(ShellSession.class).size());
+
+        assertTrue(cache.hdel("same"));
+        assertEquals("lock-owner", cache.get("same", String.class));
+        assertTrue(cache.del("same"));
+        assertNull(cache.get("same", String.class));
+    }
+
+    @Test
+    public void testReadWriteOwnersExpired() throws Exception {
+        assertTrue(cache.rwlock("rw", "reader1", false, 200L));
+        assertTrue(cache.rwlock("rw", "reader2", false, 200L));
+        assertFalse(cache.rwlock("rw", "writer", true, 200L));
+
+        // The crashed readers are purged after expired.
+        Thread.sleep(300L);
+        assertTrue(cache.rwlock("rw", "writer", true, 200L));
+        assertFalse(cache.rwlock("rw", "reader1", false, 200L));
+        assertTrue(cache.rwunlock("rw", "writer"));
+        assertTrue(cache.rwlock("rw", "reader1", false, 200L));
+    }
+
+}
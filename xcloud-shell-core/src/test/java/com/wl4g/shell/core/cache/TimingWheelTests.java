@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.cache;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link TimingWheel}, the timeouts must never fire before their
+ * deadlines, including the deadlines beyond one round of the wheel.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+public class TimingWheelTests {
+
+    private final Map<String, Long> firedAt = new ConcurrentHashMap<>();
+    private CountDownLatch fired;
+    private TimingWheel<String> wheel;
+
+    @Before
+    public void setup() {
+        // Small wheel (4 * 20ms), so the longer deadlines take several rounds.
+        wheel = new TimingWheel<>("test-wheel", 20L, 4, target -> {
+            firedAt.put(target, currentTimeMillis());
+            fired.countDown();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        wheel.close();
+    }
+
+    @Test(timeout = 10_000L)
+    public void testFiredNotBeforeDeadline() throws Exception {
+        fired = new CountDownLatch(3);
+        long now = currentTimeMillis();
+        wheel.schedule("short", now + 50L);
+        wheel.schedule("rounds", now + 300L);
+        wheel.schedule("longer", now + 500L);
+
+        assertTrue(fired.await(5, SECONDS));
+        assertTrue(firedAt.get("short") >= now + 50L);
+        assertTrue(firedAt.get("rounds") >= now + 300L);
+        assertTrue(firedAt.get("longer") >= now + 500L);
+        assertTrue(firedAt.get("rounds") <= firedAt.get("longer"));
+    }
+
+    @Test(timeout = 10_000L)
+    public void testPastDeadlineFiredOnNextTick() throws Exception {
+        fired = new CountDownLatch(2);
+        // Start the ticker first.
+        wheel.schedule("first", currentTimeMillis() + 20L);
+        Thread.sleep(100L);
+        wheel.schedule("past", currentTimeMillis() - 1000L);
+
+        assertTrue(fired.await(5, SECONDS));
+        assertEquals(2, firedAt.size());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testNotFiredAfterClosed() throws Exception {
+        fired = new CountDownLatch(1);
+        wheel.schedule("closing", currentTimeMillis() + 200L);
+        wheel.close();
+        // Ignored after closed.
+        wheel.schedule("closed", currentTimeMillis());
+
+        Thread.sleep(400L);
+        assertTrue(firedAt.isEmpty());
+    }
+
+}
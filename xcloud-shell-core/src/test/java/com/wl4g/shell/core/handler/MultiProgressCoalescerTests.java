@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.shell.common.signal.MultiProgressSignal;
+
+/**
+ * Tests of {@link MultiProgressCoalescer}, each emission carries only the
+ * changed bars, and the emissions are bounded by the rate instead of the
+ * number of the bars.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-25
+ * @since v1.0
+ */
+public class MultiProgressCoalescerTests {
+
+    private final List<MultiProgressSignal> emitted = new CopyOnWriteArrayList<>();
+    private final Consumer<MultiProgressSignal> writer = signal -> emitted.add(signal);
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setup() {
+        scheduler = newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "multi-progress-test-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testOnlyChangedBarsEmitted() {
+        MultiProgressCoalescer coalescer = new MultiProgressCoalescer(0);
+        assertTrue(coalescer.isEmpty());
+        coalescer.begin("a", "download", 10, writer);
+        coalescer.begin("b", "upload", 10, writer);
+        coalescer.step("a", 3L, writer);
+        // Unchanged, skipped.
+        coalescer.step("b", 0L, writer);
+
+        assertFalse(coalescer.isEmpty());
+        assertEquals(3, emitted.size());
+        assertEquals(asList("a"), new ArrayList<>(emitted.get(0).getChanges().keySet()));
+        assertEquals(asList("b"), new ArrayList<>(emitted.get(1).getChanges().keySet()));
+        assertEquals(asList("a"), new ArrayList<>(emitted.get(2).getChanges().keySet()));
+        assertEquals(3, emitted.get(2).getChanges().get("a").getProgress());
+        for (int i = 0; i < emitted.size(); i++) {
+            assertEquals(i + 1, emitted.get(i).getSequence());
+        }
+    }
+
+    @Test
+    public void testThrottledAcrossBars() {
+        MultiProgressCoalescer coalescer = new MultiProgressCoalescer(1);
+        coalescer.begin("a", "download", 100, writer);
+        coalescer.begin("b", "upload", 100, writer);
+        int begun = emitted.size();
+        for (int i = 0; i < 20; i++) {
+            coalescer.step("a", 1L, writer);
+            coalescer.step("b", 2L, writer);
+        }
+        // At most the first step wins the emission slot.
+        assertTrue(emitted.size() - begun <= 1);
+
+        // The latest of all the bars in one signal, in the registered order.
+        coalescer.flush(writer);
+        MultiProgressSignal last = last();
+        assertEquals(asList("a", "b"), new ArrayList<>(last.getChanges().keySet()));
+        assertEquals(20, last.getChanges().get("a").getProgress());
+        assertEquals(40, last.getChanges().get("b").getProgress());
+    }
+
+    @Test
+    public void testCompletedBarAlwaysEmitted() {
+        MultiProgressCoalescer coalescer = new MultiProgressCoalescer(1);
+        coalescer.begin("a", "download", 5, writer);
+        for (int i = 0; i < 5; i++) {
+            coalescer.step("a", 1L, writer);
+        }
+        assertEquals(5, last().getChanges().get("a").getProgress());
+
+        coalescer.update("b", "upload", 8, 8, writer);
+        assertEquals(8, last().getChanges().get("b").getProgress());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testSuppressedFlushedByTrailing() throws Exception {
+        MultiProgressCoalescer coalescer = new MultiProgressCoalescer(10, scheduler);
+        coalescer.begin("a", "download", 100, writer);
+        for (int i = 0; i < 5; i++) {
+            coalescer.step("a", 1L, writer);
+        }
+        // The updates stop before completion, but never stall.
+        while (last().getChanges().get("a").getProgress() != 5) {
+            Thread.sleep(20L);
+        }
+        assertEquals(5, last().getChanges().get("a").getProgress());
+    }
+
+    private MultiProgressSignal last() {
+        return emitted.get(emitted.size() - 1);
+    }
+
+}
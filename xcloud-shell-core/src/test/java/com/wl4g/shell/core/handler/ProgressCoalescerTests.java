@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.shell.common.signal.ProgressSignal;
+
+/**
+ * Tests of {@link ProgressCoalescer}, the intermediate updates are
+ * coalesced, while the latest and the completed progress are never lost.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version v1.0 2021-07-24
+ * @since v1.0
+ */
+public class ProgressCoalescerTests {
+
+    private final List<ProgressSignal> emitted = new CopyOnWriteArrayList<>();
+    private final Consumer<ProgressSignal> writer = signal -> emitted.add(signal);
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setup() {
+        scheduler = newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "progress-test-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testUnthrottledEmittedOnlyChanged() {
+        ProgressCoalescer coalescer = new ProgressCoalescer(10, 0);
+        for (int i = 1; i <= 5; i++) {
+            coalescer.update("copying", 10, i, writer);
+            // Unchanged, skipped.
+            coalescer.update("copying", 10, i, writer);
+        }
+        assertEquals(5, emitted.size());
+        assertEquals(5, last().getProgress());
+    }
+
+    @Test
+    public void testThrottledCoalesced() {
+        ProgressCoalescer coalescer = new ProgressCoalescer(1000, 1);
+        coalescer.begin("copying", 1000, writer);
+        for (int i = 0; i < 100; i++) {
+            coalescer.step(1L, writer);
+        }
+        // The begin and at most the first step.
+        assertTrue(emitted.size() <= 2);
+
+        coalescer.flush(writer);
+        assertEquals(100, last().getProgress());
+        assertEquals(1000, last().getWhole());
+    }
+
+    @Test
+    public void testCompletedAlwaysEmitted() {
+        ProgressCoalescer coalescer = new ProgressCoalescer(10, 1);
+        coalescer.begin("copying", 10, writer);
+        for (int i = 0; i < 10; i++) {
+            coalescer.step(1L, writer);
+        }
+        assertEquals(10, last().getProgress());
+
+        // The overflowed progress is clamped to the whole.
+        coalescer.update("copying", 10, 20, writer);
+        assertEquals(10, last().getProgress());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testSuppressedFlushedByTrailing() throws Exception {
+        ProgressCoalescer coalescer = new ProgressCoalescer(100, 10, scheduler);
+        coalescer.begin("copying", 100, writer);
+        for (int i = 0; i < 5; i++) {
+            coalescer.step(1L, writer);
+        }
+        // The updates stop before completion, but never stall.
+        while (last().getProgress() != 5) {
+            Thread.sleep(20L);
+        }
+        assertEquals(5, last().getProgress());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testConcurrentSteps() throws Exception {
+        int threads = 8, steps = 1000;
+        ProgressCoalescer coalescer = new ProgressCoalescer(threads * steps, 20, scheduler);
+        coalescer.begin("copying", threads * steps, writer);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                for (int j = 0; j < steps; j++) {
+                    coalescer.step(1L, writer);
+                }
+            });
+            workers.add(t);
+            t.start();
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        assertEquals(threads * steps, last().getProgress());
+        // Emitted in order, never goes backwards.
+        for (int i = 1; i < emitted.size(); i++) {
+            assertTrue(emitted.get(i).getProgress() >= emitted.get(i - 1).getProgress());
+        }
+    }
+
+    private ProgressSignal last() {
+        return emitted.get(emitted.size() - 1);
+    }
+
+}
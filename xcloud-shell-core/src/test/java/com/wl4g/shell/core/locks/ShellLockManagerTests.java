@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.locks;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.shell.core.cache.MemoryShellCache;
+import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.locks.ShellLockManager.LockOwner;
+import com.wl4g.shell.core.locks.ShellLockManager.QueuedLock;
+
+/**
+ * Tests of {@link ShellLockManager}, the shared {@link MemoryShellCache}
+ * stands in for the redis, and each node has its own lock manager.
+ *
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+public class ShellLockManagerTests {
+
+    private MemoryShellCache sharedCache;
+    private ShellLockManager node1;
+    private ShellLockManager node2;
+
+    @Before
+    public void setup() {
+        sharedCache = new MemoryShellCache(new ServerShellProperties());
+        node1 = new ShellLockManager(sharedCache);
+        node2 = new ShellLockManager(sharedCache);
+    }
+
+    @After
+    public void tearDown() {
+        node1.close();
+        node2.close();
+        sharedCache.close();
+    }
+
+    @Test(timeout = 10_000L)
+    public void testFifoHandoff() throws Exception {
+        LockOwner holder = LockOwner.newInvocation();
+        QueuedLock holding = node1.getLock("fifo", holder);
+        holding.lock();
+
+        List<String> acquiredOrder = new CopyOnWriteArrayList<>();
+        CountDownLatch firstQueued = new CountDownLatch(1);
+        CountDownLatch secondQueued = new CountDownLatch(1);
+        Thread first = startWaiter(node1, "fifo", "first", acquiredOrder, firstQueued);
+        firstQueued.await();
+        Thread second = startWaiter(node1, "fifo", "second", acquiredOrder, secondQueued);
+        secondQueued.await();
+
+        holding.unlock();
+        first.join();
+        second.join();
+        assertEquals(asList("first", "second"), acquiredOrder);
+        assertEquals(0, holder.getHolds());
+        assertFalse(holder.isBusy());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testHandoffToOtherNode() throws Exception {
+        QueuedLock holding = node1.getLock("handoff", LockOwner.newInvocation());
+        holding.lock();
+        QueuedLock waiting = node2.getLock("handoff", LockOwner.newInvocation());
+        assertFalse(waiting.tryLock());
+
+        Thread releaser = new Thread(() -> {
+            sleepQuietly(300L);
+            holding.unlock();
+        });
+        releaser.start();
+        assertTrue(waiting.tryLock(5, SECONDS));
+        waiting.unlock();
+        releaser.join();
+    }
+
+    @Test(timeout = 10_000L)
+    public void testReentrantHolds() throws Exception {
+        LockOwner owner = LockOwner.newInvocation();
+        QueuedLock lock = node1.getLock("reentrant", owner);
+        assertTrue(lock.tryLock());
+        assertTrue(lock.tryLock());
+        assertEquals(2, owner.getHolds());
+        assertFalse(node2.getLock("reentrant", LockOwner.newInvocation()).tryLock());
+
+        lock.unlock();
+        assertFalse(node2.getLock("reentrant", LockOwner.newInvocation()).tryLock());
+        lock.unlock();
+        assertEquals(0, owner.getHolds());
+        assertTrue(node2.getLock("reentrant", LockOwner.newInvocation()).tryLock());
+    }
+
+    @Test(timeout = 15_000L)
+    public void testWatchdogRenewal() throws Exception {
+        LockOwner owner = LockOwner.newInvocation();
+        QueuedLock lock = node1.getLock("renewal", 1500L, MILLISECONDS, owner);
+        assertTrue(lock.tryLock());
+
+        // Held longer than the lease, extended by the watchdog.
+        Thread.sleep(3500L);
+        assertEquals(owner.getOwnerId(), sharedCache.get(ShellLockManager.NAMESPACE + "renewal", String.class));
+        assertFalse(node2.getLock("renewal", 1500L, MILLISECONDS, LockOwner.newInvocation()).tryLock());
+
+        lock.unlock();
+        assertNull(sharedCache.get(ShellLockManager.NAMESPACE + "renewal", String.class));
+    }
+
+    @Test(timeout = 15_000L)
+    public void testDeadOwnerReleasedByWatchdog() throws Exception {
+        LockOwner owner = LockOwner.newInvocation();
+        assertTrue(node1.getLock("dead", owner).tryLock());
+
+        // The invocation completed without unlocking, e.g. crashed.
+        owner.complete();
+        assertTrue(node2.getLock("dead", LockOwner.newInvocation()).tryLock(5, SECONDS));
+    }
+
+    @Test(timeout = 10_000L)
+    public void testDistributedBulkhead() throws Exception {
+        QueuedLock first = node1.getBulkhead("bulkhead", 2, false, LockOwner.newInvocation());
+        QueuedLock second = node2.getBulkhead("bulkhead", 2, false, LockOwner.newInvocation());
+        QueuedLock third = node1.getBulkhead("bulkhead", 2, false, LockOwner.newInvocation());
+        assertTrue(first.tryLock());
+        assertTrue(second.tryLock());
+        assertFalse(third.tryLock());
+
+        second.unlock();
+        assertTrue(third.tryLock(5, SECONDS));
+    }
+
+    @Test(timeout = 10_000L)
+    public void testLocalBulkhead() throws Exception {
+        QueuedLock first = node1.getBulkhead("local", 2, true, LockOwner.newInvocation());
+        QueuedLock second = node1.getBulkhead("local", 2, true, LockOwner.newInvocation());
+        QueuedLock third = node1.getBulkhead("local", 2, true, LockOwner.newInvocation());
+        assertTrue(first.tryLock());
+        assertTrue(second.tryLock());
+        assertFalse(third.tryLock());
+        // Only limited within the current node.
+        assertTrue(node2.getBulkhead("local", 2, true, LockOwner.newInvocation()).tryLock());
+
+        first.unlock();
+        assertTrue(third.tryLock(5, SECONDS));
+    }
+
+    @Test(timeout = 10_000L)
+    public void testDistributedReadWrite() throws Exception {
+        QueuedLock reader1 = node1.getReadWriteLock("rw", false, false, LockOwner.newInvocation());
+        QueuedLock reader2 = node2.getReadWriteLock("rw", false, false, LockOwner.newInvocation());
+        QueuedLock writer = node1.getReadWriteLock("rw", true, false, LockOwner.newInvocation());
+        assertTrue(reader1.tryLock());
+        assertTrue(reader2.tryLock());
+        assertFalse(writer.tryLock());
+
+        reader1.unlock();
+        reader2.unlock();
+        assertTrue(writer.tryLock(5, SECONDS));
+        assertFalse(node2.getReadWriteLock("rw", false, false, LockOwner.newInvocation()).tryLock());
+        assertFalse(node2.getReadWriteLock("rw", true, false, LockOwner.newInvocation()).tryLock());
+
+        writer.unlock();
+        assertTrue(node2.getReadWriteLock("rw", false, false, LockOwner.newInvocation()).tryLock());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testReadNotUpgradedToWrite() throws Exception {
+        LockOwner owner = LockOwner.newInvocation();
+        assertTrue(node1.getReadWriteLock("upgrade", false, false, owner).tryLock());
+        assertFalse(node1.getReadWriteLock("upgrade", true, false, owner).tryLock());
+        // The writer is reentrant as the reader.
+        LockOwner writerOwner = LockOwner.newInvocation();
+        assertTrue(node1.getReadWriteLock("downgrade", true, false, writerOwner).tryLock());
+        assertTrue(node1.getReadWriteLock("downgrade", false, false, writerOwner).tryLock());
+        assertEquals(2, writerOwner.getHolds());
+    }
+
+    @Test(timeout = 10_000L)
+    public void testLocalReadWrite() throws Exception {
+        QueuedLock reader1 = node1.getReadWriteLock("localRw", false, true, LockOwner.newInvocation());
+        QueuedLock reader2 = node1.getReadWriteLock("localRw", false, true, LockOwner.newInvocation());
+        QueuedLock writer = node1.getReadWriteLock("localRw", true, true, LockOwner.newInvocation());
+        assertTrue(reader1.tryLock());
+        assertTrue(reader2.tryLock());
+        assertFalse(writer.tryLock());
+
+        reader1.unlock();
+        reader2.unlock();
+        assertTrue(writer.tryLock());
+        assertFalse(node1.getReadWriteLock("localRw", false, true, LockOwner.newInvocation()).tryLock());
+    }
+
+    /**
+     * Start the waiter thread, which acquires the lock in turn and records
+     * the acquired order.
+     */
+    private Thread startWaiter(ShellLockManager manager, String name, String waiter, List<String> acquiredOrder,
+            CountDownLatch queued) {
+        Thread t = new Thread(() -> {
+            QueuedLock lock = manager.getLock(name, LockOwner.newInvocation());
+            try {
+                if (lock.tryLock(5, SECONDS, position -> queued.countDown())) {
+                    acquiredOrder.add(waiter);
+                    sleepQuietly(50L);
+                    lock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, waiter);
+        t.start();
+        return t;
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.session;
+
+import static java.lang.System.currentTimeMillis;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.shell.core.cache.MemoryShellCache;
+import com.wl4g.shell.core.cache.TwoTierShellCache;
+import com.wl4g.shell.core.config.ServerShellProperties;
+
+/**
+ * Tests of the near-cache invalidations of {@link CachingShellSessionDAO}
+ * across the nodes, the shared {@link MemoryShellCache} stands in for the
+ * redis, and each node wraps it by {@link TwoTierShellCache}.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+public class CachingShellSessionDAOTests {
+
+    private MemoryShellCache sharedCache;
+    private CachingShellSessionDAO node1;
+    private CachingShellSessionDAO node2;
+    private final AtomicInteger cacheInvalidations = new AtomicInteger(0);
+
+    @Before
+    public void setup() {
+        sharedCache = new MemoryShellCache(new ServerShellProperties());
+        sharedCache.subscribe(TwoTierShellCache.INVALIDATION_CHANNEL, message -> cacheInvalidations.incrementAndGet());
+        node1 = new CachingShellSessionDAO(new TwoTierShellCache(sharedCache, 128, 60_000L), 60_000L, 60_000L);
+        node2 = new CachingShellSessionDAO(new TwoTierShellCache(sharedCache, 128, 60_000L), 60_000L, 60_000L);
+    }
+
+    @After
+    public void tearDown() {
+        node1.close();
+        node2.close();
+        sharedCache.close();
+    }
+
+    @Test
+    public void testUpdatedSessionInvalidatedOnOtherNode() {
+        ShellSession anonymous = newSession("s1", null, false);
+        node1.put(anonymous);
+        assertSame(anonymous, node2.get("s1"));
+
+        ShellSession authenticated = newSession("s1", "admin", true);
+        node1.put(authenticated);
+        assertSame(authenticated, node2.get("s1"));
+        assertSame(authenticated, node2.getAsync("s1").toCompletableFuture().join());
+    }
+
+    @Test
+    public void testRemovedSessionInvalidatedOnOtherNode() {
+        node1.put(newSession("s2", "admin", true));
+        node2.get("s2");
+
+        node1.remove("s2");
+        assertNull(node2.get("s2"));
+    }
+
+    @Test
+    public void testTouchFlushNotBroadcast() {
+        node1.put(newSession("s3", "admin", true));
+        node2.get("s3");
+        int invalidations = cacheInvalidations.get();
+
+        long latestTimestamp = currentTimeMillis() + 1000L;
+        node1.touch("s3", latestTimestamp);
+        node1.flush();
+        assertEquals(invalidations, cacheInvalidations.get());
+        assertEquals(latestTimestamp, sharedCache.hget("s3", ShellSession.class).getLatestTimestamp());
+    }
+
+    private ShellSession newSession(String sessionId, String username, boolean authenticated) {
+        long now = currentTimeMillis();
+        return new ShellSession(sessionId, username, authenticated, "127.0.0.1", now, now);
+    }
+
+}
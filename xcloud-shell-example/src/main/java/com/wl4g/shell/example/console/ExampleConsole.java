@@ -19,7 +19,11 @@ import static java.lang.String.format;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,10 +35,15 @@ import org.springframework.stereotype.Service;
 
 import com.wl4g.shell.common.annotation.ShellMethod;
 import com.wl4g.shell.common.annotation.ShellMethod.InterruptType;
+import com.wl4g.shell.common.annotation.ShellMethod.LockMode;
 import com.wl4g.shell.common.annotation.ShellOption;
+import com.wl4g.shell.common.signal.TableSignal.Column;
+import com.wl4g.shell.common.signal.TableSignal.ColumnType;
+import com.wl4g.shell.core.handler.CancellationToken;
 import com.wl4g.shell.core.handler.ProgressShellContext;
 import com.wl4g.shell.core.handler.ProgressShellContext.UserShellContextBinders;
 import com.wl4g.shell.core.handler.SimpleShellContext;
+import com.wl4g.shell.core.handler.TableWriter;
 import com.wl4g.shell.example.console.args.MixedArgument;
 import com.wl4g.shell.example.console.args.SumArgument;
 import com.wl4g.shell.example.service.ExampleService;
@@ -55,6 +64,7 @@ import com.wl4g.shell.springboot.annotation.ShellComponent;
 public class ExampleConsole {
     final private static String GROUP_NAME = "Example commands";
     final private static Logger log = LoggerFactory.getLogger(ExampleConsole.class);
+    final private static ExecutorService asyncExecutor = Executors.newFixedThreadPool(2);
 
     @Autowired
     private ExampleService exampleService;
@@ -93,39 +103,89 @@ public class ExampleConsole {
         context.completed();
     }
 
+    /**
+     * For example: $> testTable -n 20
+     */
+    @ShellMethod(keys = "testTable", group = GROUP_NAME, help = "A simple structured table output method, try: table sort value desc, table csv")
+    public void testTable(SimpleShellContext context,
+            @ShellOption(opt = "n", lopt = "num", help = "Number of rows", defaultValue = "20") int num) {
+        try (TableWriter table = context.table(Column.of("id", ColumnType.INTEGER), Column.of("name", ColumnType.STRING),
+                Column.of("value", ColumnType.DECIMAL), Column.of("enabled", ColumnType.BOOLEAN))) {
+            for (int i = 1; i <= num; i++) {
+                table.row(i, "item-" + i, Math.random() * 100, i % 2 == 0);
+            }
+        }
+        context.completed();
+    }
+
     // --------------- Testing for ShellContext. ----------------
 
     /**
      * For example: $> testAsyncTask -n 20
      */
     @ShellMethod(keys = "testAsyncTask", group = GROUP_NAME, help = "This is a shell method for printing logs asynchronously.(Not support interrupt)")
-    public void testAsyncTask(
+    public CompletableFuture<String> testAsyncTask(
             @ShellOption(opt = "n", lopt = "num", required = false, defaultValue = "5", help = "Number of printed messages") int num,
             SimpleShellContext context) {
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            try {
-                context.printf("TestAsyncTask starting ...");
-                for (int i = 1; i <= num; i++) {
-                    String message = "This is the " + i + "th output of TestAsyncTask ...";
-                    log.info(message);
+        // Note: The returned future is completed by the shell server, it's no
+        // longer necessary to call context.completed() manually.
+        return CompletableFuture.supplyAsync(() -> {
+            context.printf("TestAsyncTask starting ...");
+            for (int i = 1; i <= num; i++) {
+                String message = "This is the " + i + "th output of TestAsyncTask ...";
+                log.info(message);
 
-                    // Print to client console
-                    context.printf(message);
+                // Print to client console
+                context.printf(message);
 
-                    try {
-                        Thread.sleep(200L);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+                try {
+                    Thread.sleep(200L);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
                 }
-                context.printf("TestAsyncTask finished!");
-            } finally {
-                // *** Note: Don't forget to execute it, or the client console
-                // will pause until it timesout.
-                context.completed();
             }
-        });
+            return "TestAsyncTask finished!";
+        }, asyncExecutor);
+    }
+
+    /**
+     * For example: $> testStreamTask -n 1000000
+     */
+    @ShellMethod(keys = "testStreamTask", group = GROUP_NAME, lockMode = LockMode.READ, help = "This is a shell method for lazy output of large results.(Support paging and interrupt)")
+    public Stream<String> testStreamTask(
+            @ShellOption(opt = "n", lopt = "num", required = false, defaultValue = "10000", help = "Number of output elements") long num) {
+        // Elements are pulled lazily by the shell server, without building
+        // them in memory.
+        return LongStream.rangeClosed(1, num).mapToObj(i -> "This is the " + i + "th element of TestStreamTask ...");
+    }
+
+    /**
+     * For example: $> testDeadlineTask -n 100, or override the deadline: $>
+     * timeout 3 testDeadlineTask -n 100
+     */
+    @ShellMethod(keys = "testDeadlineTask", group = GROUP_NAME, timeout = 10_000, help = "This is a shell method with the execution deadline.(Support cancellation token)")
+    public void testDeadlineTask(
+            @ShellOption(opt = "n", lopt = "num", required = false, defaultValue = "100", help = "Number of printed messages") int num,
+            SimpleShellContext context) {
+        CancellationToken token = context.getCancellationToken();
+        token.onCancel(() -> log.info("TestDeadlineTask cancelled, releasing resources ..."));
+
+        for (int i = 1; i <= num; i++) {
+            // Stop cooperatively after the deadline.
+            token.throwIfCancelled();
+            context.printf("This is the " + i + "th output of TestDeadlineTask, remaining: " + token.getRemainingMs() + "ms");
+            try {
+                Thread.sleep(500L);
+            } catch (InterruptedException e) {
+                token.throwIfCancelled();
+                // Interrupted but not cancelled, stop instead of racing
+                // through the remaining iterations.
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        context.completed();
     }
 
     /**
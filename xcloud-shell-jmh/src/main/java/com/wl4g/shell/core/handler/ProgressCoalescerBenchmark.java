@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.core.handler;
+
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.wl4g.shell.common.signal.ProgressSignal;
+
+/**
+ * Benchmark of the progress steps from many worker threads, compares the
+ * coalesced emissions (at most 'maxRate' per second) with the unthrottled
+ * emissions (maxRate=0, each changed step writes the channel), the emitted
+ * signals are printed at the end of each iteration.
+ * 
+ * <p>
+ * Note: it's in the package of the package-private {@link ProgressCoalescer}.
+ * </p>
+ * 
+ * <pre>
+ * java -jar xcloud-shell-jmh/target/benchmarks.jar ProgressCoalescerBenchmark
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-24 v1.0.0
+ * @since v1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ProgressCoalescerBenchmark {
+
+    /** The maximum progress signals per second, 0 means no throttling. */
+    @Param({ "0", "20" })
+    public int maxRate;
+
+    /** The CPU tokens of each channel write (serialization and flushing). */
+    @Param({ "2000" })
+    public long writeCost;
+
+    private ScheduledExecutorService scheduler;
+    private ProgressCoalescer coalescer;
+    private Consumer<ProgressSignal> writer;
+    private final LongAdder emitted = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scheduler = newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "progress-benchmark-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        coalescer = new ProgressCoalescer(Integer.MAX_VALUE, maxRate, scheduler);
+        // The channel writes are serialized.
+        writer = signal -> {
+            synchronized (emitted) {
+                Blackhole.consumeCPU(writeCost);
+                emitted.increment();
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void begin() {
+        emitted.reset();
+        coalescer.begin("benchmark", Integer.MAX_VALUE, writer);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printEmitted() {
+        coalescer.flush(writer);
+        System.out.println(format("%n[maxRate=%s] emitted: %s, progress: %s", maxRate, emitted.sum(), coalescer.getProgress()));
+    }
+
+    @Benchmark
+    public void step() {
+        coalescer.step(1L, writer);
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.jmh.cache;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singletonMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wl4g.shell.core.cache.MemoryShellCache;
+import com.wl4g.shell.core.cache.ShellCache;
+import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.session.ShellSession;
+
+/**
+ * Benchmark of the in-memory shell caches under the mixed session/lock
+ * workload, the session threads look up and touch the sessions, while the
+ * lock threads acquire and release the locks with expiration.
+ * 
+ * <pre>
+ * java -jar xcloud-shell-jmh/target/benchmarks.jar MemoryShellCacheBenchmark
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoryShellCacheBenchmark {
+
+    /** The cache implementation, 'memory' is the current, 'legacy' is the guava based. */
+    @Param({ "memory", "legacy" })
+    public String impl;
+
+    /** The number of the active sessions. */
+    @Param({ "1000" })
+    public int sessions;
+
+    /** The number of the contended locks. */
+    @Param({ "16" })
+    public int locks;
+
+    private ShellCache cache;
+    private String[] sessionIds;
+    private String[] lockKeys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServerShellProperties config = new ServerShellProperties();
+        cache = "legacy".equals(impl) ? new LegacyMemoryShellCache(config) : new MemoryShellCache(config);
+        sessionIds = new String[sessions];
+        long now = currentTimeMillis();
+        for (int i = 0; i < sessions; i++) {
+            sessionIds[i] = "session-" + i;
+            cache.hset(sessionIds[i], new ShellSession(sessionIds[i], "user-" + i, true, "127.0.0.1", now, now));
+        }
+        lockKeys = new String[locks];
+        for (int i = 0; i < locks; i++) {
+            lockKeys[i] = "lock-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (cache instanceof AutoCloseable) {
+            ((AutoCloseable) cache).close();
+        }
+    }
+
+    /**
+     * Look up and touch the session, the legacy cache has no patching, so
+     * the session is rewritten.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Object session() {
+        String sessionId = sessionIds[ThreadLocalRandom.current().nextInt(sessions)];
+        ShellSession session = cache.hget(sessionId, ShellSession.class);
+        if (cache instanceof MemoryShellCache) {
+            cache.hpatch("latestTimestamp", singletonMap(sessionId, currentTimeMillis()));
+        } else {
+            cache.hset(sessionId, session);
+        }
+        return session;
+    }
+
+    /**
+     * Try to acquire and release the lock with expiration.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean lock() {
+        String key = lockKeys[ThreadLocalRandom.current().nextInt(locks)];
+        String owner = Thread.currentThread().getName();
+        boolean acquired = cache.setnx(key, owner, 10_000L);
+        if (acquired) {
+            cache.deleq(key, owner);
+        }
+        return acquired;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.jmh.cache;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wl4g.shell.core.cache.ValueSerializer;
+import com.wl4g.shell.core.session.ShellSession;
+
+/**
+ * Benchmark of the value serializers of the redis shell caches, encodes and
+ * decodes the sessions and the lock owners of each format, the encoded sizes
+ * are printed at the setup.
+ * 
+ * <pre>
+ * java -jar xcloud-shell-jmh/target/benchmarks.jar ValueSerializerBenchmark
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueSerializerBenchmark {
+
+    /** The value serializer, see: {@link ValueSerializer#build(String)} */
+    @Param({ ValueSerializer.JSON, ValueSerializer.BINARY })
+    public String serializerName;
+
+    private ValueSerializer serializer;
+    private ShellSession session;
+    private String owner;
+    private byte[] encodedSession;
+    private byte[] encodedOwner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serializer = ValueSerializer.build(serializerName);
+        long now = currentTimeMillis();
+        session = new ShellSession("5f0c6a8e2b1d4c7f9e3a1b2c4d5e6f70", "admin", true, "10.0.0.1", now, now);
+        owner = "1a2b3c4d-12345@10.0.0.1-i42";
+        encodedSession = serializer.encode(session);
+        encodedOwner = serializer.encode(owner);
+        System.out.println(format("%n[%s] session: %s bytes, owner: %s bytes", serializerName, encodedSession.length,
+                encodedOwner.length));
+    }
+
+    @Benchmark
+    public byte[] encodeSession() {
+        return serializer.encode(session);
+    }
+
+    @Benchmark
+    public ShellSession decodeSession() {
+        return serializer.decode(encodedSession, ShellSession.class);
+    }
+
+    @Benchmark
+    public byte[] encodeOwner() {
+        return serializer.encode(owner);
+    }
+
+    @Benchmark
+    public String decodeOwner() {
+        return serializer.decode(encodedOwner, String.class);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.jmh.locks;
+
+import static com.wl4g.component.common.lang.Assert2.notNullOf;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.wl4g.shell.core.cache.ShellCache;
+
+/**
+ * The {@link ShellCache} decorator counting the cache operations of the
+ * locks, it stands in for the redis round trips.
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+public class CountingShellCache implements ShellCache {
+
+    private final ShellCache delegate;
+    private final LongAdder ops = new LongAdder();
+
+    public CountingShellCache(ShellCache delegate) {
+        this.delegate = notNullOf(delegate, "delegate");
+    }
+
+    public long getOps() {
+        return ops.sum();
+    }
+
+    public void reset() {
+        ops.reset();
+    }
+
+    @Override
+    public <V> boolean setnx(String key, V value, long expireMs) {
+        ops.increment();
+        return delegate.setnx(key, value, expireMs);
+    }
+
+    @Override
+    public Object deleq(String key, String arg) {
+        ops.increment();
+        return delegate.deleq(key, arg);
+    }
+
+    @Override
+    public Set<String> deleqAll(Map<String, String> keyValues) {
+        ops.increment();
+        return delegate.deleqAll(keyValues);
+    }
+
+    @Override
+    public Set<String> expireeq(Map<String, String> keyValues, long expireMs) {
+        ops.increment();
+        return delegate.expireeq(keyValues, expireMs);
+    }
+
+    @Override
+    public boolean rwlock(String key, String owner, boolean write, long expireMs) {
+        ops.increment();
+        return delegate.rwlock(key, owner, write, expireMs);
+    }
+
+    @Override
+    public boolean rwunlock(String key, String owner) {
+        ops.increment();
+        return delegate.rwunlock(key, owner);
+    }
+
+    @Override
+    public List<Boolean> rwexpire(List<String> keys, List<String> owners, long expireMs) {
+        ops.increment();
+        return delegate.rwexpire(keys, owners, expireMs);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        ops.increment();
+        delegate.publish(channel, message);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        delegate.subscribe(channel, listener);
+    }
+
+}
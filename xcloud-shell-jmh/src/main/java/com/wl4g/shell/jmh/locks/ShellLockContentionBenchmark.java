@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.shell.jmh.locks;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.wl4g.shell.core.cache.MemoryShellCache;
+import com.wl4g.shell.core.config.ServerShellProperties;
+import com.wl4g.shell.core.locks.ShellLockManager;
+import com.wl4g.shell.core.locks.ShellLockManager.LockOwner;
+import com.wl4g.shell.core.locks.ShellLockManager.QueuedLock;
+
+/**
+ * Contention benchmark of the shell locks, compares the FIFO queued locks
+ * woken up by the release notifications with the previous polling locks
+ * (retry every 50ms), the cache operations per acquisition are printed at the
+ * end of each iteration.
+ * 
+ * <pre>
+ * java -jar xcloud-shell-jmh/target/benchmarks.jar ShellLockContentionBenchmark
+ * </pre>
+ * 
+ * @author Wangl.sir &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2021-07-20 v1.0.0
+ * @since v1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(8)
+@Fork(1)
+public class ShellLockContentionBenchmark {
+
+    /** The lock mode, 'queued' is the current, 'polling' is the previous. */
+    @Param({ "queued", "polling" })
+    public String mode;
+
+    /** The CPU tokens of the work in the critical section. */
+    @Param({ "10000" })
+    public long work;
+
+    private MemoryShellCache memoryCache;
+    private CountingShellCache cache;
+    private ShellLockManager lockManager;
+    private final LongAdder acquisitions = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = new CountingShellCache(memoryCache = new MemoryShellCache(new ServerShellProperties()));
+        lockManager = new ShellLockManager(cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        lockManager.close();
+        memoryCache.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        cache.reset();
+        acquisitions.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounters() {
+        long acquired = acquisitions.sum();
+        System.out.println(format("%n[%s] cacheOps: %s, acquisitions: %s, cacheOps/acquisition: %.2f", mode, cache.getOps(),
+                acquired, acquired == 0 ? 0d : (double) cache.getOps() / acquired));
+    }
+
+    @Benchmark
+    public void acquire() throws InterruptedException {
+        if ("polling".equals(mode)) {
+            acquireByPolling();
+        } else {
+            QueuedLock lock = lockManager.getLock(LOCK_NAME, LockOwner.newInvocation());
+            lock.lockInterruptibly();
+            try {
+                Blackhole.consumeCPU(work);
+            } finally {
+                lock.unlock();
+            }
+        }
+        acquisitions.increment();
+    }
+
+    /**
+     * The previous implementation, each waiter polls the cache every 50ms.
+     */
+    private void acquireByPolling() throws InterruptedException {
+        String owner = LockOwner.newInvocation().getOwnerId();
+        while (!cache.setnx(POLLING_LOCK_KEY, owner, 10_000L)) {
+            MILLISECONDS.sleep(POLLING_INTERVAL_MS);
+        }
+        try {
+            Blackhole.consumeCPU(work);
+        } finally {
+            cache.deleq(POLLING_LOCK_KEY, owner);
+        }
+    }
+
+    private static final String LOCK_NAME = "benchmark";
+    private static final String POLLING_LOCK_KEY = "polling.benchmark";
+    private static final long POLLING_INTERVAL_MS = 50L;
+
+}
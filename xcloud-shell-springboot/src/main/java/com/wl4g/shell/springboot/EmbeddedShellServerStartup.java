@@ -20,9 +20,13 @@ import static com.wl4g.component.common.log.SmartLoggerFactory.getLogger;
 import static com.wl4g.shell.core.cache.ShellCache.Factory.JEDIS_CLASS;
 import static com.wl4g.shell.core.cache.ShellCache.Factory.JEDIS_CLIENT_CLASS;
 import static com.wl4g.shell.core.cache.ShellCache.Factory.JEDIS_CLUSTER_CLASS;
+import static com.wl4g.shell.core.cache.ShellCache.Factory.JEDIS_POOL_CLASS;
 import static com.wl4g.shell.core.cache.ShellCache.Factory.REDIS_TEMPLATE_CLASS;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+
+import java.io.File;
 
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
@@ -33,6 +37,7 @@ import org.springframework.context.ApplicationContext;
 
 import com.wl4g.component.common.log.SmartLogger;
 import com.wl4g.shell.core.EmbeddedShellServerBuilder;
+import com.wl4g.shell.core.cache.FileShellCache;
 import com.wl4g.shell.core.cache.MemoryShellCache;
 import com.wl4g.shell.core.cache.ShellCache;
 import com.wl4g.shell.core.config.ServerShellProperties;
@@ -70,30 +75,39 @@ public class EmbeddedShellServerStartup implements ApplicationRunner, Disposable
     public void run(ApplicationArguments args) throws Exception {
         log.info("Shell server init starting on [{}, {}] ...", config.getBeginPort(), config.getEndPort());
 
+        String appName = applicationContext.getEnvironment().getRequiredProperty("spring.application.name");
+
         // Create shell session DAO.
         // Redis clients in CLASSPATH. (if neccssary)
-        ShellCache shellCache = new MemoryShellCache(config);
-        if (nonNull(JEDIS_CLUSTER_CLASS) && nonNull(JEDIS_CLASS)) {
+        ShellCache shellCache = null;
+        if (equalsIgnoreCase(config.getCacheType(), CACHE_TYPE_FILE)) {
+            shellCache = new FileShellCache(config, new File(config.getCacheFileDir(), appName.concat(".cache")));
+        } else if (equalsIgnoreCase(config.getCacheType(), CACHE_TYPE_MEMORY)) {
+            // Ignore, the memory cache.
+        } else if (nonNull(JEDIS_CLUSTER_CLASS) && nonNull(JEDIS_CLASS)) {
             Object jedisCluster = obtainNullableBean(JEDIS_CLUSTER_CLASS);
-            Object jedis = obtainNullableBean(JEDIS_CLASS);
+            Object jedisPool = obtainNullableBean(JEDIS_POOL_CLASS);
             Object jedisClient = obtainNullableBean(JEDIS_CLIENT_CLASS);
             Object redisTemplate = obtainNullableBean(REDIS_TEMPLATE_CLASS);
             if (nonNull(jedisCluster)) {
                 shellCache = ShellCache.Factory.build(config, jedisCluster);
-            } else if (nonNull(jedis)) {
-                shellCache = ShellCache.Factory.build(config, jedis);
+            } else if (nonNull(jedisPool)) {
+                shellCache = ShellCache.Factory.build(config, jedisPool);
             } else if (nonNull(jedisClient)) {
                 shellCache = ShellCache.Factory.build(config, jedisClient);
             } else if (nonNull(redisTemplate)) {
                 shellCache = ShellCache.Factory.build(config, redisTemplate);
             }
         }
+        // The memory cache is only created when actually chosen.
+        if (isNull(shellCache)) {
+            shellCache = new MemoryShellCache(config);
+        }
         log.info("Using shell cache: {}", shellCache);
 
         // Build shell server.
-        this.shellServer = EmbeddedShellServerBuilder.newBuilder()
-                .withAppName(applicationContext.getEnvironment().getRequiredProperty("spring.application.name"))
-                .withConfiguration(config).withRegistrar(registrar).withShellCache(shellCache).build();
+        this.shellServer = EmbeddedShellServerBuilder.newBuilder().withAppName(appName).withConfiguration(config)
+                .withRegistrar(registrar).withShellCache(shellCache).build();
         this.shellServer.start();
     }
 
@@ -113,4 +127,7 @@ public class EmbeddedShellServerStartup implements ApplicationRunner, Disposable
         }
     }
 
+    public static final String CACHE_TYPE_MEMORY = "memory";
+    public static final String CACHE_TYPE_FILE = "file";
+
 }